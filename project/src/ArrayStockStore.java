@@ -0,0 +1,239 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Keeps the shelves of a StockRoom in parallel primitive columns, indexed by ordinal.
+ *
+ * <p>The stock, aisle, rack, level and zone of every shelf are each one int column; zones
+ * are stored as numbers into a short table of zone names. SKUs are found through an
+ * open-addressing table of ordinals, so there is no per-shelf object, boxed Integer or map
+ * entry to allocate or follow. SKUs that are plain numbers (as in the sample layouts) are
+ * also kept as ints, and compared without touching the SKU Strings at all.
+ *
+ * <p>The columns may be kept off the Java heap, in direct buffers, so very large layouts
+ * add nothing for the garbage collector to trace.
+ */
+public class ArrayStockStore implements StockStore {
+
+  /** Is each column in a direct buffer, off the Java heap? */
+  private final boolean offHeap;
+  /** The amount of product on each shelf. */
+  private IntBuffer stock;
+  /** The aisle of each shelf. */
+  private IntBuffer aisles;
+  /** The rack of each shelf. */
+  private IntBuffer racks;
+  /** The level of each shelf. */
+  private IntBuffer levels;
+  /** The number of each shelf's zone in zoneNames. */
+  private IntBuffer zones;
+  /** The SKU on each shelf as a number, or -1 if it is not a plain number (see skuNumber). */
+  private IntBuffer skuNumbers;
+  /** The SKU stored on each shelf. */
+  private String[] skus;
+  /** The name of each zone, by number. */
+  private ArrayList<String> zoneNames = new ArrayList<String>();
+  /** The number of each zone name. */
+  private Map<String, Integer> zoneIds = new HashMap<String, Integer>();
+  /** The ordinal of a SKU's shelf plus one, at its hash position; 0 marks an empty one. */
+  private int[] skuTable;
+  /** The number of shelves. */
+  private int size = 0;
+
+  /** Creates an empty store on the Java heap. */
+  public ArrayStockStore() {
+    this(16, false);
+  }
+
+  /** Creates an empty store.
+   *
+   * @param capacity
+   *      The number of shelves expected, so the columns rarely need to grow.
+   * @param offHeap
+   *      Should the columns be kept in direct buffers, off the Java heap?
+   */
+  public ArrayStockStore(int capacity, boolean offHeap) {
+    this.offHeap = offHeap;
+    capacity = Math.max(16, capacity);
+    stock = allocate(capacity);
+    aisles = allocate(capacity);
+    racks = allocate(capacity);
+    levels = allocate(capacity);
+    zones = allocate(capacity);
+    skuNumbers = allocate(capacity);
+    skus = new String[capacity];
+    skuTable = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+  }
+
+  @Override
+  public int addShelf(String sku, String zone, int aisle, int rack, int level, int amount) {
+    if (size == skus.length) {
+      grow();
+    }
+    Integer zoneId = zoneIds.get(zone);
+    if (zoneId == null) {
+      zoneId = zoneNames.size();
+      zoneNames.add(zone);
+      zoneIds.put(zone, zoneId);
+    }
+    int ordinal = size++;
+    skus[ordinal] = sku;
+    stock.put(ordinal, amount);
+    aisles.put(ordinal, aisle);
+    racks.put(ordinal, rack);
+    levels.put(ordinal, level);
+    zones.put(ordinal, zoneId);
+    skuNumbers.put(ordinal, skuNumber(sku));
+    skuTable[find(sku)] = ordinal + 1; // A SKU added twice is found at its last shelf
+    return ordinal;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int ordinalOf(String sku) {
+    return skuTable[find(sku)] - 1;
+  }
+
+  @Override
+  public String getSku(int ordinal) {
+    return skus[ordinal];
+  }
+
+  @Override
+  public String getZone(int ordinal) {
+    return zoneNames.get(zones.get(ordinal));
+  }
+
+  @Override
+  public int getAisle(int ordinal) {
+    return aisles.get(ordinal);
+  }
+
+  @Override
+  public int getRack(int ordinal) {
+    return racks.get(ordinal);
+  }
+
+  @Override
+  public int getLevel(int ordinal) {
+    return levels.get(ordinal);
+  }
+
+  @Override
+  public int getStock(int ordinal) {
+    return stock.get(ordinal);
+  }
+
+  @Override
+  public void setStock(int ordinal, int amount) {
+    stock.put(ordinal, amount);
+  }
+
+  @Override
+  public int takeOne(int ordinal) {
+    int left = stock.get(ordinal);
+    if (left <= 0) {
+      return -1;
+    }
+    stock.put(ordinal, --left);
+    return left;
+  }
+
+  @Override
+  public int addStock(int ordinal, int amount) {
+    int total = stock.get(ordinal) + amount;
+    stock.put(ordinal, total);
+    return total;
+  }
+
+  /** Replaces the stock column, for a subclass that keeps stock elsewhere (such as in a
+   * mapped file). The new column is used as it is; nothing is copied into it.
+   *
+   * @param column
+   *      The new stock column, with room for every shelf.
+   */
+  void replaceStock(IntBuffer column) {
+    stock = column;
+  }
+
+  /** Returns the position of a SKU in skuTable, or the empty position where it belongs. */
+  private int find(String sku) {
+    int mask = skuTable.length - 1;
+    int number = skuNumber(sku);
+    int hash = (number >= 0 ? number : sku.hashCode()) * 0x9E3779B9;
+    int position = (hash ^ (hash >>> 16)) & mask;
+    while (skuTable[position] != 0) {
+      int ordinal = skuTable[position] - 1;
+      if (number >= 0 ? skuNumbers.get(ordinal) == number
+          : skuNumbers.get(ordinal) < 0 && skus[ordinal].equals(sku)) {
+        break;
+      }
+      position = (position + 1) & mask; // Linear probing
+    }
+    return position;
+  }
+
+  /** Converts a SKU that is a plain number, with no sign or leading zeros, to an int.
+   * Such SKUs are equal exactly when their numbers are.
+   * 
+   * @param sku
+   *      The SKU.
+   * @return
+   *      The number, or -1 if the SKU is not a plain number of up to nine digits.
+   */
+  private static int skuNumber(String sku) {
+    int length = sku.length();
+    if (length == 0 || length > 9 || (length > 1 && sku.charAt(0) == '0')) {
+      return -1;
+    }
+    int number = 0;
+    for (int i = 0; i < length; i++) {
+      int digit = sku.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      number = number * 10 + digit;
+    }
+    return number;
+  }
+
+  /** Allocates a column of ints, on or off the Java heap. */
+  private IntBuffer allocate(int capacity) {
+    if (offHeap) {
+      return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+    return IntBuffer.allocate(capacity);
+  }
+
+  /** Returns a copy of a column with twice the capacity. */
+  private IntBuffer grow(IntBuffer column) {
+    IntBuffer bigger = allocate(column.capacity() * 2);
+    column.clear();
+    bigger.put(column);
+    return bigger;
+  }
+
+  /** Doubles the capacity of every column, and of skuTable. */
+  private void grow() {
+    stock = grow(stock);
+    aisles = grow(aisles);
+    racks = grow(racks);
+    levels = grow(levels);
+    zones = grow(zones);
+    skuNumbers = grow(skuNumbers);
+    String[] oldSkus = skus;
+    skus = new String[oldSkus.length * 2];
+    System.arraycopy(oldSkus, 0, skus, 0, size);
+    skuTable = new int[skuTable.length * 2];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      skuTable[find(skus[ordinal])] = ordinal + 1; // Later shelves of a SKU win again
+    }
+  }
+}
@@ -0,0 +1,177 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** A bounded ring buffer of log records, drained by a background writer thread.
+ * 
+ * <p>Callers of FileManager.logInfo only copy their record into the next free slot; the
+ * writer thread takes records out in batches and hands each batch to the FileManager to
+ * be printed and written to its LogSink, so no caller waits on console or file I/O.
+ * 
+ * <p>When the buffer is full, the OverflowPolicy decides what happens to a new record.
+ * close() always drains every record still in the buffer before returning.
+ */
+public class AsyncLogger {
+
+  /** What to do with a new record when the buffer is full. */
+  public enum OverflowPolicy {
+    /** Wait for the writer to make room. Nothing is lost. */
+    BLOCK,
+    /** Overwrite the oldest record in the buffer. */
+    DROP_OLDEST,
+    /** Keep one in every SAMPLE_RATE information records by overwriting the oldest record,
+     * and drop the rest. Warnings and errors wait for room, as with BLOCK. */
+    SAMPLE
+  }
+
+  /** The largest number of records handed to the FileManager at once. */
+  private static final int BATCH_SIZE = 512;
+  /** Under the SAMPLE policy, one in this many information records is kept when full. */
+  private static final int SAMPLE_RATE = 16;
+
+  /** The records in the buffer. */
+  private final LogEntry[] entries;
+  /** The index of the oldest record in the buffer. */
+  private int head = 0;
+  /** The number of records in the buffer. */
+  private int count = 0;
+  /** Guards the buffer. */
+  private final ReentrantLock lock = new ReentrantLock();
+  /** Signalled when a record is added to the buffer. */
+  private final Condition notEmpty = lock.newCondition();
+  /** Signalled when the writer makes room in the buffer. */
+  private final Condition notFull = lock.newCondition();
+  /** What to do with a new record when the buffer is full. */
+  private final OverflowPolicy policy;
+  /** Counts the information records offered while the buffer was full, for sampling. */
+  private long overflowCount = 0;
+  /** The number of records that have been dropped. */
+  private long dropped = 0;
+  /** Has close() been called? */
+  private boolean closed = false;
+  /** The FileManager that the writer hands each batch of records to. */
+  private final FileManager target;
+  /** The writer thread. */
+  private final Thread writer;
+
+  /** Creates an AsyncLogger and starts its writer thread.
+   * 
+   * @param target
+   *      The FileManager that prints and writes out each batch of records.
+   * @param capacity
+   *      The number of records the buffer can hold.
+   * @param policy
+   *      What to do with a new record when the buffer is full.
+   */
+  public AsyncLogger(FileManager target, int capacity, OverflowPolicy policy) {
+    this.target = target;
+    this.policy = policy;
+    entries = new LogEntry[capacity];
+    writer = new Thread(this::drain, "AsyncLogger");
+    writer.setDaemon(true); // Never keeps the simulation alive on its own
+    writer.start();
+  }
+
+  /** Adds a record to the buffer.
+   * 
+   * @param entry
+   *      The record to be logged.
+   * @return
+   *      Was the record accepted? false if it was dropped, or the logger has been closed.
+   */
+  public boolean add(LogEntry entry) {
+    lock.lock();
+    try {
+      while (!closed && count == entries.length) { // Buffer full!
+        boolean mustWait = policy == OverflowPolicy.BLOCK
+            || (policy == OverflowPolicy.SAMPLE && entry.severity < 3);
+        if (mustWait) {
+          notFull.awaitUninterruptibly();
+        } else if (policy == OverflowPolicy.SAMPLE && overflowCount++ % SAMPLE_RATE != 0) {
+          dropped++; // Not sampled, drop the new record
+          return false;
+        } else { // Drop the oldest record to make room
+          entries[head] = null;
+          head = (head + 1) % entries.length;
+          count--;
+          dropped++;
+        }
+      }
+      if (closed) {
+        return false;
+      }
+      entries[(head + count) % entries.length] = entry;
+      count++;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the number of records that have been dropped because the buffer was full. */
+  public long getDropped() {
+    lock.lock();
+    try {
+      return dropped;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Stops accepting records, and waits until the writer has written out every record
+   * left in the buffer. */
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      notEmpty.signal();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException exception) {
+        interrupted = true; // Finish flushing first, then restore the interrupt
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** The writer thread: takes batches of records out of the buffer and hands them to the
+   * FileManager until the logger is closed and the buffer is empty. */
+  private void drain() {
+    LogEntry[] batch = new LogEntry[BATCH_SIZE];
+    while (true) {
+      int batchCount = 0;
+      lock.lock();
+      try {
+        while (count == 0 && !closed) {
+          notEmpty.awaitUninterruptibly();
+        }
+        if (count == 0) { // Closed and empty, all done.
+          return;
+        }
+        while (count > 0 && batchCount < BATCH_SIZE) {
+          batch[batchCount] = entries[head];
+          entries[head] = null;
+          head = (head + 1) % entries.length;
+          count--;
+          batchCount++;
+        }
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      try {
+        target.publish(batch, batchCount);
+      } catch (RuntimeException exception) { // Keep draining, or callers could block forever
+        exception.printStackTrace();
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Writes log records in a compact binary format, which LogDecoder turns back into text.
+ *
+ * <p>Format: each file starts with the MAGIC number, a VERSION byte and the time the file
+ * was started (a long, in milliseconds since the epoch), followed by records. Each record
+ * starts with a tag byte:
+ * <ul>
+ * <li>DEFINE: a message template (UTF) that is added to the end of the file's
+ * dictionary.</li>
+ * <li>The record's severity (1 to 3), OR'd with INLINE_FLAG if its template is written
+ * out rather than looked up, and with TRACE_FLAG if it has a stack trace: a log record,
+ * made of the milliseconds since the previous record (varint), the template's dictionary
+ * id (varint) or the template itself (UTF), the number of arguments (varint), each
+ * argument (UTF) and then the stack trace (UTF) if flagged.</li>
+ * </ul>
+ * Templates are defined the first time they are used, so a record logged through
+ * FileManager.log(severity, template, args) costs little more than its arguments. The
+ * dictionary holds at most MAX_TEMPLATES templates per file; records with any further
+ * templates carry them inline. Every file, including each rotated one, can be decoded on
+ * its own.
+ */
+public class BinaryLogSink implements LogSink {
+
+  /** The first four bytes of every binary log file, "WHLG". */
+  static final int MAGIC = 0x57484C47;
+  /** The version of the binary log format. */
+  static final int VERSION = 1;
+  /** The tag of a dictionary definition record. */
+  static final int DEFINE = 0;
+  /** The bits of a record's tag holding its severity. */
+  static final int SEVERITY_MASK = 0x0F;
+  /** Set on a record's tag if its template is written out instead of looked up. */
+  static final int INLINE_FLAG = 0x40;
+  /** Set on a record's tag if it has a stack trace. */
+  static final int TRACE_FLAG = 0x80;
+  /** The largest number of templates in a file's dictionary. */
+  static final int MAX_TEMPLATES = 4096;
+  /** Strings longer than this are cut short, so they fit in writeUTF's 64K byte limit. */
+  private static final int MAX_STRING = 16 * 1024;
+
+  /** The log output file. */
+  private RotatingLogFile file;
+  /** Writes the records to the log output file. */
+  private DataOutputStream out;
+  /** The dictionary id of each template written to the current file. */
+  private Map<String, Integer> dictionary = new HashMap<String, Integer>();
+  /** The time of the previous record in the current file. */
+  private long lastMillis;
+
+  /** Opens a binary log file, overwriting any existing one.
+   *
+   * @param filePath
+   *      The path of the log file.
+   * @param maxBytes
+   *      The size at which the file is rotated, or 0 to never rotate.
+   * @param maxFiles
+   *      The number of rotated files kept next to the current one.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public BinaryLogSink(String filePath, long maxBytes, int maxFiles) throws IOException {
+    file = new RotatingLogFile(filePath, maxBytes, maxFiles);
+    out = new DataOutputStream(file);
+    writeHeader(System.currentTimeMillis());
+  }
+
+  @Override
+  public void write(LogEntry entry) throws IOException {
+    if (file.isFull()) {
+      file.rotate();
+      writeHeader(entry.millis);
+    }
+    boolean inline = false;
+    Integer id = dictionary.get(entry.template);
+    if (id == null) {
+      if (dictionary.size() < MAX_TEMPLATES) {
+        id = dictionary.size();
+        dictionary.put(entry.template, id);
+        out.writeByte(DEFINE);
+        writeString(entry.template);
+      } else {
+        inline = true;
+      }
+    }
+    String trace = entry.getStackTrace();
+    out.writeByte(entry.severity | (inline ? INLINE_FLAG : 0) | (trace != null ? TRACE_FLAG : 0));
+    writeVarlong(Math.max(0, entry.millis - lastMillis)); // Clocks may step backwards
+    lastMillis = Math.max(lastMillis, entry.millis);
+    if (inline) {
+      writeString(entry.template);
+    } else {
+      writeVarlong(id);
+    }
+    int argCount = entry.args == null ? 0 : entry.args.length;
+    writeVarlong(argCount);
+    for (int i = 0; i < argCount; i++) {
+      writeString(entry.args[i]);
+    }
+    if (trace != null) {
+      writeString(trace);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  /** Starts a new file: writes its header and empties the dictionary. */
+  private void writeHeader(long startMillis) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeLong(startMillis);
+    dictionary.clear();
+    lastMillis = startMillis;
+  }
+
+  /** Writes a String as UTF, cut short if it is too long. */
+  private void writeString(String value) throws IOException {
+    out.writeUTF(value.length() > MAX_STRING ? value.substring(0, MAX_STRING) : value);
+  }
+
+  /** Writes a non-negative integer in 7-bit groups, low group first. */
+  private void writeVarlong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+}
@@ -0,0 +1,69 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/** An ArrayStockStore whose stock may be taken and added from many threads at once.
+ *
+ * <p>Each shelf's stock is its own atomic counter, so threads working on different shelves
+ * never wait for each other and there is no global lock. takeOne() decrements by
+ * compare-and-set and never takes a shelf below zero; each call that succeeds returns a
+ * different amount left, so exactly one caller sees the stock reach any given amount (such
+ * as the StockRoom's replenish threshold) each time it passes it.
+ *
+ * <p>Shelves must all be added before the store is shared between threads.
+ */
+public class ConcurrentStockStore extends ArrayStockStore {
+
+  /** The amount of product on each shelf. */
+  private AtomicIntegerArray counters;
+
+  /** Creates an empty store.
+   *
+   * @param capacity
+   *      The number of shelves expected, so the counters rarely need to grow.
+   */
+  public ConcurrentStockStore(int capacity) {
+    super(capacity, false);
+    counters = new AtomicIntegerArray(Math.max(16, capacity));
+  }
+
+  @Override
+  public int addShelf(String sku, String zone, int aisle, int rack, int level, int amount) {
+    int ordinal = super.addShelf(sku, zone, aisle, rack, level, amount);
+    if (ordinal == counters.length()) {
+      AtomicIntegerArray bigger = new AtomicIntegerArray(counters.length() * 2);
+      for (int i = 0; i < ordinal; i++) {
+        bigger.set(i, counters.get(i));
+      }
+      counters = bigger;
+    }
+    counters.set(ordinal, amount);
+    return ordinal;
+  }
+
+  @Override
+  public int getStock(int ordinal) {
+    return counters.get(ordinal);
+  }
+
+  @Override
+  public void setStock(int ordinal, int amount) {
+    counters.set(ordinal, amount);
+  }
+
+  @Override
+  public int takeOne(int ordinal) {
+    while (true) {
+      int left = counters.get(ordinal);
+      if (left <= 0) {
+        return -1;
+      }
+      if (counters.compareAndSet(ordinal, left, left - 1)) {
+        return left - 1;
+      }
+    }
+  }
+
+  @Override
+  public int addStock(int ordinal, int amount) {
+    return counters.addAndGet(ordinal, amount);
+  }
+}
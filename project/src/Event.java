@@ -0,0 +1,131 @@
+/** A single Warehouse event, tokenized into an opcode and its arguments.
+ * 
+ * <p>Events are produced by EventParser and dispatched by Warehouse through its table of
+ * event handlers. Only the arguments used by the event's opcode are set:
+ * <ul>
+ * <li>ORDER: model, colour</li>
+ * <li>READY, RESCANS, COMPLETES, DISCARDS: role, name</li>
+ * <li>SCANS: role, name, sku</li>
+ * <li>REPLENISH: role, name, zone, aisle, rack, level</li>
+ * </ul>
+ * Any text after the last argument, such as a "# wrong scan" comment, is kept as the
+ * trailer so that it is written back out with the event. The arguments themselves are
+ * written back as parsed: one space apart, and numbers without leading zeros.
+ */
+public class Event {
+
+  /** The opcode of this event. */
+  EventType type;
+  /** The type of Worker performing the event, such as Picker or Loader. */
+  String role;
+  /** The name of the Worker performing the event. */
+  String name;
+  /** The SKU scanned by the Worker. */
+  String sku;
+  /** The model of the ordered minivan. */
+  String model;
+  /** The colour of the ordered minivan. */
+  String colour;
+  /** The zone of a replenished location. */
+  String zone;
+  /** The aisle of a replenished location. */
+  int aisle;
+  /** The rack of a replenished location. */
+  int rack;
+  /** The level of a replenished location. */
+  int level;
+  /** Any text following the event's last argument, including its leading space, or null. */
+  String trailer;
+
+  /** Returns the opcode of this event. */
+  public EventType getType() {
+    return type;
+  }
+
+  /** Returns the type of Worker performing this event. */
+  public String getRole() {
+    return role;
+  }
+
+  /** Returns the name of the Worker performing this event. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the SKU scanned in this event. */
+  public String getSku() {
+    return sku;
+  }
+
+  /** Returns the model ordered in this event. */
+  public String getModel() {
+    return model;
+  }
+
+  /** Returns the colour ordered in this event. */
+  public String getColour() {
+    return colour;
+  }
+
+  /** Returns the zone replenished in this event. */
+  public String getZone() {
+    return zone;
+  }
+
+  /** Returns the aisle replenished in this event. */
+  public int getAisle() {
+    return aisle;
+  }
+
+  /** Returns the rack replenished in this event. */
+  public int getRack() {
+    return rack;
+  }
+
+  /** Returns the level replenished in this event. */
+  public int getLevel() {
+    return level;
+  }
+
+  /** Returns the text following this event's last argument, or null if there was none. */
+  public String getTrailer() {
+    return trailer;
+  }
+
+  /** Clears all arguments, so that this Event may be reused for the next line. */
+  void clear() {
+    type = null;
+    role = null;
+    name = null;
+    sku = null;
+    model = null;
+    colour = null;
+    zone = null;
+    aisle = 0;
+    rack = 0;
+    level = 0;
+    trailer = null;
+  }
+
+  /** Returns this event in the format of an events file line. */
+  @Override
+  public String toString() {
+    String line;
+    switch (type) {
+      case ORDER:
+        line = "Order " + model + " " + colour;
+        break;
+      case SCANS:
+        line = role + " " + name + " " + type.getKeyword() + " " + sku;
+        break;
+      case REPLENISH:
+        line = role + " " + name + " " + type.getKeyword() + " " + zone + " " + aisle + " "
+            + rack + " " + level;
+        break;
+      default:
+        line = role + " " + name + " " + type.getKeyword();
+        break;
+    }
+    return trailer == null ? line : line + trailer;
+  }
+}
@@ -0,0 +1,13 @@
+/** Performs one type of Event in a Warehouse.
+ * 
+ * <p>Warehouse keeps one EventHandler per EventType, indexed by the opcode's ordinal.
+ */
+public interface EventHandler {
+
+  /** Performs the given event.
+   * 
+   * @param event
+   *      A parsed event of the type this handler is registered for.
+   */
+  void handle(Event event);
+}
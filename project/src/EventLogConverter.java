@@ -0,0 +1,131 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/** Converts events files to and from the binary event log format.
+ * 
+ * <p>Usage:
+ * <ul>
+ * <li>java EventLogConverter (events.txt) (events.bin): encodes a text events file.</li>
+ * <li>java EventLogConverter -d (events.bin) (events.txt): decodes a binary event log.</li>
+ * </ul>
+ * A text events file decodes back byte for byte: comments, empty lines and lines that are
+ * not valid events are kept in the log, as is the line of an event written differently than
+ * Event.toString() (extra spaces or leading zeros, say), and the line separators. Text is
+ * read and written as UTF-8.
+ */
+public class EventLogConverter {
+
+  /** Runs the converter.
+   * 
+   * @param args
+   *      The arguments described above.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public static void main(String[] args) throws IOException {
+    new Simulator(); // Sets up the FileManager for logging
+    if (args.length == 3 && args[0].equals("-d")) {
+      decode(args[1], args[2]);
+    } else if (args.length == 2) {
+      encode(args[0], args[1]);
+    } else {
+      Simulator.fm.logInfo(1, "Usage: EventLogConverter <events.txt> <events.bin>"
+          + " | EventLogConverter -d <events.bin> <events.txt>");
+    }
+  }
+
+  /** Encodes a text events file as a binary event log.
+   * 
+   * @param textPath
+   *      The path of the text events file.
+   * @param binaryPath
+   *      The path of the binary event log to write.
+   * @return
+   *      The number of events written.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public static int encode(String textPath, String binaryPath) throws IOException {
+    Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(textPath),
+        StandardCharsets.UTF_8), 1 << 16);
+    EventLogWriter writer = new EventLogWriter(binaryPath);
+    EventParser parser = new EventParser();
+    Event event = new Event();
+    StringBuilder line = new StringBuilder();
+    int count = 0;
+    try {
+      int next = 0;
+      while (next != -1) {
+        next = in.read();
+        if (next != -1 && next != '\n') {
+          line.append((char) next);
+          continue;
+        }
+        if (next == -1 && line.length() == 0) { // Nothing after the last line separator
+          break;
+        }
+        String separator = next == -1 ? "" : "\n";
+        if (next != -1 && line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+          separator = "\r\n";
+          line.setLength(line.length() - 1);
+        }
+        writer.setLineSeparator(separator);
+        String text = line.toString();
+        line.setLength(0);
+        // Comments and empty lines are skipped with the same rules as EventReader
+        if (text.length() > 1 && text.charAt(0) != '#' && parser.parse(text, event)) {
+          writer.write(event, text);
+          count++;
+        } else {
+          writer.writeRaw(text);
+        }
+      }
+    } finally {
+      in.close();
+      writer.close();
+    }
+    Simulator.fm.logInfo(3, "Event Log Converter: encoded " + count + " events from "
+        + textPath + " to " + binaryPath);
+    return count;
+  }
+
+  /** Decodes a binary event log back into a text events file.
+   * 
+   * @param binaryPath
+   *      The path of the binary event log.
+   * @param textPath
+   *      The path of the text events file to write.
+   * @return
+   *      The number of lines written, events or not.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public static int decode(String binaryPath, String textPath) throws IOException {
+    EventLogReader source = new EventLogReader(binaryPath);
+    Writer outFile = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(textPath),
+        StandardCharsets.UTF_8), 1 << 16);
+    int count = 0;
+    try {
+      String line;
+      while ((line = source.nextLine()) != null) {
+        outFile.write(line);
+        outFile.write(source.getLineSeparator());
+        count++;
+      }
+    } finally {
+      source.close();
+      outFile.close();
+    }
+    Simulator.fm.logInfo(3, "Event Log Converter: decoded " + count + " lines from "
+        + binaryPath + " to " + textPath);
+    return count;
+  }
+}
@@ -0,0 +1,191 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/** Replays a binary event log written by EventLogWriter.
+ * 
+ * <p>Records are decoded straight into Events; worker names, SKUs and other strings come
+ * from the log's dictionary, so no string parsing or copying is done per event.
+ * 
+ * <p>next skips the lines that are not events; nextLine gives back every line of the events
+ * file the log was encoded from, as it was written.
+ */
+public class EventLogReader implements EventSource {
+
+  /** The input stream of the log file, or null once it has been closed. */
+  private DataInputStream in;
+  /** The strings defined so far, indexed by dictionary id. */
+  private ArrayList<String> dictionary = new ArrayList<String>();
+  /** The opcodes, indexed by ordinal. */
+  private EventType[] types = EventType.values();
+  /** The path to the log file, used when reporting errors. */
+  private String filePath;
+  /** The line last read, if it was not an event or was written differently than
+   * Event.toString(); otherwise null. */
+  private String line;
+  /** The string ending each line, as last set by a SEPARATOR record. */
+  private String separator = "\n";
+  /** The Event nextLine decodes events into. */
+  private Event scratch;
+
+  /** Opens a binary event log for replay.
+   * 
+   * @param filePath
+   *      The path of the log file.
+   * @throws IOException
+   *      If the file does not exist or is not a binary event log.
+   */
+  public EventLogReader(String filePath) throws IOException {
+    this.filePath = filePath;
+    in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath), 1 << 16));
+    if (in.readInt() != EventLogWriter.MAGIC
+        || !isVersion(in.readByte())) { // Versions before this one are read too
+      in.close();
+      throw new IOException(filePath + " is not a binary event log.");
+    }
+  }
+
+  @Override
+  public boolean next(Event event) {
+    while (read(event)) {
+      if (event.getType() != null) { // Not a line kept only for decoding
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Reads the next line of the events file the log was encoded from, exactly as it was
+   * written, whether or not it is an event.
+   * 
+   * @return
+   *      The line, without its line separator, or null at the end of the log.
+   */
+  public String nextLine() {
+    if (scratch == null) {
+      scratch = new Event();
+    }
+    if (!read(scratch)) {
+      return null;
+    }
+    return line != null ? line : scratch.toString();
+  }
+
+  /** Returns the string ending the line last read by nextLine, such as "\r\n". */
+  public String getLineSeparator() {
+    return separator;
+  }
+
+  /** Reads the next event, or line that is not an event, into an Event; a line that is not
+   * an event leaves it cleared.
+   * 
+   * @param event
+   *      The Event to fill in.
+   * @return
+   *      Was a line read? False at the end of the log.
+   */
+  private boolean read(Event event) {
+    if (in == null) {
+      return false;
+    }
+    event.clear();
+    line = null;
+    try {
+      int tag = in.read();
+      while (tag == EventLogWriter.DEFINE || tag == EventLogWriter.SEPARATOR) {
+        if (tag == EventLogWriter.DEFINE) {
+          dictionary.add(in.readUTF());
+        } else {
+          separator = in.readUTF();
+        }
+        tag = in.read();
+      }
+      if (tag == -1) { // End of the log
+        close();
+        return false;
+      }
+      if (tag == EventLogWriter.RAW) {
+        line = readString();
+        return true;
+      }
+      int opcode = (tag & ~(EventLogWriter.TRAILER_FLAG | EventLogWriter.LINE_FLAG)) - 1;
+      if (opcode < 0 || opcode >= types.length) {
+        throw new IOException("Unknown record tag " + tag);
+      }
+      event.type = types[opcode];
+      if (event.type == EventType.ORDER) {
+        event.model = readString();
+        event.colour = readString();
+      } else {
+        event.role = readString();
+        event.name = readString();
+        if (event.type == EventType.SCANS) {
+          event.sku = readString();
+        } else if (event.type == EventType.REPLENISH) {
+          event.zone = readString();
+          event.aisle = readVarint();
+          event.rack = readVarint();
+          event.level = readVarint();
+        }
+      }
+      if ((tag & EventLogWriter.TRAILER_FLAG) != 0) {
+        event.trailer = readString();
+      }
+      if ((tag & EventLogWriter.LINE_FLAG) != 0) {
+        line = readString();
+      }
+      return true;
+    } catch (IOException exception) { // Includes a log cut off part way through a record
+      Simulator.fm.logException(exception, "Error: Could not read binary event log "
+          + filePath + ". Remaining events are skipped.");
+      close();
+      return false;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (in == null) {
+      return;
+    }
+    try {
+      in.close();
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not close binary event log " + filePath);
+    }
+    in = null;
+  }
+
+  /** Checks that a log's version byte is one this reader can read. */
+  private static boolean isVersion(int version) {
+    return version >= 1 && version <= EventLogWriter.VERSION;
+  }
+
+  /** Reads a dictionary id and returns its string. */
+  private String readString() throws IOException {
+    int id = readVarint();
+    if (id >= dictionary.size()) {
+      throw new IOException("Undefined dictionary id " + id);
+    }
+    return dictionary.get(id);
+  }
+
+  /** Reads a non-negative integer written in 7-bit groups, low group first. */
+  private int readVarint() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int next = in.read();
+      if (next == -1) {
+        throw new EOFException();
+      }
+      value |= (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Writes Events to a compact binary event log, which EventLogReader can replay without
+ * any string parsing.
+ * 
+ * <p>Format: the log starts with the MAGIC number and a VERSION byte, followed by records.
+ * Each record starts with a tag byte:
+ * <ul>
+ * <li>DEFINE: a string (UTF) that is added to the end of the log's dictionary.</li>
+ * <li>1 + opcode ordinal, OR'd with TRAILER_FLAG if the event has a trailer and with
+ * LINE_FLAG if it was written differently than Event.toString(): an event, followed by its
+ * arguments in the order ORDER (model, colour), worker events (role, name), SCANS (role,
+ * name, sku), REPLENISH (role, name, zone, aisle, rack, level), then the trailer and the
+ * line as written, if flagged.</li>
+ * <li>RAW: a line of the events file that is not an event, such as a comment.</li>
+ * <li>SEPARATOR: the string (UTF) ending each line from here on; "\n" until the first.</li>
+ * </ul>
+ * Strings (worker names, SKUs, models, colours, zones, trailers and lines) are written as
+ * varint dictionary ids, defined the first time they appear. Aisles, racks and levels are
+ * written as varints.
+ * 
+ * <p>RAW, SEPARATOR and the lines of LINE_FLAG records are only used to give back the
+ * events file exactly, see EventLogConverter; replaying skips them.
+ */
+public class EventLogWriter implements Closeable {
+
+  /** The first four bytes of every binary event log, "WHEV". */
+  static final int MAGIC = 0x57484556;
+  /** The version of the binary event log format. Version 1 logs, without RAW, SEPARATOR
+   * or LINE_FLAG records, are still read. */
+  static final int VERSION = 2;
+  /** The tag of a dictionary definition record. */
+  static final int DEFINE = 0;
+  /** The tag of a line that is not an event. */
+  static final int RAW = 0x3F;
+  /** The tag of a line separator record. */
+  static final int SEPARATOR = 0x3E;
+  /** Set on an event's tag if the event was written differently than Event.toString(). */
+  static final int LINE_FLAG = 0x40;
+  /** Set on an event's tag if the event has a trailer. */
+  static final int TRAILER_FLAG = 0x80;
+
+  /** The output stream of the log file. */
+  private DataOutputStream out;
+  /** The dictionary id of each string written so far. */
+  private Map<String, Integer> dictionary = new HashMap<String, Integer>();
+  /** The string ending each line, as last set by a SEPARATOR record. */
+  private String separator = "\n";
+
+  /** Creates a new binary event log, overwriting any existing file.
+   * 
+   * @param filePath
+   *      The path of the log file.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public EventLogWriter(String filePath) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16));
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  /** Appends an event to the log.
+   * 
+   * @param event
+   *      A parsed event.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void write(Event event) throws IOException {
+    write(event, null);
+  }
+
+  /** Appends an event to the log, with the line it was read from if that is not how
+   * Event.toString() writes it.
+   * 
+   * @param event
+   *      A parsed event.
+   * @param line
+   *      The line the event was parsed from, or null if it need not be kept.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void write(Event event, String line) throws IOException {
+    if (line != null && line.equals(event.toString())) {
+      line = null; // Decodes back to the same line without it
+    }
+    EventType type = event.getType();
+    // Define any new strings first, so the event record itself is just ids.
+    if (type == EventType.ORDER) {
+      define(event.getModel());
+      define(event.getColour());
+    } else {
+      define(event.getRole());
+      define(event.getName());
+      if (type == EventType.SCANS) {
+        define(event.getSku());
+      } else if (type == EventType.REPLENISH) {
+        define(event.getZone());
+      }
+    }
+    if (event.getTrailer() != null) {
+      define(event.getTrailer());
+    }
+    if (line != null) {
+      define(line);
+    }
+
+    out.writeByte((type.ordinal() + 1) | (event.getTrailer() != null ? TRAILER_FLAG : 0)
+        | (line != null ? LINE_FLAG : 0));
+    if (type == EventType.ORDER) {
+      writeVarint(dictionary.get(event.getModel()));
+      writeVarint(dictionary.get(event.getColour()));
+    } else {
+      writeVarint(dictionary.get(event.getRole()));
+      writeVarint(dictionary.get(event.getName()));
+      if (type == EventType.SCANS) {
+        writeVarint(dictionary.get(event.getSku()));
+      } else if (type == EventType.REPLENISH) {
+        writeVarint(dictionary.get(event.getZone()));
+        writeVarint(event.getAisle());
+        writeVarint(event.getRack());
+        writeVarint(event.getLevel());
+      }
+    }
+    if (event.getTrailer() != null) {
+      writeVarint(dictionary.get(event.getTrailer()));
+    }
+    if (line != null) {
+      writeVarint(dictionary.get(line));
+    }
+  }
+
+  /** Appends a line that is not an event, such as a comment, so it is kept when the log is
+   * decoded back to text. Replaying the log skips it.
+   * 
+   * @param line
+   *      The line.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void writeRaw(String line) throws IOException {
+    define(line);
+    out.writeByte(RAW);
+    writeVarint(dictionary.get(line));
+  }
+
+  /** Sets the string ending each line written from here on, such as "\r\n", or "" for a
+   * last line without one.
+   * 
+   * @param separator
+   *      The line separator.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void setLineSeparator(String separator) throws IOException {
+    if (!separator.equals(this.separator)) {
+      this.separator = separator;
+      out.writeByte(SEPARATOR);
+      out.writeUTF(separator);
+    }
+  }
+
+  /** Flushes and closes the log file.
+   * 
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  /** Adds a string to the dictionary, writing a DEFINE record if it is new. */
+  private void define(String value) throws IOException {
+    if (!dictionary.containsKey(value)) {
+      dictionary.put(value, dictionary.size());
+      out.writeByte(DEFINE);
+      out.writeUTF(value);
+    }
+  }
+
+  /** Writes a non-negative integer in 7-bit groups, low group first. */
+  private void writeVarint(int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+}
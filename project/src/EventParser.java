@@ -0,0 +1,174 @@
+/** Tokenizes the lines of an events file into Events.
+ * 
+ * <p>Each line is scanned once, without splitting it into an array. The role and verb
+ * are matched in place against the known keywords, so only the free-form arguments
+ * (names, SKUs, models and colours) are copied out of the line. Lines with an unknown
+ * role or verb, or missing arguments, are rejected here so that Warehouse only ever
+ * sees valid opcodes.
+ */
+public class EventParser {
+
+  /** The types of Worker that may appear at the start of an event. */
+  private static final String[] ROLES = {"Picker", "Sequencer", "Loader", "Replenisher"};
+  /** The opcodes that are performed by a Worker, matched against the verb of an event. */
+  private static final EventType[] VERBS = {EventType.READY, EventType.SCANS,
+      EventType.RESCANS, EventType.COMPLETES, EventType.DISCARDS, EventType.REPLENISH};
+  /** The role allowed to perform REPLENISH events. */
+  private static final String REPLENISHER = "Replenisher";
+
+  /** The line currently being parsed. */
+  private String line;
+  /** The index in line where the current token starts. */
+  private int tokenStart;
+  /** The index in line just past the end of the current token. */
+  private int tokenEnd;
+
+  /** Parses an event line into the given Event.
+   * 
+   * @param eventString
+   *      A line from an events file, such as "Picker Alice scans 37".
+   * @param event
+   *      The Event to fill in. Its previous contents are cleared.
+   * @return
+   *      Was the line a valid event? If not, the reason has been logged.
+   */
+  public boolean parse(String eventString, Event event) {
+    event.clear();
+    line = eventString;
+    tokenEnd = 0;
+    if (!nextToken()) {
+      return reject("the event is empty");
+    }
+    if (tokenIs("Order")) { // Order (model) (colour)
+      if (!nextToken()) {
+        return reject("no model was given");
+      }
+      event.model = token();
+      if (!nextToken()) {
+        return reject("no colour was given");
+      }
+      event.colour = token();
+      event.type = EventType.ORDER;
+      readTrailer(event);
+      return true;
+    }
+    for (String role : ROLES) { // (Worker) (name) (verb) ...
+      if (tokenIs(role)) {
+        event.role = role;
+      }
+    }
+    if (event.role == null) {
+      return reject("unknown role " + token());
+    }
+    if (!nextToken()) {
+      return reject("no name was given");
+    }
+    event.name = token();
+    if (!nextToken()) {
+      return reject("no action was given");
+    }
+    for (EventType type : VERBS) {
+      if (tokenIs(type.getKeyword())) {
+        event.type = type;
+      }
+    }
+    if (event.type == null) {
+      return reject("unknown action " + token());
+    }
+    if (event.type == EventType.SCANS) { // (Worker) (name) scans (SKU)
+      if (!nextToken()) {
+        return reject("no SKU was given");
+      }
+      event.sku = token();
+    } else if (event.type == EventType.REPLENISH) { // Replenisher (name) replenish (location)
+      if (!REPLENISHER.equals(event.role)) {
+        return reject("only a Replenisher can replenish");
+      }
+      if (!nextToken()) {
+        return reject("no zone was given");
+      }
+      event.zone = token();
+      event.aisle = nextInt();
+      event.rack = nextInt();
+      event.level = nextInt();
+      if (event.level < 0 || event.rack < 0 || event.aisle < 0) {
+        return reject("the location is not of the form (zone) (aisle) (rack) (level)");
+      }
+    }
+    readTrailer(event);
+    return true;
+  }
+
+  /** Keeps any text after the current token as the event's trailer. */
+  private void readTrailer(Event event) {
+    if (tokenEnd < line.length()) {
+      event.trailer = line.substring(tokenEnd);
+    }
+  }
+
+  /** Logs that the current line was rejected.
+   * 
+   * @param reason
+   *      Why the line is not a valid event.
+   * @return
+   *      false, for convenience.
+   */
+  private boolean reject(String reason) {
+    Simulator.fm.log(2, "Simulator: system does not understand the event: {} ({})", line,
+        reason);
+    Simulator.fm.log(3, "Simulator: skipping the event: {}", line);
+    return false;
+  }
+
+  /** Moves to the next space-separated token in the line.
+   * 
+   * @return
+   *      Was there another token?
+   */
+  private boolean nextToken() {
+    int index = tokenEnd;
+    while (index < line.length() && line.charAt(index) == ' ') {
+      index++;
+    }
+    if (index == line.length()) {
+      return false;
+    }
+    tokenStart = index;
+    while (index < line.length() && line.charAt(index) != ' ') {
+      index++;
+    }
+    tokenEnd = index;
+    return true;
+  }
+
+  /** Checks if the current token is the given keyword, without copying it. */
+  private boolean tokenIs(String keyword) {
+    return tokenEnd - tokenStart == keyword.length()
+        && line.regionMatches(tokenStart, keyword, 0, keyword.length());
+  }
+
+  /** Returns a copy of the current token. */
+  private String token() {
+    return line.substring(tokenStart, tokenEnd);
+  }
+
+  /** Reads the next token as a non-negative integer, without copying it.
+   * 
+   * @return
+   *      The integer, or -1 if the token is missing or not a number.
+   */
+  private int nextInt() {
+    if (!nextToken()) {
+      return -1;
+    }
+    int value = 0;
+    for (int i = tokenStart; i < tokenEnd; i++) {
+      char digit = line.charAt(i);
+      if (digit < '0' || digit > '9' || value > (Integer.MAX_VALUE - 9) / 10) {
+        return -1;
+      }
+      value = value * 10 + (digit - '0');
+    }
+    return value;
+  }
+}
@@ -0,0 +1,105 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** A streaming cursor over a Warehouse's events file.
+ *
+ * <p>Lines are read from disk one at a time as the Warehouse asks for them, so memory use
+ * stays flat no matter how long the file is and the first event can be handled as soon as
+ * it has been read. Comments and empty lines are skipped with the same rules used by
+ * FileManager.readFromFile.
+ *
+ * <p>The underlying file is closed once the last line has been read, or by calling close().
+ */
+public class EventReader implements Iterator<String>, Closeable {
+
+  /** The size of the read buffer, in characters. */
+  private static final int BUFFER_SIZE = 1 << 16;
+  /** The reader for the events file, or null once the file has been closed. */
+  private BufferedReader reader;
+  /** The next event line to be returned, or null if it has not been read yet. */
+  private String nextLine;
+  /** The path to the events file, used when reporting errors. */
+  private String filePath;
+
+  /** Opens an events file for streaming.
+   *
+   * @param filePath
+   *      The path to the events file (.txt).
+   * @throws FileNotFoundException
+   *      If the events file does not exist.
+   */
+  public EventReader(String filePath) throws FileNotFoundException {
+    this.filePath = filePath;
+    this.reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(filePath)), BUFFER_SIZE);
+  }
+
+  /** Checks if another event line is available, reading ahead if necessary.
+   *
+   * @return
+   *      Is there another event in the file?
+   */
+  @Override
+  public boolean hasNext() {
+    if (nextLine == null) {
+      advance();
+    }
+    return nextLine != null;
+  }
+
+  /** Returns the next event line in the file.
+   *
+   * @return
+   *      The next non-comment, non-empty line.
+   */
+  @Override
+  public String next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException("No more events in " + filePath);
+    }
+    String line = nextLine;
+    nextLine = null;
+    return line;
+  }
+
+  /** Closes the events file. Further calls to hasNext() will return false. */
+  @Override
+  public void close() {
+    if (reader == null) {
+      return;
+    }
+    try {
+      reader.close();
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not close events file " + filePath);
+    }
+    reader = null;
+  }
+
+  /** Reads ahead to the next event line, closing the file when the end is reached. */
+  private void advance() {
+    if (reader == null) {
+      return;
+    }
+    try {
+      String currentLine;
+      while ((currentLine = reader.readLine()) != null) {
+        // Skips comments and empty lines
+        if (currentLine.length() > 1 && currentLine.charAt(0) != '#') {
+          nextLine = currentLine;
+          return;
+        }
+      }
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not read events file " + filePath
+          + ". Remaining events are skipped.");
+    }
+    close();
+  }
+}
@@ -0,0 +1,22 @@
+import java.io.Closeable;
+
+/** A source of parsed Events for a Warehouse to run, such as a text events file or a
+ * binary event log.
+ */
+public interface EventSource extends Closeable {
+
+  /** Reads the next event into the given Event.
+   * 
+   * <p>Entries that are not valid events are logged and skipped.
+   * 
+   * @param event
+   *      The Event to fill in. Its previous contents are cleared.
+   * @return
+   *      Was an event read? false once the source has run out of events.
+   */
+  boolean next(Event event);
+
+  /** Releases any file held by this source. */
+  @Override
+  void close();
+}
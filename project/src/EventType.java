@@ -0,0 +1,39 @@
+/** The opcodes of the events a Warehouse can process.
+ * 
+ * <p>Each event line is tokenized once by EventParser into one of these opcodes, which
+ * Warehouse uses to index its table of event handlers. See help.txt for the commands
+ * each opcode stands for.
+ */
+public enum EventType {
+  /** Order (model) (colour) */
+  ORDER("Order"),
+  /** (Worker) (name) ready */
+  READY("ready"),
+  /** (Worker) (name) scans (SKU) */
+  SCANS("scans"),
+  /** (Worker) (name) rescans */
+  RESCANS("rescans"),
+  /** (Worker) (name) completes */
+  COMPLETES("completes"),
+  /** (Worker) (name) discards */
+  DISCARDS("discards"),
+  /** Replenisher (name) replenish (zone) (aisle) (rack) (level) */
+  REPLENISH("replenish");
+
+  /** The keyword identifying this opcode in an events file. */
+  private final String keyword;
+
+  /** Creates an opcode.
+   * 
+   * @param keyword
+   *      The keyword identifying this opcode in an events file.
+   */
+  private EventType(String keyword) {
+    this.keyword = keyword;
+  }
+
+  /** Returns the keyword identifying this opcode in an events file. */
+  public String getKeyword() {
+    return keyword;
+  }
+}
@@ -4,26 +4,36 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Scanner;
-import java.util.logging.ConsoleHandler;
-import java.util.logging.FileHandler;
-import java.util.logging.Handler;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.function.Supplier;
 
 /** The Simulator's File Management system.
  * 
  * <p>Manages file reading and writing tasks as well as Logger inputs from
  * the Simulation's many classes.
  * 
+ * <p>Every record is printed to the console and written to a LogSink: XML through
+ * java.util.logging by default, or one of the compact TextLogSink and BinaryLogSink
+ * formats. Logging is synchronous by default. A FileManager created with an
+ * AsyncLogger.OverflowPolicy instead queues each record in an AsyncLogger, whose
+ * writer thread prints and writes them to disk in batches; call close() to flush it.
+ * 
+ * <p>Records less severe than the threshold (see setThreshold) are thrown away. Hot code
+ * should log through log(severity, template, args) or log(severity, Supplier), which check
+ * the threshold before building the message, so nothing is allocated for disabled records.
+ * 
  * @author Yuesheng (Editor: Tyson)
  *
  */
 public class FileManager {
-  private Handler consoleHandler = new ConsoleHandler();
-  private Handler fileHandler;
+  /** Where log records are written. */
+  private LogSink sink;
   /** The last string received by logInfo, used for debugging. */
-  private String lastLine = "";
-  private Logger simLog = Logger.getLogger(this.getClass().getName());
+  private volatile String lastLine = "";
+  /** The least severe records that are logged: 1 for errors, 2 for warnings, 3 for all. */
+  private volatile int threshold = 3;
+  /** Queues records for the background writer, or null if logging synchronously. */
+  private AsyncLogger asyncLogger;
+
   /** Constructor of the FileManager class.
    *
    * @param filePath
@@ -32,15 +42,40 @@ public class FileManager {
    *     An I/O file reading error.
    */
   public FileManager(String filePath) throws IOException {
-    simLog.setLevel(Level.ALL);
-    consoleHandler.setLevel(Level.ALL);
-    simLog.addHandler(consoleHandler);
-    File output = new File(filePath);
-    if (! output.exists()) {
-      output.createNewFile();
+    this(filePath, null, 0);
+  }
+
+  /** Constructor of a FileManager class that may log asynchronously.
+   *
+   * @param filePath
+   *     The path of the logging output file.
+   * @param policy
+   *     What to do when the async buffer is full, or null to log synchronously.
+   * @param capacity
+   *     The number of records the async buffer can hold.
+   * @throws IOException 
+   *     An I/O file reading error.
+   */
+  public FileManager(String filePath, AsyncLogger.OverflowPolicy policy, int capacity)
+      throws IOException {
+    // When asynchronous, the file is only flushed once per batch.
+    this(new XmlLogSink(filePath, policy != null), policy, capacity);
+  }
+
+  /** Constructor of a FileManager class that writes its log to the given sink.
+   *
+   * @param sink
+   *     Where log records are written; closed by close().
+   * @param policy
+   *     What to do when the async buffer is full, or null to log synchronously.
+   * @param capacity
+   *     The number of records the async buffer can hold.
+   */
+  public FileManager(LogSink sink, AsyncLogger.OverflowPolicy policy, int capacity) {
+    this.sink = sink;
+    if (policy != null) {
+      asyncLogger = new AsyncLogger(this, capacity, policy);
     }
-    fileHandler = new FileHandler(filePath);
-    simLog.addHandler(fileHandler);
   }
 
   /** Checks if the specified file exists.
@@ -93,6 +128,30 @@ public class FileManager {
     return data;
   }
 
+  /** Opens an events file from a given filePath for streaming, one event at a time. If the
+   * file doesn't exist, then log the information.
+   * 
+   * <p>Files ending in ".bin" are replayed as binary event logs (see EventLogWriter);
+   * anything else is read as text. Unlike readFromFile, the contents are not held in memory.
+   * 
+   * @param filePath
+   *     The path of the events file.
+   * @return 
+   *     A source of the file's events, or null if it could not be opened.
+   */
+  public EventSource openEventSource(String filePath) {
+    try { // Opening the file...
+      Simulator.fm.logInfo(3, "File Manager: Opening file at " + filePath + " for streaming");
+      if (filePath.endsWith(".bin")) {
+        return new EventLogReader(filePath);
+      }
+      return new TextEventSource(new EventReader(filePath));
+    } catch (IOException exception) { // File does not exist, or is not an event log!
+      this.logException(exception, "Error: The specified input file was not found.");
+      return null;
+    }
+  }
+
   /** Splits Strings in an ArrayList with space characters.
    * 
    * @param info
@@ -108,26 +167,102 @@ public class FileManager {
     return output;
   }
 
+  /** Sets the least severe records that are logged.
+   * 
+   * @param severity
+   *     1 for errors only, 2 for warnings and errors, 3 for all records.
+   */
+  public void setThreshold(int severity) {
+    threshold = severity;
+  }
+
+  /** Checks if records of the given severity are logged.
+   * 
+   * @param severity
+   *     1 for errors, 2 for warnings and 3 for information.
+   * @return
+   *     Would a record of this severity be logged?
+   */
+  public boolean isLoggable(int severity) {
+    return severity <= threshold;
+  }
+
+  /** Logs a message that is only built if its severity is logged.
+   * 
+   * @param severity
+   *     1 for errors, 2 for warnings and 3 for information.
+   * @param message
+   *     Builds the String of information to be logged.
+   */
+  public void log(int severity, Supplier<String> message) {
+    if (isLoggable(severity)) {
+      logInfo(severity, message.get());
+    }
+  }
+
+  /** Logs a message template, with each "{}" replaced by an argument, if its severity is
+   * logged. The message is not built otherwise.
+   * 
+   * @param severity
+   *     1 for errors, 2 for warnings and 3 for information.
+   * @param template
+   *     The message, with a "{}" for each argument.
+   * @param arg0
+   *     The first argument.
+   */
+  public void log(int severity, String template, Object arg0) {
+    if (isLoggable(severity)) {
+      record(new LogEntry(severity, System.currentTimeMillis(), template,
+          new String[] {String.valueOf(arg0)}));
+    }
+  }
+
+  /** Logs a message template with two arguments, if its severity is logged.
+   * 
+   * @see #log(int, String, Object)
+   */
+  public void log(int severity, String template, Object arg0, Object arg1) {
+    if (isLoggable(severity)) {
+      record(new LogEntry(severity, System.currentTimeMillis(), template,
+          new String[] {String.valueOf(arg0), String.valueOf(arg1)}));
+    }
+  }
+
+  /** Logs a message template with three arguments, if its severity is logged.
+   * 
+   * @see #log(int, String, Object)
+   */
+  public void log(int severity, String template, Object arg0, Object arg1, Object arg2) {
+    if (isLoggable(severity)) {
+      record(new LogEntry(severity, System.currentTimeMillis(), template,
+          new String[] {String.valueOf(arg0), String.valueOf(arg1), String.valueOf(arg2)}));
+    }
+  }
+
+  /** Logs a message template with four arguments, if its severity is logged.
+   * 
+   * @see #log(int, String, Object)
+   */
+  public void log(int severity, String template, Object arg0, Object arg1, Object arg2,
+      Object arg3) {
+    if (isLoggable(severity)) {
+      record(new LogEntry(severity, System.currentTimeMillis(), template, new String[] {
+          String.valueOf(arg0), String.valueOf(arg1), String.valueOf(arg2),
+          String.valueOf(arg3)}));
+    }
+  }
+
   /** Logs the given String info in the console and the log output file.
    * 
+   * @param severity
+   *     1 for errors, 2 for warnings and 3 for information.
    * @param info
    *     A String of information to be logged.
    */
   public void logInfo(int severity, String info) {
-    lastLine = info;
-    System.out.println(info);
-    Level level; // Default value
-    switch (severity) {
-      case 1: level = Level.SEVERE;
-              break;
-      case 2: level = Level.WARNING;
-              break;
-      case 3: level = Level.INFO;
-              break;
-      default: level = Level.ALL;
-              break;
-    }
-    simLog.log(level, info);
+    if (isLoggable(severity)) {
+      record(new LogEntry(severity, System.currentTimeMillis(), info));
+    }
   }
   
   /** Logs the given exception to the console and the log output file.
@@ -138,9 +273,86 @@ public class FileManager {
    *    A String describing the exception.
    */
   public void logException(Exception exception, String info) {
-    System.out.println(info);
-    simLog.log(Level.SEVERE, info, exception);
-    exception.printStackTrace();
+    record(new LogEntry(1, System.currentTimeMillis(), info, exception));
+  }
+
+  /** Prints a record and writes it to the log, or queues it for the AsyncLogger.
+   * 
+   * @param entry
+   *    The record.
+   */
+  private void record(LogEntry entry) {
+    lastLine = entry.message;
+    if (asyncLogger != null && asyncLogger.add(entry)) {
+      return; // Written out by the AsyncLogger
+    }
+    System.out.println(entry.message);
+    if (entry.exception != null) {
+      entry.exception.printStackTrace();
+    }
+    synchronized (this) { // Warehouses may log from several threads
+      try {
+        sink.write(entry);
+        if (entry.severity == 1) { // Errors reach the disk, even if the simulation crashes
+          sink.flush();
+        }
+      } catch (IOException exception) {
+        exception.printStackTrace(); // No log to report to
+      }
+    }
+  }
+
+  /** Prints a batch of records and writes them to the log, flushing once.
+   * 
+   * <p>Called by the AsyncLogger's writer thread.
+   * 
+   * @param entries
+   *    The records.
+   * @param count
+   *    The number of records in the batch.
+   */
+  void publish(LogEntry[] entries, int count) {
+    StringBuilder console = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      console.append(entries[i].message).append(System.lineSeparator());
+    }
+    System.out.print(console);
+    synchronized (this) {
+      try {
+        for (int i = 0; i < count; i++) {
+          if (entries[i].exception != null) {
+            entries[i].exception.printStackTrace();
+          }
+          sink.write(entries[i]);
+        }
+        sink.flush();
+      } catch (IOException exception) {
+        exception.printStackTrace(); // No log to report to
+      }
+    }
+  }
+
+  /** Flushes any queued records and closes the log output file.
+   * 
+   * <p>Records logged afterwards are still printed, but no longer written to the file.
+   */
+  public void close() {
+    if (asyncLogger != null) {
+      AsyncLogger closing = asyncLogger;
+      closing.close(); // Waits for every queued record to be written
+      asyncLogger = null;
+      if (closing.getDropped() > 0) {
+        logInfo(2, "File Manager: " + closing.getDropped() + " log records were dropped"
+            + " because the log buffer was full.");
+      }
+    }
+    synchronized (this) {
+      try {
+        sink.close();
+      } catch (IOException exception) {
+        exception.printStackTrace(); // No log to report to
+      }
+    }
   }
 
   /** Returns the last string received by logInfo method. 
@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/** Wraps another StockStore, and saves its stock to disk so it survives a restart.
+ *
+ * <p>Every change in stock is appended to a StockJournal as it is made, and the stock of
+ * every shelf is checkpointed once CHECKPOINT_INTERVAL changes have been journaled. So
+ * after a crash, restore() loads the last checkpoint and replays no more than
+ * CHECKPOINT_INTERVAL changes, however long the store has run, to give the stock as the
+ * crash left it. The checkpoint taken on close() is marked clean and is not restored.
+ *
+ * <p>A StockRoom does not start from the restored stock: its Warehouse replays every event
+ * from the first, and the orders, pick requests and Trucks made by the events before the
+ * crash are not saved, so applying the restored stock as well would take every pick
+ * twice. The next run starts again from the initial stock (see
+ * StockStore.restoreInitial).
+ *
+ * <p>Changes may be made from many threads at once if the wrapped store allows it (see
+ * ConcurrentStockStore). They share a read lock with each other, and a checkpoint takes the
+ * write lock, so every change is either in the checkpoint or in the journal after it.
+ */
+public class JournaledStockStore implements StockStore {
+
+  /** The number of changes journaled before the next checkpoint, by default. */
+  public static final int CHECKPOINT_INTERVAL = 100000;
+
+  /** The store whose stock is saved. */
+  private final StockStore store;
+  /** The path of the journal and checkpoint files, without an extension. */
+  private final String basePath;
+  /** The number of changes journaled between checkpoints. */
+  private final int checkpointInterval;
+  /** The journal, or null until the first checkpoint; changes before then are not saved. */
+  private volatile StockJournal journal;
+  /** The number of changes journaled since the last checkpoint. */
+  private final AtomicInteger changes = new AtomicInteger();
+  /** Is a checkpoint running? */
+  private final AtomicBoolean checkpointing = new AtomicBoolean();
+  /** Shared by changes, and held alone by checkpoints. */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Wraps a store, checkpointing every CHECKPOINT_INTERVAL changes.
+   *
+   * @param store
+   *      The empty store to keep the shelves in.
+   * @param basePath
+   *      The path of the journal and checkpoint files, without an extension.
+   */
+  public JournaledStockStore(StockStore store, String basePath) {
+    this(store, basePath, CHECKPOINT_INTERVAL);
+  }
+
+  /** Wraps a store.
+   *
+   * @param store
+   *      The empty store to keep the shelves in.
+   * @param basePath
+   *      The path of the journal and checkpoint files, without an extension.
+   * @param checkpointInterval
+   *      The number of changes journaled between checkpoints.
+   */
+  public JournaledStockStore(StockStore store, String basePath, int checkpointInterval) {
+    if (checkpointInterval < 1) {
+      throw new IllegalArgumentException("Checkpoint interval must be positive");
+    }
+    this.store = store;
+    this.basePath = basePath;
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  @Override
+  public int addShelf(String sku, String zone, int aisle, int rack, int level, int stock) {
+    return store.addShelf(sku, zone, aisle, rack, level, stock);
+  }
+
+  @Override
+  public int size() {
+    return store.size();
+  }
+
+  @Override
+  public int ordinalOf(String sku) {
+    return store.ordinalOf(sku);
+  }
+
+  @Override
+  public String getSku(int ordinal) {
+    return store.getSku(ordinal);
+  }
+
+  @Override
+  public String getZone(int ordinal) {
+    return store.getZone(ordinal);
+  }
+
+  @Override
+  public int getAisle(int ordinal) {
+    return store.getAisle(ordinal);
+  }
+
+  @Override
+  public int getRack(int ordinal) {
+    return store.getRack(ordinal);
+  }
+
+  @Override
+  public int getLevel(int ordinal) {
+    return store.getLevel(ordinal);
+  }
+
+  @Override
+  public int getStock(int ordinal) {
+    return store.getStock(ordinal);
+  }
+
+  @Override
+  public void setStock(int ordinal, int stock) {
+    lock.readLock().lock();
+    try {
+      store.setStock(ordinal, stock);
+      journal(StockJournal.SET, ordinal, stock);
+    } finally {
+      lock.readLock().unlock();
+    }
+    checkpointIfDue();
+  }
+
+  @Override
+  public int takeOne(int ordinal) {
+    int left;
+    lock.readLock().lock();
+    try {
+      left = store.takeOne(ordinal);
+      if (left >= 0) { // Nothing changed if the shelf was empty
+        journal(StockJournal.TAKE, ordinal, 0);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    checkpointIfDue();
+    return left;
+  }
+
+  @Override
+  public int addStock(int ordinal, int amount) {
+    int total;
+    lock.readLock().lock();
+    try {
+      total = store.addStock(ordinal, amount);
+      journal(StockJournal.ADD, ordinal, amount);
+    } finally {
+      lock.readLock().unlock();
+    }
+    checkpointIfDue();
+    return total;
+  }
+
+  /** Loads the last checkpoint, if it was made for the same shelves and the store was not
+   * closed cleanly after it, and replays the journal after it.
+   */
+  @Override
+  public boolean restore() {
+    StockJournal recovered = new StockJournal(basePath, StockStore.layoutHash(store));
+    try {
+      int replayed = recovered.recover(store);
+      if (replayed < 0) {
+        return false;
+      }
+      Simulator.fm.log(3, "Stock Journal: Restored {} and replayed {} changes.",
+          basePath, String.valueOf(replayed));
+      journal = recovered; // Continues from the recovered generation
+      return true;
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not restore the stock from "
+          + basePath + ". Loading the initial stock instead.");
+      return false;
+    }
+  }
+
+  /** Restores the initial stock if the wrapped store keeps it; the journal does not. */
+  @Override
+  public boolean restoreInitial() {
+    return store.restoreInitial();
+  }
+
+  /** Saves the stock of every shelf, and starts a new journal after it. Waits for changes
+   * being made by other threads to finish, and holds back new ones until it is done.
+   */
+  @Override
+  public void checkpoint() {
+    checkpoint(false);
+  }
+
+  /** Saves the stock of every shelf; see checkpoint().
+   *
+   * @param closing
+   *      Is the store being closed? Then the checkpoint is not restored.
+   */
+  private void checkpoint(boolean closing) {
+    lock.writeLock().lock();
+    try {
+      if (journal == null) {
+        journal = new StockJournal(basePath, StockStore.layoutHash(store));
+      }
+      journal.checkpoint(store, closing);
+      changes.set(0);
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not checkpoint the stock to "
+          + basePath + ". Recent stock changes may be lost in a crash.");
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Checkpoints the stock, marked clean so the next run does not restore it, then closes
+   * the journal. */
+  @Override
+  public void close() {
+    if (journal == null) {
+      return;
+    }
+    checkpoint(true);
+    try {
+      journal.close();
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not close the stock journal "
+          + basePath + ".");
+    }
+    journal = null;
+  }
+
+  /** Appends a change to the journal, if it is open. Called under the read lock. */
+  private void journal(int tag, int ordinal, int amount) {
+    StockJournal open = journal;
+    if (open != null) {
+      open.append(tag, ordinal, amount);
+      changes.incrementAndGet();
+    }
+  }
+
+  /** Checkpoints once checkpointInterval changes have been journaled. Only one of the
+   * threads that see this happen makes the checkpoint; the others carry on.
+   */
+  private void checkpointIfDue() {
+    if (changes.get() >= checkpointInterval && checkpointing.compareAndSet(false, true)) {
+      try {
+        if (changes.get() >= checkpointInterval) { // Not already made by another thread
+          checkpoint();
+        }
+      } finally {
+        checkpointing.set(false);
+      }
+    }
+  }
+}
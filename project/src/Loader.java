@@ -24,20 +24,20 @@ public class Loader extends Worker {
   public void ready() {
     if (!busy) { // Loader is ready to handle a Loading request.
       resetScan();
-      Simulator.fm.logInfo(3, "Loader " + name + ": Ready! Checking for jobs at Marshalling...");
+      Simulator.fm.log(3, "Loader {}: Ready! Checking for jobs at Marshalling...", name);
       setPickRequest(this.myWarehouse.getMarshalling().receiveLoader());
       if (getPickRequest() != null) {
         busy = true;
         ArrayList<String> expected = (ArrayList<String>) getPickRequest().getSkuPackage();
         setExpected(expected);
-        Simulator.fm.logInfo(3, "Loader " + name + ": Request recieved! Proceed with verification.");
+        Simulator.fm.log(3, "Loader {}: Request recieved! Proceed with verification.", name);
       } else {
-        Simulator.fm.logInfo(2, "Loader " + name + ": No jobs available at Marshalling."
-            + " Ready request ignored.");
+        Simulator.fm.log(2, "Loader {}: No jobs available at Marshalling."
+            + " Ready request ignored.", name);
       }
     } else { 
-        Simulator.fm.logInfo(2, "Loader " + name + ": Loader is currently preoccupied."
-          + " Ready request ignored.");
+        Simulator.fm.log(2, "Loader {}: Loader is currently preoccupied."
+          + " Ready request ignored.", name);
     } 
   }
   
@@ -52,23 +52,24 @@ public class Loader extends Worker {
       setPickRequest(null);
       resetScan();
       busy = false;
-      // find the first non-full truck.
+      // find the first truck with room for the pallets' orders.
       for (Truck truck : myWarehouse.getMarshalling().getTruckList()) {
-        if (!truck.isFull()) {
+        if (truck.canLoad(completeRequest.getOrders().size())) {
           truck.loadPallet(completeRequest.getOrders());
-          Simulator.fm.logInfo(3, "Loader " + name + ": Pallets have been loaded onto the Truck.");
+          Simulator.fm.log(3, "Loader {}: Pallets have been loaded onto the Truck.", name);
+          return;
         }
-        return;
       }
       // no trucks available, request a new one. 
-      Truck newTruck = new Truck();
-      newTruck.loadPallet(completeRequest.getOrders()); //removes pickRequest
-      myWarehouse.getMarshalling().getTruckList().add(newTruck);
-      Simulator.fm.logInfo(3, "Loader " + name + ": New Truck initialized. Pallets have been loaded.");
+      Truck newTruck = myWarehouse.getMarshalling().newTruck();
+      if (newTruck.loadPallet(completeRequest.getOrders())) { //removes pickRequest
+        Simulator.fm.log(3, "Loader {}: New Truck initialized. Pallets have been loaded.",
+            name);
+      }
 
     } else {
-      Simulator.fm.logInfo(2, "Loader " + name + ": Please verify all SKUs before "
-          + "attempting to load Truck.");
+      Simulator.fm.log(2, "Loader {}: Please verify all SKUs before "
+          + "attempting to load Truck.", name);
     }
   }
 }
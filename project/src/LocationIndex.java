@@ -0,0 +1,158 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/** Finds the slot at a (zone, aisle, rack, level) location in constant time.
+ *
+ * <p>Each location is packed into a single long key: the zone's number in this index (up
+ * to MAX_ZONES zones), then the aisle, rack and level (each below MAX_COORDINATE). Keys
+ * are kept in an open-addressing table of primitives, so a lookup boxes nothing and builds
+ * no Strings. Locations are mapped to slot numbers, such as the index of a Product in its
+ * StockRoom.
+ */
+public class LocationIndex {
+
+  /** The number of zones an index can hold. */
+  static final int MAX_ZONES = 1 << 10;
+  /** Aisles, racks and levels must be below this. */
+  static final int MAX_COORDINATE = 1 << 18;
+  /** The number of bits each of the aisle, rack and level take up in a key. */
+  private static final int COORDINATE_BITS = 18;
+
+  /** The number of each zone seen so far. */
+  private Map<String, Integer> zones = new HashMap<String, Integer>();
+  /** The key stored in each position of the table. */
+  private long[] keys;
+  /** The slot of each position in the table, plus one; 0 marks an empty position. */
+  private int[] slots;
+  /** The number of locations in the index. */
+  private int size = 0;
+
+  /** Creates an empty index.
+   *
+   * @param expectedSize
+   *      The number of locations expected, so the table rarely needs to grow.
+   */
+  public LocationIndex(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+    keys = new long[capacity];
+    slots = new int[capacity];
+  }
+
+  /** Checks if a location can be held in an index.
+   *
+   * @param aisle
+   *      The aisle of the location.
+   * @param rack
+   *      The rack of the location.
+   * @param level
+   *      The level of the location.
+   * @return
+   *      Are the aisle, rack and level all in range?
+   */
+  public static boolean fits(int aisle, int rack, int level) {
+    return aisle >= 0 && aisle < MAX_COORDINATE && rack >= 0 && rack < MAX_COORDINATE
+        && level >= 0 && level < MAX_COORDINATE;
+  }
+
+  /** Maps a location to a slot.
+   *
+   * @param zone
+   *      The zone of the location.
+   * @param aisle
+   *      The aisle of the location.
+   * @param rack
+   *      The rack of the location.
+   * @param level
+   *      The level of the location.
+   * @param slot
+   *      The slot at the location; not negative.
+   * @return
+   *      The slot previously at the location, or -1 if there was none.
+   * @throws IllegalArgumentException
+   *      If the location does not fit (see fits()) or there are too many zones.
+   */
+  public int put(String zone, int aisle, int rack, int level, int slot) {
+    if (!fits(aisle, rack, level)) {
+      throw new IllegalArgumentException("Location out of range: " + zone + " " + aisle + " "
+          + rack + " " + level);
+    }
+    Integer zoneId = zones.get(zone);
+    if (zoneId == null) {
+      if (zones.size() == MAX_ZONES) {
+        throw new IllegalArgumentException("Too many zones: " + zone);
+      }
+      zoneId = zones.size();
+      zones.put(zone, zoneId);
+    }
+    if ((size + 1) * 2 > keys.length) {
+      grow();
+    }
+    long key = key(zoneId, aisle, rack, level);
+    int position = find(key);
+    int previous = slots[position] - 1;
+    if (previous < 0) {
+      keys[position] = key;
+      size++;
+    }
+    slots[position] = slot + 1;
+    return previous;
+  }
+
+  /** Finds the slot at a location.
+   *
+   * @param zone
+   *      The zone of the location.
+   * @param aisle
+   *      The aisle of the location.
+   * @param rack
+   *      The rack of the location.
+   * @param level
+   *      The level of the location.
+   * @return
+   *      The slot at the location, or -1 if there is none.
+   */
+  public int get(String zone, int aisle, int rack, int level) {
+    Integer zoneId = zones.get(zone);
+    if (zoneId == null || !fits(aisle, rack, level)) {
+      return -1;
+    }
+    return slots[find(key(zoneId, aisle, rack, level))] - 1;
+  }
+
+  /** Returns the number of locations in the index. */
+  public int size() {
+    return size;
+  }
+
+  /** Packs a location into a key. */
+  private static long key(int zoneId, int aisle, int rack, int level) {
+    return ((long) zoneId << (3 * COORDINATE_BITS)) | ((long) aisle << (2 * COORDINATE_BITS))
+        | ((long) rack << COORDINATE_BITS) | level;
+  }
+
+  /** Returns the position of a key in the table, or the empty position where it belongs. */
+  private int find(long key) {
+    int mask = keys.length - 1;
+    long hash = key * 0x9E3779B97F4A7C15L;
+    int position = (int) (hash ^ (hash >>> 32)) & mask;
+    while (slots[position] != 0 && keys[position] != key) {
+      position = (position + 1) & mask; // Linear probing
+    }
+    return position;
+  }
+
+  /** Doubles the size of the table. */
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldSlots = slots;
+    keys = new long[oldKeys.length * 2];
+    slots = new int[oldSlots.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldSlots[i] != 0) {
+        int position = find(oldKeys[i]);
+        keys[position] = oldKeys[i];
+        slots[position] = oldSlots[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/** Reads back a binary log written by BinaryLogSink.
+ *
+ * <p>Usage: java LogDecoder (infolog.bin) [(infolog.txt)]: prints the log in the same
+ * single-line text format as TextLogSink, or writes it to the given text file. Each rotated
+ * file (infolog.bin.1, ...) is decoded the same way.
+ *
+ * <p>The decoder does not log through a FileManager, so decoding never touches the
+ * Simulator's own log files.
+ */
+public class LogDecoder implements Closeable {
+
+  /** The input stream of the log file. */
+  private DataInputStream in;
+  /** The templates defined so far, indexed by dictionary id. */
+  private ArrayList<String> dictionary = new ArrayList<String>();
+  /** The time of the previous record. */
+  private long lastMillis;
+
+  /** Runs the decoder.
+   *
+   * @param args
+   *      The arguments described above.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1 && args.length != 2) {
+      System.err.println("Usage: LogDecoder <infolog.bin> [<infolog.txt>]");
+      return;
+    }
+    LogSink sink = args.length == 2 ? new TextLogSink(args[1], 0, 0) : new TextLogSink(System.out);
+    try {
+      decode(args[0], sink);
+    } catch (EOFException exception) { // The log was cut off, e.g. by a crash
+      System.err.println("LogDecoder: " + args[0] + " ends part way through a record.");
+    } finally {
+      sink.close();
+    }
+  }
+
+  /** Decodes every record in a binary log.
+   *
+   * @param binaryPath
+   *      The path of the binary log.
+   * @param sink
+   *      Where the decoded records are written.
+   * @return
+   *      The number of records decoded.
+   * @throws IOException
+   *      If the log cannot be read, or is not a binary log.
+   */
+  public static int decode(String binaryPath, LogSink sink) throws IOException {
+    int count = 0;
+    try (LogDecoder decoder = new LogDecoder(binaryPath)) {
+      LogEntry entry;
+      while ((entry = decoder.next()) != null) {
+        sink.write(entry);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Opens a binary log for reading.
+   *
+   * @param filePath
+   *      The path of the log file.
+   * @throws IOException
+   *      If the file does not exist or is not a binary log.
+   */
+  public LogDecoder(String filePath) throws IOException {
+    in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath), 1 << 16));
+    if (in.readInt() != BinaryLogSink.MAGIC || in.readByte() != BinaryLogSink.VERSION) {
+      in.close();
+      throw new IOException(filePath + " is not a binary log.");
+    }
+    lastMillis = in.readLong();
+  }
+
+  /** Reads the next record.
+   *
+   * @return
+   *      The record, or null at the end of the log.
+   * @throws IOException
+   *      If the log is malformed; an EOFException if it ends part way through a record.
+   */
+  public LogEntry next() throws IOException {
+    int tag = in.read();
+    while (tag == BinaryLogSink.DEFINE) {
+      dictionary.add(in.readUTF());
+      tag = in.read();
+    }
+    if (tag == -1) { // End of the log
+      return null;
+    }
+    int severity = tag & BinaryLogSink.SEVERITY_MASK;
+    lastMillis += readVarlong();
+    String template;
+    if ((tag & BinaryLogSink.INLINE_FLAG) != 0) {
+      template = in.readUTF();
+    } else {
+      long id = readVarlong();
+      if (id >= dictionary.size()) {
+        throw new IOException("Undefined template id " + id);
+      }
+      template = dictionary.get((int) id);
+    }
+    String[] args = new String[(int) readVarlong()];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = in.readUTF();
+    }
+    String trace = (tag & BinaryLogSink.TRACE_FLAG) != 0 ? in.readUTF() : null;
+    return new LogEntry(severity, lastMillis, template, args, trace);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /** Reads a non-negative integer written in 7-bit groups, low group first. */
+  private long readVarlong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int next = in.read();
+      if (next == -1) {
+        throw new EOFException();
+      }
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+}
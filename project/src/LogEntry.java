@@ -0,0 +1,139 @@
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/** A single record in the Simulator's log, as handed by a FileManager to its LogSink.
+ *
+ * <p>The message template and its arguments are kept alongside the finished message, so
+ * a sink may write either one: BinaryLogSink only writes each distinct template once.
+ */
+public class LogEntry {
+
+  /** 1 for errors, 2 for warnings and 3 for information. */
+  final int severity;
+  /** When the record was logged, in milliseconds since the epoch. */
+  final long millis;
+  /** The message, with a "{}" for each argument. */
+  final String template;
+  /** The arguments of the template, already converted to Strings. */
+  final String[] args;
+  /** The message, with every "{}" replaced by its argument. */
+  final String message;
+  /** The exception logged with the message, or null. */
+  final Exception exception;
+  /** The stack trace of the exception, or null until it is needed. */
+  private String stackTrace;
+
+  /** Creates a record with a finished message.
+   *
+   * @param severity
+   *      1 for errors, 2 for warnings and 3 for information.
+   * @param millis
+   *      When the record was logged, in milliseconds since the epoch.
+   * @param message
+   *      The message, which is also used as its own template.
+   */
+  public LogEntry(int severity, long millis, String message) {
+    this(severity, millis, message, null, message, null);
+  }
+
+  /** Creates a record with a finished message and an exception.
+   *
+   * @param severity
+   *      1 for errors, 2 for warnings and 3 for information.
+   * @param millis
+   *      When the record was logged, in milliseconds since the epoch.
+   * @param message
+   *      The message, which is also used as its own template.
+   * @param exception
+   *      The exception logged with the message, or null.
+   */
+  public LogEntry(int severity, long millis, String message, Exception exception) {
+    this(severity, millis, message, null, message, exception);
+  }
+
+  /** Creates a record from a message template.
+   *
+   * @param severity
+   *      1 for errors, 2 for warnings and 3 for information.
+   * @param millis
+   *      When the record was logged, in milliseconds since the epoch.
+   * @param template
+   *      The message, with a "{}" for each argument.
+   * @param args
+   *      The arguments of the template, or null if there are none.
+   */
+  public LogEntry(int severity, long millis, String template, String[] args) {
+    this(severity, millis, template, args, format(template, args), null);
+  }
+
+  /** Creates a record read back from a binary log, whose exception only survives as a
+   * stack trace.
+   *
+   * @param severity
+   *      1 for errors, 2 for warnings and 3 for information.
+   * @param millis
+   *      When the record was logged, in milliseconds since the epoch.
+   * @param template
+   *      The message, with a "{}" for each argument.
+   * @param args
+   *      The arguments of the template, or null if there are none.
+   * @param stackTrace
+   *      The stack trace of the exception logged with the message, or null.
+   */
+  LogEntry(int severity, long millis, String template, String[] args, String stackTrace) {
+    this(severity, millis, template, args, format(template, args), null);
+    this.stackTrace = stackTrace;
+  }
+
+  private LogEntry(int severity, long millis, String template, String[] args, String message,
+      Exception exception) {
+    this.severity = severity;
+    this.millis = millis;
+    this.template = template;
+    this.args = args;
+    this.message = message;
+    this.exception = exception;
+  }
+
+  /** Returns the message, with every "{}" replaced by its argument. */
+  public String getMessage() {
+    return message;
+  }
+
+  /** Returns the stack trace of the exception logged with the message, or null if there is
+   * none. */
+  public String getStackTrace() {
+    if (stackTrace == null && exception != null) {
+      StringWriter trace = new StringWriter();
+      exception.printStackTrace(new PrintWriter(trace));
+      stackTrace = trace.toString();
+    }
+    return stackTrace;
+  }
+
+  /** Builds a message from a template, replacing each "{}" in turn with an argument.
+   *
+   * @param template
+   *    The message, with a "{}" for each argument.
+   * @param args
+   *    The arguments, or null; any "{}" beyond the last argument are left as they are.
+   * @return
+   *    The message.
+   */
+  static String format(String template, String[] args) {
+    if (args == null || args.length == 0) {
+      return template;
+    }
+    StringBuilder message = new StringBuilder(template.length() + 32);
+    int start = 0;
+    for (String arg : args) {
+      int index = template.indexOf("{}", start);
+      if (index < 0) {
+        break;
+      }
+      message.append(template, start, index).append(arg);
+      start = index + 2;
+    }
+    return message.append(template, start, template.length()).toString();
+  }
+}
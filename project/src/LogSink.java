@@ -0,0 +1,26 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Where a FileManager writes its log records: see XmlLogSink, TextLogSink and
+ * BinaryLogSink.
+ *
+ * <p>A sink is only ever used by one thread at a time; the FileManager takes care of that.
+ */
+public interface LogSink extends Closeable {
+
+  /** Writes a record to the log. It may stay buffered until the next flush().
+   *
+   * @param entry
+   *      The record.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  void write(LogEntry entry) throws IOException;
+
+  /** Writes out any buffered records.
+   *
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  void flush() throws IOException;
+}
@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** An ArrayStockStore whose stock column is a memory-mapped file, so every change in stock
+ * is saved as it is made, with no export or journal to write.
+ *
+ * <p>File format: the MAGIC number, the VERSION, the number of shelves, CLOSED if the store
+ * was closed cleanly (else 0), the layout hash (see StockStore.layoutHash), then each
+ * shelf's stock as an int, by ordinal, then each shelf's initial stock the same way. All
+ * little-endian.
+ *
+ * <p>restoreInitial() maps the file. If it was written for the same shelves, the stock is
+ * set back to the initial stock saved beside it, so starting up is a single map and copy
+ * however large the layout, and the initial stock file is not needed; otherwise the file
+ * is made again, and the initial stock loaded into it is saved by the first checkpoint().
+ * The magic number is only written by checkpoint(), so a file left half made by a crash is
+ * made again on the next start.
+ *
+ * <p>restore() maps the file the same way, but keeps the stock a run cut short left in it.
+ * A StockRoom does not use it, as its Warehouse replays every event from the first.
+ *
+ * <p>Shelves must all be added before the file is mapped; checkpoint() maps it if neither
+ * restore call was made. The operating system writes changed pages back to the file in its
+ * own time, and checkpoint() and close() force them to disk.
+ */
+public class MappedStockStore extends ArrayStockStore {
+
+  /** The first four bytes of the file, "WHSM". */
+  static final int MAGIC = 0x5748534D;
+  /** The version of the file format. */
+  static final int VERSION = 3;
+  /** Marks a file closed cleanly, whose stock is not kept by the next run. */
+  static final int CLOSED = 1;
+  /** The length of the header before the stock column, in bytes. */
+  static final int HEADER = 24;
+
+  /** The path of the mapped file. */
+  private final String path;
+  /** The mapped file, or null until it is mapped. */
+  private MappedByteBuffer mapped;
+
+  /** Creates an empty store.
+   *
+   * @param capacity
+   *      The number of shelves expected, so the columns rarely need to grow.
+   * @param path
+   *      The path of the file to keep the stock in.
+   */
+  public MappedStockStore(int capacity, String path) {
+    super(capacity, false);
+    this.path = path;
+  }
+
+  /** Maps the stock file, keeping the stock an earlier run cut short left in it, or making
+   * the file again if it was not written for these shelves, or was closed cleanly.
+   *
+   * @return
+   *      True if the stock in the file was kept.
+   */
+  @Override
+  public boolean restore() {
+    int closed = map();
+    if (closed == -2) {
+      return false;
+    }
+    if (closed != 0) {
+      remake();
+    }
+    keepStock();
+    if (closed == 0) {
+      Simulator.fm.log(3, "Stock Store: Mapped the stock in {}.", path);
+    }
+    return closed == 0;
+  }
+
+  /** Maps the stock file, and sets the stock back to the initial stock saved in it, or makes
+   * the file again if it was not written for these shelves.
+   *
+   * @return
+   *      True if the initial stock was restored from the file.
+   */
+  @Override
+  public boolean restoreInitial() {
+    int closed = map();
+    if (closed < 0) {
+      if (closed == -1) {
+        remake();
+        keepStock();
+      }
+      return false;
+    }
+    int offset = HEADER + 4 * size();
+    for (int ordinal = 0; ordinal < size(); ordinal++) {
+      mapped.putInt(HEADER + 4 * ordinal, mapped.getInt(offset + 4 * ordinal));
+    }
+    mapped.putInt(12, 0); // Running again
+    keepStock();
+    Simulator.fm.log(3, "Stock Store: Mapped the initial stock in {}.", path);
+    return true;
+  }
+
+  /** Maps the file if it is not mapped yet, saves the initial stock beside the stock the
+   * first time it is called on a new file, marks the file valid, and forces every change in
+   * stock to disk.
+   */
+  @Override
+  public void checkpoint() {
+    if (mapped == null && map() != -2) {
+      remake(); // Never restored: the stock in the store is the initial stock
+      keepStock();
+    }
+    if (mapped != null) {
+      if (mapped.getInt(0) != MAGIC) { // The stock was just loaded
+        int offset = HEADER + 4 * size();
+        for (int ordinal = 0; ordinal < size(); ordinal++) {
+          mapped.putInt(offset + 4 * ordinal, mapped.getInt(HEADER + 4 * ordinal));
+        }
+        mapped.putInt(0, MAGIC);
+      }
+      mapped.force();
+    }
+  }
+
+  /** Marks the file closed cleanly, and forces every change in stock to disk. The file
+   * stays mapped until the store is garbage collected.
+   */
+  @Override
+  public void close() {
+    if (mapped != null) {
+      mapped.putInt(12, CLOSED);
+    }
+    checkpoint();
+  }
+
+  /** Maps the stock file, growing or shrinking it to fit these shelves.
+   *
+   * @return
+   *      The CLOSED flag of a file written for these shelves, -1 if it was not written for
+   *      them, or -2 if it could not be mapped.
+   */
+  private int map() {
+    long layoutHash = StockStore.layoutHash(this);
+    long length = HEADER + 8L * size();
+    try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+      int closed = file.length() == length
+          && Integer.reverseBytes(file.readInt()) == MAGIC
+          && Integer.reverseBytes(file.readInt()) == VERSION
+          && Integer.reverseBytes(file.readInt()) == size()
+          ? Integer.reverseBytes(file.readInt()) : -1;
+      if (closed >= 0 && Long.reverseBytes(file.readLong()) != layoutHash) {
+        closed = -1;
+      }
+      file.setLength(length);
+      // The mapping stays valid after the file is closed.
+      mapped = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+      mapped.order(ByteOrder.LITTLE_ENDIAN);
+      return closed;
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not map the stock file " + path
+          + ". Stock will not be saved.");
+      return -2;
+    }
+  }
+
+  /** Writes a new header, not valid until checkpoint(), and the store's stock into the
+   * mapped file. Called before keepStock().
+   */
+  private void remake() {
+    mapped.putInt(0, 0);
+    mapped.putInt(4, VERSION);
+    mapped.putInt(8, size());
+    mapped.putInt(12, 0);
+    mapped.putLong(16, StockStore.layoutHash(this));
+    for (int ordinal = 0; ordinal < size(); ordinal++) {
+      mapped.putInt(HEADER + 4 * ordinal, getStock(ordinal));
+    }
+  }
+
+  /** Replaces the store's stock column with the one in the mapped file. */
+  private void keepStock() {
+    mapped.position(HEADER);
+    replaceStock(mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+    mapped.position(0);
+  }
+}
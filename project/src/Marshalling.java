@@ -1,6 +1,6 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Queue;
 
 /** The Marshaling station in the warehouse simulation.
@@ -8,11 +8,19 @@ import java.util.Queue;
  * <p>Receives orders from OrderHandler, dispatches 'ready' Pickers, and manages fascia received 
  * from Pickers to be inserted into Trucks.
  * 
+ * <p>Pick requests may hold any number of orders, up to OrderHandler's batch size; those
+ * flushed before their batch filled are sequenced and loaded the same way.
+ * 
+ * <p>Loads are sequenced in the order they are added. When orders are planned in waves,
+ * a load's orders may be picked by several of the wave's pick requests, and one pick
+ * request may pick for several loads; Marshalling holds what Pickers drop off until every
+ * pick request a load is made from is in, so Trucks are still loaded in order.
+ * 
  * @author Jack (Editor: Tyson)
  */
 public class Marshalling {
   /** Stores the next expected pickRequest to be sequenced. */
-  private Deque<PickRequest> sequencerQueue = new LinkedList<PickRequest>();
+  private Deque<PickRequest> sequencerQueue = new ArrayDeque<PickRequest>();
   
   /** Stores the next expected pickRequest to be loaded. */
   private Queue<PickRequest> loaderQueue;
@@ -22,11 +30,24 @@ public class Marshalling {
   
   /** A list of trucks in the marshalling area. */
   private ArrayList<Truck> truckList;  
+
+  /** The number of the Warehouse this Marshalling station is in. */
+  private int warehouseId;
  
-  /** Constructs a new Marshalling class. */
+  /** Constructs a new Marshalling class for the first Warehouse. */
   public Marshalling() {
-    sequencerQueue = new LinkedList<PickRequest>();
-    loaderQueue = new LinkedList<PickRequest>();
+    this(0);
+  }
+
+  /** Constructs a new Marshalling class.
+   * 
+   * @param warehouseId
+   *      The number of the Warehouse this Marshalling station is in.
+   */
+  public Marshalling(int warehouseId) {
+    this.warehouseId = warehouseId;
+    sequencerQueue = new ArrayDeque<PickRequest>();
+    loaderQueue = new ArrayDeque<PickRequest>();
     receivedList = new ArrayList<>();
     truckList = new ArrayList<>();
   }
@@ -44,14 +65,16 @@ public class Marshalling {
     }
   }
   
-  /** Adds a failed pickRequest back to the front of the sequencerQueue. 
-   * If the pickRequest is already present, do nothing.
+  /** Adds a failed pickRequest back to the front of the sequencerQueue, to be sequenced
+   * once it has been picked again by itself. If the pickRequest is already present, do
+   * nothing.
    * 
    * @param pickRequest 
    *      The next pickRequest to be handled.
    */
   public void redoPickRequest(PickRequest pickRequest) {
     if (!sequencerQueue.contains(pickRequest)) {
+      pickRequest.setSources(new int[] {pickRequest.getPickRequestId()});
       sequencerQueue.addFirst(pickRequest);
     }
   }
@@ -82,7 +105,9 @@ public class Marshalling {
    */
   public void receivePicker(int pickId) {
     receivedList.add(pickId);
-    Simulator.fm.logInfo(3, "Marshalling: received pick request with id: " + pickId);
+    if (Simulator.fm.isLoggable(3)) { // Avoids boxing pickId when not logged
+      Simulator.fm.log(3, "Marshalling: received pick request with id: {}", pickId);
+    }
   }
 
   /** Sequencer receives the next expected PickRequestID to be sequenced or -1 if it is unavailable.
@@ -93,40 +118,89 @@ public class Marshalling {
       Simulator.fm.logInfo(2, "Marshalling: no loads ready for sequencing.");
       return null;
     }
-    // find the next load to be sequenced among all the loads in marshalling
-    int nextId = -1;
-    if (!sequencerQueue.isEmpty()) {
-      nextId = sequencerQueue.peek().getPickRequestId();
-    }
-    for (Integer id: receivedList) {
-      if (id.equals(nextId)) {
-        Simulator.fm.logInfo(3, "Marshalling: Sequencer has registered to sequence pickID:"
-            + " " + nextId);
-        Simulator.fm.logInfo(3, "Marshalling: Sequencer expected to confirm: "
-            + sequencerQueue.peek().getSkuPackage());
-        receivedList.remove(id); // found next load to be sequenced, remove
-        PickRequest outRequest = sequencerQueue.poll().clone();
-        return outRequest;
-      }      
+    // the next load is sequenced once all the pick requests it is made from are in
+    PickRequest next = sequencerQueue.peek();
+    if (next != null && isPicked(next)) {
+      if (Simulator.fm.isLoggable(3)) {
+        Simulator.fm.log(3, "Marshalling: Sequencer has registered to sequence pickID: {}",
+            next.getPickRequestId());
+      }
+      Simulator.fm.log(3, "Marshalling: Sequencer expected to confirm: {}",
+          next.getSkuPackage());
+      sequencerQueue.poll();
+      for (int source : next.getSources()) { // Kept while a later load still needs it
+        if (!isNeeded(source)) {
+          receivedList.remove(Integer.valueOf(source));
+        }
+      }
+      return next.clone();
     }
     Simulator.fm.logInfo(2, "Marshalling: next load not ready for sequencing.");
     return null;
   }
+
+  /** Checks if every pick request a load is made from has been dropped off by its Picker.
+   * 
+   * @param load
+   *      The load.
+   * @return
+   *      Can the load be sequenced?
+   */
+  private boolean isPicked(PickRequest load) {
+    for (int source : load.getSources()) {
+      if (!receivedList.contains(source)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Checks if a pick request dropped off by its Picker is still needed by a load waiting
+   * to be sequenced.
+   * 
+   * @param pickId
+   *      The ID of the pick request.
+   * @return
+   *      Is a load waiting to be sequenced made from it?
+   */
+  private boolean isNeeded(int pickId) {
+    for (PickRequest load : sequencerQueue) {
+      for (int source : load.getSources()) {
+        if (source == pickId) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
   
   /** Loader receives the expected SKUs on the next two pallets to be loaded onto the truck.
    *  @return next pickRequest
   */
   public PickRequest receiveLoader() {
     if (loaderQueue == null || loaderQueue.isEmpty()) {
-      System.out.println("Marshalling: Docking Area: no loads ready for loading.");
+      Simulator.fm.logInfo(3, "Marshalling: Docking Area: no loads ready for loading.");
       return null;
     }
-    System.out.println("Marshalling: Docking Area: delivery loads undergoing scans: " 
-        + loaderQueue.peek().getSkuPackage());
+    Simulator.fm.log(3, "Marshalling: Docking Area: delivery loads undergoing scans: {}",
+        loaderQueue.peek().getSkuPackage());
     PickRequest outRequest = loaderQueue.poll().clone();
     return outRequest;
   }
 
+  /** Brings a new, empty Truck into this Marshalling station.
+   * 
+   * <p>Trucks are numbered from 0 in the order they arrive at this station.
+   * 
+   * @return
+   *      The new Truck, which has been added to the truck list.
+   */
+  public Truck newTruck() {
+    Truck truck = new Truck(truckList.size(), warehouseId);
+    truckList.add(truck);
+    return truck;
+  }
+
   /** Returns a list of Trucks loaded at this Marshalling station.
    * @return
    *      A list of all Trucks loaded at this Marshalling station.
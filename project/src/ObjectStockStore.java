@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Keeps each shelf of a StockRoom in its own object, found by SKU through a HashMap.
+ *
+ * <p>This is the StockRoom's original layout, and its default StockStore.
+ */
+public class ObjectStockStore implements StockStore {
+
+  /** Every shelf, indexed by ordinal. */
+  private ArrayList<Shelf> shelves = new ArrayList<Shelf>();
+  /** The ordinal of each SKU's shelf. */
+  private Map<String, Integer> ordinals = new HashMap<String, Integer>();
+
+  @Override
+  public int addShelf(String sku, String zone, int aisle, int rack, int level, int stock) {
+    shelves.add(new Shelf(sku, zone, aisle, rack, level, stock));
+    ordinals.put(sku, shelves.size() - 1);
+    return shelves.size() - 1;
+  }
+
+  @Override
+  public int size() {
+    return shelves.size();
+  }
+
+  @Override
+  public int ordinalOf(String sku) {
+    Integer ordinal = ordinals.get(sku);
+    return ordinal == null ? -1 : ordinal;
+  }
+
+  @Override
+  public String getSku(int ordinal) {
+    return shelves.get(ordinal).sku;
+  }
+
+  @Override
+  public String getZone(int ordinal) {
+    return shelves.get(ordinal).zone;
+  }
+
+  @Override
+  public int getAisle(int ordinal) {
+    return shelves.get(ordinal).aisle;
+  }
+
+  @Override
+  public int getRack(int ordinal) {
+    return shelves.get(ordinal).rack;
+  }
+
+  @Override
+  public int getLevel(int ordinal) {
+    return shelves.get(ordinal).level;
+  }
+
+  @Override
+  public int getStock(int ordinal) {
+    return shelves.get(ordinal).stock;
+  }
+
+  @Override
+  public void setStock(int ordinal, int stock) {
+    shelves.get(ordinal).stock = stock;
+  }
+
+  @Override
+  public int takeOne(int ordinal) {
+    Shelf shelf = shelves.get(ordinal);
+    if (shelf.stock <= 0) {
+      return -1;
+    }
+    return --shelf.stock;
+  }
+
+  @Override
+  public int addStock(int ordinal, int amount) {
+    Shelf shelf = shelves.get(ordinal);
+    shelf.stock += amount;
+    return shelf.stock;
+  }
+
+  /** A shelf in the StockRoom: its SKU, location and amount of product. */
+  private static class Shelf {
+    private String sku;
+    private String zone;
+    private int aisle;
+    private int rack;
+    private int level;
+    private int stock;
+
+    private Shelf(String sku, String zone, int aisle, int rack, int level, int stock) {
+      this.sku = sku;
+      this.zone = zone;
+      this.aisle = aisle;
+      this.rack = rack;
+      this.level = level;
+      this.stock = stock;
+    }
+  }
+}
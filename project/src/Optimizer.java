@@ -1,8 +1,11 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**A mock algorithm for traversal order of the warehouse.
  * This algorithm is used in place of the generic software (WarehousePicking Class).
+ * 
+ *<p>It is the default RoutingStrategy, "sort".
  */
 public class Optimizer {
   
@@ -11,42 +14,37 @@ public class Optimizer {
    *<p>Each location is a String with the format "Zone Aisle Rack Level SKU".
    * 
    *<p>This algorithm sorts two ways:
-   *If any SKU contain letter(s), the algorithm will sort by character in it's 
-   *natural order. (A10 < A9)
-   *If SKUs contain numbers only, the algorithm will sort by the value of the entire
-   *string from smallest to largest (9 < 10)
+   *If any SKU is a single digit, the algorithm will sort by the value of the entire
+   *string from smallest to largest (9 < 10), with any SKUs that are not numbers last.
+   *Otherwise it will sort by character in it's natural order. (A10 < A9)
+   * 
+   *<p>The order and location of every SKU are worked out once, when the StockRoom loads
+   *its traversal table (see SkuRanks), so a call only sorts the ranks of the SKUs as ints.
+   *The List 'skus' is not changed.
    * 
    * @param skus
-   * A List of String SKUs.
+   * A List of String SKUs, each in the StockRoom.
    * @param stockRoom
    * The StockRoom containing the HashMap of SKUs and Locations.
    * @return the List of locations.
    * 
    */
   public static List<String> optimize(List<String> skus, StockRoom stockRoom) {
-    boolean containsNumbersOnly = false;
-    List<String> sortedSkus = new ArrayList<String>();
-    for (String sku : skus) { //check if SKUs contain only numbers
-      if (sku.matches("[0-9]")) {
-        containsNumbersOnly = true;
-      }
+    SkuRanks ranks = stockRoom.getSkuRanks();
+    StockStore store = stockRoom.getStore();
+    int[] sorted = new int[skus.size()];
+    boolean byValue = false;
+    for (int i = 0; i < sorted.length; i++) { //find each SKU's shelf
+      sorted[i] = store.ordinalOf(skus.get(i));
+      byValue |= ranks.isSingleDigit(sorted[i]);
     }
-    if (containsNumbersOnly) { //if contains numbers only, convert to Ints and sort
-      List<Integer> tempIntSkus = new ArrayList<Integer>();
-      for (String sku : skus) { //change skus to Ints
-        tempIntSkus.add(Integer.parseInt(sku));
-      }
-      tempIntSkus.sort(null);//sort skus 
-      for (int sku : tempIntSkus) { //change skus back to strings
-        sortedSkus.add(Integer.toString(sku));
-      }
-    } else { // if SKUs contain letters, sort by character 
-      skus.sort(null);
-      sortedSkus = skus;
+    for (int i = 0; i < sorted.length; i++) { //sort skus by their ranks
+      sorted[i] = ranks.rankOf(sorted[i], byValue);
     }
-    List<String> traversalLocations = new ArrayList<String>();
-    for (String sku : sortedSkus) { //translate skus to locations
-      traversalLocations.add(stockRoom.getLocation(sku));
+    Arrays.sort(sorted);
+    List<String> traversalLocations = new ArrayList<String>(sorted.length);
+    for (int rank : sorted) { //translate ranks back to locations
+      traversalLocations.add(ranks.getLocation(ranks.ordinalAt(rank, byValue)));
     }
     Simulator.fm.logInfo(3, "Optimization routine successfully processed");
     return traversalLocations;
@@ -8,6 +8,9 @@ public class Order {
 
   /** The colour attribute of this Order.*/
   private String colour;
+
+  /** The number of events the OrderHandler had seen when this Order was received. */
+  private long received;
   
   /** Initialize the Order
    * 
@@ -30,6 +33,18 @@ public class Order {
   public String getColour() {
     return colour;
   }
-  
-  
+
+  /** Return the number of events the OrderHandler had seen when this Order was received.*/
+  public long getReceived() {
+    return received;
+  }
+
+  /** Set the number of events the OrderHandler had seen when this Order was received.
+   * 
+   * @param received
+   *  the OrderHandler's event count
+   */
+  void setReceived(long received) {
+    this.received = received;
+  }
 }
@@ -1,33 +1,81 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 
 /** Manages order events received from Warehouse (aka a FAX). They are translated into SKUs
- * then stored in orderQueue. Once orderQueue reaches processCapacity, it is trasversed
+ * then stored in orderQueue. Once orderQueue reaches the batch size, it is trasversed
  * and packaged in a PickRequest and stored in processQueue waiting for pickup from a Picker.
  * 
+ * <p>The batch size is processCapacity orders (4 by default). In adaptive mode,
+ * processCapacity is the largest batch, and each batch is sized from how many Pickers are
+ * waiting for work and how many pick requests are waiting for Pickers: small batches when
+ * Pickers are idle, to cut the time an order waits, and full batches when pick requests
+ * back up, so each trip picks more.
+ * 
+ * <p>An order may also be given a most age, in events: when the oldest order waiting
+ * has seen that many events go by, the orders waiting are made into a partial batch, so
+ * orders are not left waiting for a batch to fill during a lull or at the end of a shift.
+ * The orders still waiting when the events end are made into partial batches too, see
+ * flush(). Partial batches are picked, sequenced and loaded like full ones.
+ * 
+ * <p>Orders may instead be planned in waves, see setWaveSize: a wave's pick requests are
+ * made of orders shelved close together, to cut the Pickers' walking, while its loads keep
+ * the orders in the order received for the Trucks.
+ * 
  * <p>Orders are received in the format of color & model, which is then translated by the 
  * OrderHandler into a paired list of fascia for each minivan, using 'translation.csv'.
  * 
  * <p>When a picker is ready and pick request(s) are available, the first pick request is sent to 
  * the picker and marshalling
+ * 
+ * <p>The stock of each pick request is reserved in the StockRoom when it is made. A pick
+ * request that cannot be fully reserved is held back, and later ones sent ahead of it,
+ * until its shelves are replenished; so Pickers are never sent to an empty shelf.
  */
 public class OrderHandler {
 
   /** A Queue containing all orders received via FAX. */
-  private Queue<Order> orderQueue = new LinkedList<Order>();
+  private Queue<Order> orderQueue = new ArrayDeque<Order>();
   /** A Queue containing all translated orders received via FAX. */
-  private Queue<String> skuQueue = new LinkedList<String>();
-  /** Stores the translation table for SKUs match model and colour of order. */
-  private ArrayList<String[]> translationTable = new ArrayList<String[]>();
+  private Queue<String> skuQueue = new ArrayDeque<String>();
+  /** The front and back SKUs of each model, by colour then model, from the translation
+   * table. Looked up in constant time, however many rows the table has. */
+  private Map<String, Map<String, String[]>> translationIndex =
+      new HashMap<String, Map<String, String[]>>();
+  /** Returned by translateOrder for an order not in the translation table. */
+  private static final String[] NOT_TRANSLATED = new String[2];
   /** A Queue containing all Pick Requests that are ready to go. */
-  private Deque<PickRequest> processQueue = new LinkedList<PickRequest>();
+  private Deque<PickRequest> processQueue = new ArrayDeque<PickRequest>();
+  /** The number of orders in a pick request by default. */
+  public static final int DEFAULT_BATCH_SIZE = 4;
   /** When orderQueue.size() == processCapacity, process
-   *  a picking request. */
-  private int processCapacity = 4;
+   *  a picking request. The largest batch in adaptive mode. */
+  private int processCapacity = DEFAULT_BATCH_SIZE;
+  /** Are batches sized from picker availability and queue depth? */
+  private boolean adaptive = false;
+  /** The Pickers who asked for a pick request and were not given one. */
+  private Set<Picker> idlePickers = new HashSet<Picker>();
+  /** The most events an order waits for its batch to fill, or 0 to always wait. */
+  private int maxOrderAge = 0;
+  /** The number of events seen by this OrderHandler; see tick(). */
+  private long eventCount = 0;
+  /** The number of orders planned together in a wave, or 0 to batch orders as received. */
+  private int waveSize = 0;
+  /** Groups the orders of a wave into pick requests by where their fascia are shelved. */
+  private WavePlanner wavePlanner;
+  /** Orders the SKUs of each pick request into its route. */
+  private RoutingStrategy routing = Optimizer::optimize;
+  /** The walking distances between the StockRoom's shelves, to measure routes by; see
+   * layout(). */
+  private WarehouseLayout layout;
   /** The total number of PickRequests created.
    * Also help create PickRequest IDs
    */
@@ -44,10 +92,17 @@ public class OrderHandler {
    *      A reference to the warehouse this OrderHandler is stored in. 
    */
   public OrderHandler(ArrayList<String> translationArray, Warehouse warehouse) {
-    // Formats the translation array read by simulator and store in translationTable
+    // Indexes the translation array read by simulator by colour and model
     for (int i = 0; i < translationArray.size(); i++) {
       String[] values = translationArray.get(i).split(",");
-      translationTable.add(values);
+      if (values.length < 4) {
+        Simulator.fm.log(2, "Order Handler: Translation row ignored, needs colour, model,"
+            + " front and back: {}", translationArray.get(i));
+        continue;
+      }
+      // A later row for the same colour and model replaces an earlier one.
+      translationIndex.computeIfAbsent(values[0], colour -> new HashMap<String, String[]>())
+          .put(values[1], new String[] {values[2], values[3]});
     } 
     this.warehouse = warehouse;
   }
@@ -60,22 +115,23 @@ public class OrderHandler {
   public void addOrder(Order order) {
     String[] currentOrder = translateOrder(order); 
     if (currentOrder[0] == null) { 
-      // Check if order were in translationTable
-      Simulator.fm.logInfo(2, "Invalid Order: Order not in Translation Table - "
-        + order.getColour() + " " + order.getModel());
+      // Check if order were in translationIndex
+      Simulator.fm.log(2, "Invalid Order: Order not in Translation Table - {} {}",
+          order.getColour(), order.getModel());
     } else { // Converts SKUs from string to Int
       if (warehouse.getStockRoom().hasSku(currentOrder[0])) { 
         //Check if SKUs are in the traversalMap
         skuQueue.add(currentOrder[0]);
         skuQueue.add(currentOrder[1]);
+        order.setReceived(eventCount);
         orderQueue.add(order);
-        if (orderQueue.size() == processCapacity) {
-          //Check if orderQueue has reached processCapacity
-          queuePickRequest();
+        if (orderQueue.size() >= (waveSize > 0 ? waveSize : batchSize())) {
+          //Check if orderQueue has reached the batch size, or the wave size
+          dispatchOrders(orderQueue.size());
         }
       } else { // If SKUs not in traveralMap, print appropriate message
-        Simulator.fm.logInfo(2, "Invalid Order: SKUs not in Warehouse - "
-                            + currentOrder[0] + " " + currentOrder[1]);
+        Simulator.fm.log(2, "Invalid Order: SKUs not in Warehouse - {} {}",
+            currentOrder[0], currentOrder[1]);
       }
     }
   }
@@ -86,16 +142,176 @@ public class OrderHandler {
    *      The Picker who will be requesting a pick request.
    */
   public void sendPickRequest(Picker picker) {
+    idlePickers.add(picker);
+    if (adaptive && processQueue.isEmpty() && !orderQueue.isEmpty()
+        && orderQueue.size() >= batchSize()) { // A smaller batch rather than an idle Picker
+      dispatchOrders(orderQueue.size());
+    }
     if (processQueue.isEmpty()) {
       Simulator.fm.logInfo(2, "No Pick Request Ready");
+      return;
+    }
+    PickRequest currentPickRequest = null;
+    StockRoom stockRoom = warehouse.getStockRoom();
+    for (PickRequest pickRequest : processQueue) { // The first one whose stock is reserved
+      if (stockRoom.reserve(pickRequest)) {
+        currentPickRequest = pickRequest;
+        break;
+      }
+    }
+    if (currentPickRequest == null) {
+      Simulator.fm.log(2, "No Pick Request Ready: {} held back until their stock is"
+          + " replenished.", String.valueOf(processQueue.size()));
     } else { // A pick request is available for (picker)!
-      PickRequest currentPickRequest = processQueue.remove();// remove a PickRequest in Queue
+      processQueue.remove(currentPickRequest);
+      idlePickers.remove(picker);
       picker.setPickRequest(currentPickRequest.getPickRequestId(),
           currentPickRequest.getTraversalLocations());
-      warehouse.getMarshalling().addPickRequest(currentPickRequest);
+      picker.setReservation(currentPickRequest);
+      if (currentPickRequest.isLoad()) { // A wave's loads are already at Marshalling
+        warehouse.getMarshalling().addPickRequest(currentPickRequest);
+      }
     } // give the whole PickRequest to Marshalling
   }
 
+  /** Counts the products of a SKU ordered but not yet handed to a Picker: those waiting
+   * to make up a pick request, and those in pick requests in the process queue.
+   * 
+   * @param sku
+   *    The SKU.
+   * @return
+   *    The number of products of the SKU still to be picked.
+   */
+  public int openDemand(String sku) {
+    int count = 0;
+    for (String queued : skuQueue) {
+      if (queued.equals(sku)) {
+        count++;
+      }
+    }
+    for (PickRequest pickRequest : processQueue) {
+      for (String packaged : pickRequest.getSkuPackage()) {
+        if (packaged.equals(sku)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /** Sets the number of orders in each pick request.
+   * 
+   * @param batchSize
+   *    The number of orders in a pick request, or the most in one if adaptive; at most
+   *    Truck.CAPACITY, as each is loaded onto one Truck.
+   * @param adaptive
+   *    Should each batch be sized from picker availability and queue depth?
+   */
+  public void setBatchSize(int batchSize, boolean adaptive) {
+    if (batchSize < 1 || batchSize > Truck.CAPACITY) {
+      throw new IllegalArgumentException("Batch size must be from 1 to " + Truck.CAPACITY
+          + ": " + batchSize);
+    }
+    this.processCapacity = batchSize;
+    this.adaptive = adaptive;
+  }
+
+  /** Sets the number of orders planned together in a wave.
+   * 
+   * <p>A wave's orders are made into pick requests of orders shelved close together,
+   * rather than in the order received, and into loads of orders in the order received.
+   * Marshalling sequences each load once the pick requests holding its fascia are in.
+   * 
+   * @param waveSize
+   *    The number of orders in a wave, or 0 to make each pick request a load of orders in
+   *    the order received.
+   */
+  public void setWaveSize(int waveSize) {
+    if (waveSize < 0) {
+      throw new IllegalArgumentException("Wave size must not be negative: " + waveSize);
+    }
+    this.waveSize = waveSize;
+    if (waveSize > 0 && wavePlanner == null) {
+      wavePlanner = new WavePlanner(warehouse.getStockRoom().getStore());
+    }
+  }
+
+  /** Sets how pick requests are routed.
+   * 
+   * @param routing
+   *    The strategy that orders the SKUs of each pick request into its route.
+   */
+  public void setRoutingStrategy(RoutingStrategy routing) {
+    this.routing = routing;
+  }
+
+  /** Returns the strategy each pick request's route is ordered by. */
+  public RoutingStrategy getRoutingStrategy() {
+    return routing;
+  }
+
+  /** Sets the most events an order waits for its batch to fill.
+   * 
+   * @param maxOrderAge
+   *    The number of events after which the orders waiting are made into a partial batch,
+   *    or 0 to always wait for a full batch.
+   */
+  public void setMaxOrderAge(int maxOrderAge) {
+    if (maxOrderAge < 0) {
+      throw new IllegalArgumentException("Order age must not be negative: " + maxOrderAge);
+    }
+    this.maxOrderAge = maxOrderAge;
+  }
+
+  /** Counts an event handled by the Warehouse, and flushes the orders waiting into a
+   * partial batch if the oldest has waited maxOrderAge events.
+   */
+  public void tick() {
+    eventCount++;
+    while (maxOrderAge > 0 && !orderQueue.isEmpty()
+        && eventCount - orderQueue.peek().getReceived() >= maxOrderAge) {
+      if (Simulator.fm.isLoggable(3)) { // Avoids boxing the count when not logged
+        Simulator.fm.log(3, "Order Handler: The oldest order has waited {} events;"
+            + " making a pick request of {} orders.", maxOrderAge,
+            Math.min(orderQueue.size(), processCapacity));
+      }
+      dispatchOrders(orderQueue.size());
+    }
+  }
+
+  /** Makes the orders still waiting into partial batches, so none are left behind when the
+   * events end.
+   */
+  public void flush() {
+    while (!orderQueue.isEmpty()) {
+      if (Simulator.fm.isLoggable(3)) { // Avoids boxing the count when not logged
+        Simulator.fm.log(3, "Order Handler: No more events; making a pick request of {}"
+            + " orders.", Math.min(orderQueue.size(), processCapacity));
+      }
+      dispatchOrders(orderQueue.size());
+    }
+  }
+
+  /** Returns the number of orders the next pick request is made from.
+   * 
+   * <p>In adaptive mode, with i Pickers waiting for work and q pick requests waiting for
+   * Pickers, this is processCapacity * (q + 1) / (q + 1 + i), rounded up: the full batch
+   * when no Picker is idle, shrinking as more Pickers wait and growing back as pick
+   * requests queue up.
+   * 
+   * @return
+   *    The batch size, from 1 to processCapacity.
+   */
+  public int batchSize() {
+    if (!adaptive) {
+      return processCapacity;
+    }
+    int queued = processQueue.size() + 1;
+    int size = (processCapacity * queued + queued + idlePickers.size() - 1)
+        / (queued + idlePickers.size());
+    return Math.max(1, Math.min(processCapacity, size));
+  }
+
   /** Sets a Pick Request to first priority in the process queue.
    * 
    * <p>This should only occur when a picking job fails to meet criteria.
@@ -121,67 +337,178 @@ public class OrderHandler {
    * 
    * @param order
    *      An order containing attributes colour and model
+   * @return
+   *      The front and back SKUs, both null if the order is not in the translation table.
    */
   private String[] translateOrder(Order order) {
-    String[] currentOrderSkus = new String[2];
-    for (int i = 0; i < translationTable.size(); i++) { 
-      // Will loop until not more elements in translationTable
-      if (translationTable.get(i)[0].equals(order.getColour())) {
-        if (translationTable.get(i)[1].equals(order.getModel())) {
-          currentOrderSkus[0] = translationTable.get(i)[2];
-          currentOrderSkus[1] = translationTable.get(i)[3];
-        }
+    Map<String, String[]> models = translationIndex.get(order.getColour());
+    String[] skus = models == null ? null : models.get(order.getModel());
+    return skus == null ? NOT_TRANSLATED : skus;
+  }
+
+  /** Makes waiting orders into pick requests: a wave of them if waves are planned,
+   * otherwise a batch.
+   * 
+   * @param orderCount
+   *      The number of orders waiting to use; at most a wave or a batch are used.
+   */
+  private void dispatchOrders(int orderCount) {
+    if (waveSize > 0) {
+      planWave(Math.min(orderCount, waveSize));
+    } else {
+      queuePickRequest(orderCount);
+    }
+  }
+
+  /** Plans a wave of orders: they are made into loads of a batch of orders each, in the
+   * order received, which are sent to Marshalling to wait for their fascia; and into pick
+   * requests of orders shelved close together, which are queued for Pickers.
+   * 
+   * @param orderCount
+   *      The number of orders in the wave.
+   */
+  private void planWave(int orderCount) {
+    List<String> waveSkus = new ArrayList<String>();
+    List<Order> waveOrders = new ArrayList<Order>();
+    for (int i = 0; i < orderCount * 2; i++) {
+      waveSkus.add(skuQueue.remove());
+    }
+    for (int i = 0; i < orderCount; i++) {
+      waveOrders.add(orderQueue.remove());
+    }
+    int batchSize = batchSize();
+    List<int[]> batches = wavePlanner.plan(waveSkus, batchSize);
+    int[] pickedBy = new int[orderCount]; // The pick request ID picking each order
+    int travel = 0;
+    for (int[] batch : batches) {
+      List<String> skus = new ArrayList<String>();
+      ArrayList<Order> batchOrders = new ArrayList<Order>();
+      for (int order : batch) {
+        skus.add(waveSkus.get(order * 2));
+        skus.add(waveSkus.get(order * 2 + 1));
+        batchOrders.add(waveOrders.get(order));
+        pickedBy[order] = pickRequestCount;
+      }
+      travel += wavePlanner.travel(skus);
+      PickRequest pickRequest = newPickRequest(skus, skus, batchOrders);
+      pickRequest.setLoad(false);
+      if (!warehouse.getStockRoom().reserve(pickRequest)
+          && Simulator.fm.isLoggable(2)) { // Tried again when a Picker is ready
+        Simulator.fm.log(2, "Order Handler: Not enough stock for pick request #{}; held back"
+            + " until replenished.", pickRequest.getPickRequestId());
+      }
+      processQueue.add(pickRequest);
+    }
+    int received = 0; // Walked if picked in the order received, for the log
+    for (int first = 0; first < orderCount; first += batchSize) {
+      int last = Math.min(first + batchSize, orderCount);
+      List<String> skus = new ArrayList<String>(waveSkus.subList(first * 2, last * 2));
+      if (Simulator.fm.isLoggable(3)) {
+        received += wavePlanner.travel(skus);
       }
+      PickRequest load = newPickRequest(skus, organizeSku(skus),
+          new ArrayList<Order>(waveOrders.subList(first, last)));
+      load.setSources(Arrays.stream(pickedBy, first, last).distinct().toArray());
+      warehouse.getMarshalling().addPickRequest(load);
+    }
+    if (Simulator.fm.isLoggable(3)) { // Avoids boxing the counts when not logged
+      Simulator.fm.log(3, "Order Handler: Wave of {} orders planned into {} pick requests,"
+          + " walking {} rather than {}.", orderCount, batches.size(), travel, received);
     }
-    return currentOrderSkus;
   }
 
-  /** Create PickRequest by combining 8 SKUs (4 orders) This PickRequest will be queued into
-   * ProcessQueue.
+  /** Create PickRequest by combining the SKUs of a batch of orders (2 per order). This
+   * PickRequest will be queued into ProcessQueue.
    * 
    * <p>For traversal locations, if there is a generic traversal program, SKUs will be sent
    * to it for traverse. Otherwise, traversePickLocations() will be used for traversal.
    */
-  private void queuePickRequest() {
+  private void queuePickRequest(int orderCount) {
+    orderCount = Math.min(orderCount, processCapacity);
     List<String> pickRequestList = new ArrayList<String>();
-    ArrayList<Order> fourOrders = new ArrayList<Order>();
-    for (int i = 0; i < processCapacity * 2; i++) { 
+    ArrayList<Order> batchOrders = new ArrayList<Order>();
+    for (int i = 0; i < orderCount * 2; i++) { 
       pickRequestList.add(skuQueue.remove());
     }
-    for (int i = 0; i < processCapacity; i++) {  // Unloads 4 orders from orderQueue
-      fourOrders.add(orderQueue.remove());
+    for (int i = 0; i < orderCount; i++) {  // Unloads the batch from orderQueue
+      batchOrders.add(orderQueue.remove());
     }
     List<String> skuPackage = organizeSku(pickRequestList);  // Organize SKU in the correct sequence
     //See organizeSku method for details
-    List<String> traversalLocations = Optimizer.optimize(pickRequestList, warehouse.getStockRoom());
-    PickRequest currentPickRequest = new PickRequest(traversalLocations, skuPackage, 
-        fourOrders, pickRequestCount);
-    pickRequestCount++;
+    PickRequest currentPickRequest = newPickRequest(pickRequestList, skuPackage, batchOrders);
+    if (!warehouse.getStockRoom().reserve(currentPickRequest)
+        && Simulator.fm.isLoggable(2)) { // Tried again when a Picker is ready
+      Simulator.fm.log(2, "Order Handler: Not enough stock for pick request #{}; held back"
+          + " until replenished.", currentPickRequest.getPickRequestId());
+    }
     processQueue.add(currentPickRequest);
   }
 
-  /** Organize SKUs into a integer array of 8 elements.
+  /** Numbers a new PickRequest and routes it by the RoutingStrategy, measuring the length
+   * of its route.
    * 
-   * <p>The format of the elements is [F4, F3, F2, F1, R4, R3, R2, R1],
+   * @param skus
+   *      The SKUs to be picked.
+   * @param skuPackage
+   *      The SKUs in the order they are sequenced.
+   * @param orders
+   *      The orders in the pick request.
+   * @return
+   *      The PickRequest.
+   */
+  private PickRequest newPickRequest(List<String> skus, List<String> skuPackage,
+      ArrayList<Order> orders) {
+    StockRoom stockRoom = warehouse.getStockRoom();
+    StockStore store = stockRoom.getStore();
+    List<String> traversalLocations = routing.optimize(new ArrayList<String>(skus), stockRoom);
+    int[] shelves = new int[traversalLocations.size()];
+    for (int i = 0; i < shelves.length; i++) { // The SKU ends each location
+      String location = traversalLocations.get(i);
+      shelves[i] = store.ordinalOf(location.substring(location.lastIndexOf(' ') + 1));
+    }
+    if (stockRoom.getSlottingAdvisor() != null) { // Counts which SKUs are picked together
+      stockRoom.getSlottingAdvisor().recordPickRequest(shelves);
+    }
+    PickRequest pickRequest = new PickRequest(traversalLocations, skuPackage, orders,
+        pickRequestCount);
+    pickRequestCount++;
+    pickRequest.setRouteLength(layout().routeLength(shelves, shelves.length));
+    if (Simulator.fm.isLoggable(3)) { // Avoids boxing the numbers when not logged
+      Simulator.fm.log(3, "Order Handler: Pick request #{} routed, {} long.",
+          pickRequest.getPickRequestId(), pickRequest.getRouteLength());
+    }
+    return pickRequest;
+  }
+
+  /** Returns the walking distances between the StockRoom's shelves, modelled the first time
+   * they are needed. */
+  private WarehouseLayout layout() {
+    if (layout == null) {
+      layout = new WarehouseLayout(warehouse.getStockRoom().getStore());
+    }
+    return layout;
+  }
+
+  /** Organize the SKUs of a batch of orders in the order they are sequenced.
+   * 
+   * <p>The format of the elements is [Fn, ..., F2, F1, Rn, ..., R2, R1],
    * F represent front SKUs and R represent rear SKUs.
    * The numbers represent the order number relevant to this pick request.
    * 
    * @param pickRequest
-   *      The SKUs to be organized.
+   *      The SKUs to be organized: the front then rear SKU of each order, in order.
    * @return
    *      The organized SKUs.
    */
   private List<String> organizeSku(List<String> pickRequest) {
     List<String> organizedRequest = new ArrayList<String>();
     Simulator.fm.logInfo(3, "Order Handler: Organizing Pick Request...");
-    organizedRequest.add(0, pickRequest.get(6));
-    organizedRequest.add(1, pickRequest.get(4));
-    organizedRequest.add(2, pickRequest.get(2));
-    organizedRequest.add(3, pickRequest.get(0));
-    organizedRequest.add(4, pickRequest.get(7));
-    organizedRequest.add(5, pickRequest.get(5));
-    organizedRequest.add(6, pickRequest.get(3));
-    organizedRequest.add(7, pickRequest.get(1));
+    for (int i = pickRequest.size() - 2; i >= 0; i -= 2) { // Fronts, last order first
+      organizedRequest.add(pickRequest.get(i));
+    }
+    for (int i = pickRequest.size() - 1; i >= 1; i -= 2) { // Rears, last order first
+      organizedRequest.add(pickRequest.get(i));
+    }
     Simulator.fm.logInfo(3, "Order Handler: Pick Request successfully organized.");
     return organizedRequest;
   }
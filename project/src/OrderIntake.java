@@ -0,0 +1,172 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/** A lock-free ring buffer of orders, taken in from many feeds (such as several FAX or EDI
+ * lines) at once and handed on by a single consumer, the Warehouse, to its OrderHandler.
+ *
+ * <p>Producers claim a slot by advancing the tail with a compare-and-set, fill it, then
+ * publish it by setting the slot's sequence number; they never wait on each other or on
+ * the consumer unless the buffer is full. Each slot's sequence tells whose turn it is:
+ * the producer of position p may fill slot p when its sequence is p, and the consumer may
+ * take it when its sequence is p + 1. Taking it sets the sequence to p + capacity, ready
+ * for the producer a lap later.
+ *
+ * <p>The consumer keeps the time each order waited in the buffer, and the deepest the
+ * buffer has been when drained.
+ */
+public class OrderIntake {
+
+  /** The orders in the buffer, by position modulo capacity. */
+  private final Order[] orders;
+  /** When each order was submitted, in System.nanoTime, by position modulo capacity. */
+  private final long[] submitted;
+  /** The sequence number of each slot; see the class comment. */
+  private final AtomicLongArray sequences;
+  /** Masks a position into a slot index; the capacity is a power of two. */
+  private final int mask;
+  /** The next position to be claimed by a producer. */
+  private final AtomicLong tail = new AtomicLong();
+  /** The next position to be taken by the consumer. Written by the consumer only. */
+  private volatile long head = 0;
+  /** The number of orders taken by the consumer. */
+  private volatile long taken = 0;
+  /** The total time orders taken waited in the buffer, in nanoseconds. */
+  private volatile long totalWait = 0;
+  /** The longest time an order taken waited in the buffer, in nanoseconds. */
+  private volatile long maxWait = 0;
+  /** The most orders found in the buffer by the consumer. */
+  private volatile long maxDepth = 0;
+
+  /** Creates an empty OrderIntake.
+   *
+   * @param capacity
+   *      The number of orders the buffer can hold, rounded up to a power of two.
+   */
+  public OrderIntake(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be from 1 to 2^30: " + capacity);
+    }
+    int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    orders = new Order[size];
+    submitted = new long[size];
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    mask = size - 1;
+  }
+
+  /** Adds an order to the buffer if there is room. Safe to call from many threads.
+   *
+   * @param order
+   *      The order.
+   * @return
+   *      Was the order added? false if the buffer is full.
+   */
+  public boolean offer(Order order) {
+    long now = System.nanoTime();
+    while (true) {
+      long position = tail.get();
+      int slot = (int) position & mask;
+      long lap = sequences.get(slot) - position;
+      if (lap == 0) { // The slot is free for this position
+        if (tail.compareAndSet(position, position + 1)) {
+          orders[slot] = order;
+          submitted[slot] = now;
+          sequences.set(slot, position + 1); // Publishes the order to the consumer
+          return true;
+        }
+      } else if (lap < 0) { // The consumer has not taken the order a lap behind
+        return false;
+      } // Otherwise another producer claimed the position first; try the next
+    }
+  }
+
+  /** Adds an order to the buffer, waiting for the consumer to make room if it is full.
+   * Safe to call from many threads.
+   *
+   * @param order
+   *      The order.
+   */
+  public void submit(Order order) {
+    while (!offer(order)) {
+      LockSupport.parkNanos(1000);
+    }
+  }
+
+  /** Takes every order published so far out of the buffer, oldest first. Must only be
+   * called by one thread at a time.
+   *
+   * @param consumer
+   *      Given each order taken, such as OrderHandler.addOrder.
+   * @return
+   *      The number of orders taken.
+   */
+  public int drain(Consumer<Order> consumer) {
+    long position = head;
+    long depth = tail.get() - position;
+    if (depth == 0) {
+      return 0;
+    }
+    if (depth > maxDepth) {
+      maxDepth = depth;
+    }
+    long now = System.nanoTime();
+    int count = 0;
+    long waited = 0;
+    long longest = maxWait;
+    while (true) {
+      int slot = (int) position & mask;
+      if (sequences.get(slot) != position + 1) { // Not yet published
+        break;
+      }
+      Order order = orders[slot];
+      long wait = now - submitted[slot];
+      orders[slot] = null;
+      sequences.set(slot, position + mask + 1); // Free for the producer a lap later
+      position++;
+      head = position;
+      waited += wait;
+      longest = Math.max(longest, wait);
+      count++;
+      consumer.accept(order);
+    }
+    taken += count;
+    totalWait += waited;
+    maxWait = longest;
+    return count;
+  }
+
+  /** Returns the number of orders in the buffer, claimed or published. */
+  public int depth() {
+    return (int) (tail.get() - head);
+  }
+
+  /** Returns the most orders found in the buffer by the consumer. */
+  public long getMaxDepth() {
+    return maxDepth;
+  }
+
+  /** Returns the number of orders taken by the consumer. */
+  public long getTaken() {
+    return taken;
+  }
+
+  /** Returns the mean time orders taken waited in the buffer, in nanoseconds. */
+  public long getMeanWait() {
+    long count = taken;
+    return count == 0 ? 0 : totalWait / count;
+  }
+
+  /** Returns the longest time an order taken waited in the buffer, in nanoseconds. */
+  public long getMaxWait() {
+    return maxWait;
+  }
+
+  /** Returns the number of orders the buffer can hold. */
+  public int getCapacity() {
+    return orders.length;
+  }
+}
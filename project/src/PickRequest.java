@@ -3,7 +3,13 @@ import java.util.List;
 
 /** Stores a pick request containing the SKU numbers of received orders.
  *  
- *  <p>Currently, this class holds 4 minivan orders, or 8 fascia.
+ *  <p>It holds a batch of n minivan orders, or 2n fascia (4 orders by default, see
+ *  OrderHandler.setBatchSize).
+ *  
+ *  <p>A pick request is usually also a load: what it picks is sequenced and loaded onto
+ *  a Truck as it is. When orders are planned in waves, the pick requests of a wave are
+ *  not loads; their fascia are sequenced at Marshalling into loads of orders in the
+ *  order they were received, each made from one or more of the wave's pick requests.
  *  
  *  @author Jing (Editor: Tyson)
  */
@@ -13,12 +19,21 @@ public class PickRequest {
   private int pickRequestId;
   /** An array of SKU numbers, ordered for sequencing.
    * 
-   * <p>Fascia: Organized in the format of: [f4, f3, f2, f1, r4, r3, r2, r1,]. */
+   * <p>Fascia: Organized in the format of: [Fn, ..., F2, F1, Rn, ..., R2, R1]. */
   private List<String> skuPackage;
   /** An array of of traversal locations.*/
   private List<String> traversalLocations;
   /** A list of orders contained on this pick request. Used when exporting orders.csv. */ 
   private ArrayList<Order> orders = new ArrayList<Order>();
+  /** The SKUs whose stock is reserved for this request and not yet picked, or null if its
+   * stock is not reserved. */
+  private volatile List<String> reservedSkus;
+  /** Is this pick request sequenced and loaded itself? False for a wave's pick requests. */
+  private boolean load = true;
+  /** The IDs of the pick requests whose fascia this load is sequenced from. */
+  private int[] sources;
+  /** The walking distance of this pick request's route, from Marshalling and back. */
+  private int routeLength;
   
   
   /** Initializes a PickRequest, containing the necessary details to 
@@ -37,9 +52,12 @@ public class PickRequest {
     this.skuPackage = skuPackage;
     this.orders = orders; 
     this.pickRequestId = id;
+    this.sources = new int[] {id};
   } 
   
-  /** Returns a clone of this PickRequest that can be passed around. */
+  /** Returns a clone of this PickRequest that can be passed around. Stock reserved for
+   * this PickRequest is not reserved for the clone, and the clone is a load picked by
+   * itself. */
   public PickRequest clone() {
     List<String> traversalNew = new ArrayList<String>();
     traversalNew.addAll(this.traversalLocations);
@@ -51,6 +69,7 @@ public class PickRequest {
     ordersNew.addAll(orders);
     
     PickRequest clonedRequest = new PickRequest(traversalNew, skusNew, ordersNew, pickRequestId);
+    clonedRequest.routeLength = routeLength;
     return clonedRequest;
   }
 
@@ -69,8 +88,56 @@ public class PickRequest {
     return skuPackage;
   }
 
+  /** Get the walking distance of this pick request's route, from Marshalling and back. */
+  public int getRouteLength() {
+    return routeLength;
+  }
+
+  /** Set the walking distance of this pick request's route. */
+  void setRouteLength(int routeLength) {
+    this.routeLength = routeLength;
+  }
+
   /** Get the Traversal Locations of this pick request.*/
   public List<String> getTraversalLocations() { 
     return traversalLocations;
   }
+
+  /** Get the SKUs reserved for this pick request and not yet picked, or null if its stock
+   * is not reserved. Kept by the StockRoom. */
+  public List<String> getReservedSkus() {
+    return reservedSkus;
+  }
+
+  /** Set the SKUs reserved for this pick request. Kept by the StockRoom. */
+  void setReservedSkus(List<String> reservedSkus) {
+    this.reservedSkus = reservedSkus;
+  }
+
+  /** Is this pick request sequenced and loaded itself? False for a wave's pick requests,
+   * whose fascia are sequenced into loads. */
+  public boolean isLoad() {
+    return load;
+  }
+
+  /** Set whether this pick request is sequenced and loaded itself. */
+  void setLoad(boolean load) {
+    this.load = load;
+  }
+
+  /** Get the IDs of the pick requests whose fascia this load is sequenced from: just its
+   * own, unless planned in a wave. */
+  public int[] getSources() {
+    return sources;
+  }
+
+  /** Set the IDs of the pick requests whose fascia this load is sequenced from. */
+  void setSources(int[] sources) {
+    this.sources = sources;
+  }
+
+  /** Is the stock of every SKU in this pick request reserved? */
+  public boolean isReserved() {
+    return reservedSkus != null;
+  }
 }
@@ -22,6 +22,8 @@ public class Picker extends Worker {
   private int pickId = -1;
   /** The positions of the stock items to be collected, followed by the SKU. */
   private List<String> positionArray = new ArrayList<String>();
+  /** The pick request whose stock is reserved for this Picker, or null. */
+  private PickRequest reservation;
   
   /** Initializes a Picker in the Warehouse that calls it.
    * 
@@ -32,19 +34,19 @@ public class Picker extends Worker {
    */
   public Picker(String newName, Warehouse warehouse) {
     super(newName, warehouse);
-    Simulator.fm.logInfo(3, "Picker " + name + " has arrived at the warehouse.");
+    Simulator.fm.log(3, "Picker {} has arrived at the warehouse.", name);
   }
   
   /** Alerts a Picker's OrderHandler that the Picker is ready for a pick request, 
    * if not preoccupied. 
    */
   public void ready() {
-    Simulator.fm.logInfo(3, "Picker " + name + ": Processing 'ready' event.");
+    Simulator.fm.log(3, "Picker {}: Processing 'ready' event.", name);
     if (pickId == -1) { // Checks if ready / has a pick request
       OrderHandler orderHandler = myWarehouse.getOrderHandler();
       orderHandler.sendPickRequest(this);
     } else { // Picker is not ready for a new request
-      Simulator.fm.logInfo(3, "Error: Picker " + name + " is currently busy fulfilling a pick request.");
+      Simulator.fm.log(3, "Error: Picker {} is currently busy fulfilling a pick request.", name);
     }
   }
   
@@ -56,11 +58,11 @@ public class Picker extends Worker {
     if (position == capacity) { // Confirms that the Picker has finished collecting. 
       Marshalling marshalling = myWarehouse.getMarshalling();
       marshalling.receivePicker(pickId); 
-      Simulator.fm.logInfo(3, "Picker " + name + " has deposited his collection "
-          + "of product at Marshalling.");
+      Simulator.fm.log(3, "Picker {} has deposited his collection "
+          + "of product at Marshalling.", name);
       initArrays();
     } else { // Picker has not finished their pick job.
-      Simulator.fm.logInfo(2, "Error: Picker " + name + " has not finished fulfilling their pick job.");
+      Simulator.fm.log(2, "Error: Picker {} has not finished fulfilling their pick job.", name);
       printCurrentPick();
     }
   }
@@ -74,11 +76,12 @@ public class Picker extends Worker {
    *      Format: zone,aisle,shelf,level,sku [String(char,int,int,int,int,String)] 
    */
   public void setPickRequest(int newId, List<String> positions) {
-    if (positions.size() != capacity) { // The size of the PickRequest is too large/small.
-      Simulator.fm.logInfo(3, "Error: Picker " + name + " cannot receive this pick request; "
-          + "the request is too large/small.");
+    if (positions.isEmpty()) { // The PickRequest has nothing to pick.
+      Simulator.fm.log(3, "Error: Picker {} cannot receive this pick request; "
+          + "the request is empty.", name);
     } else { // Pick request is of satisfactory size
       pickId = newId;
+      capacity = positions.size(); // Batches may be any number of orders
       positionArray = ((ArrayList<String>) positions);
       // Defining expectedArray to mirror Worker's scanSKU method.
       String[] values;
@@ -86,7 +89,9 @@ public class Picker extends Worker {
         values = positionArray.get(i).split(" ");
         expectedArray.add(values[4]);
       }
-      Simulator.fm.logInfo(3, "Picker " + name + " has received pick request #" + pickId + "!");
+      if (Simulator.fm.isLoggable(3)) { // Avoids boxing pickId when not logged
+        Simulator.fm.log(3, "Picker {} has received pick request #{}!", name, pickId);
+      }
     }
   }
   
@@ -100,42 +105,69 @@ public class Picker extends Worker {
     
     // Check if Picker can receive an SKU...
     if (pickId == -1) { // Picker is not ready with a pick request
-      Simulator.fm.logInfo(2, "Error: Picker " + name + " is not ready to perform picks.");
+      Simulator.fm.log(2, "Error: Picker {} is not ready to perform picks.", name);
     } else { // Check and pick if the stock can be picked
       
-      if (position > capacity) { // Picker at capacity...  SKU not recorded.
-        Simulator.fm.logInfo(3, "Picker " + name + " attempted to pick more product than he can carry." 
-            + " The SKU " + skuNum + " has not been recorded by their barcode reader. "
-            + "Please return this item.");
+      if (position >= capacity) { // Picker at capacity...  SKU not recorded.
+        Simulator.fm.log(3, "Picker {} attempted to pick more product than he can carry." 
+            + " The SKU {} has not been recorded by their barcode reader. "
+            + "Please return this item.", name, skuNum);
         
       } else { // Picker can receive an SKU.
         
         if (expectedArray.get(position).equals(skuNum)) { // The scanned SKU matches
-          Simulator.fm.logInfo(3, "Confirming Picker " + name + "'s SKU pick with the stock room...");
+          Simulator.fm.log(3, "Confirming Picker {}'s SKU pick with the stock room...", name);
           StockRoom stockRoom = myWarehouse.getStockRoom();
-          boolean inStock = stockRoom.takeProduct(skuNum);
+          boolean inStock = stockRoom.takeProduct(skuNum, reservation);
           if (inStock) { // Sets the designated SKU
             position++;
-            Simulator.fm.logInfo(3, "Picker " + name + " picked " + skuNum + " from the stock room.");
+            Simulator.fm.log(3, "Picker {} picked {} from the stock room.", name, skuNum);
             if (position < capacity) { // Picker gets the next location.
               printCurrentPick();
             } else if (position == capacity) { // Picker has finished collecting.
-              Simulator.fm.logInfo(3, "Picker " + name + ", please report to Marshalling.");
+              Simulator.fm.log(3, "Picker {}, please report to Marshalling.", name);
             } 
           } else { // Invalid SKU
-            Simulator.fm.logInfo(2, "Error: Picker " + name + " attempted to pick an unstocked SKU."
-                + " The SKU " + skuNum + " has not been recorded by their barcode reader.");
+            Simulator.fm.log(2, "Error: Picker {} attempted to pick an unstocked SKU."
+                + " The SKU {} has not been recorded by their barcode reader.", name, skuNum);
           }
           
         } else { // The scanned SKU is incorrect
-          Simulator.fm.logInfo(2, "Picker " + name + " did not pick the currently requested SKU. "
-              + " The SKU " + skuNum + " has not been recorded by their barcode reader.");
+          Simulator.fm.log(2, "Picker {} did not pick the currently requested SKU. "
+              + " The SKU {} has not been recorded by their barcode reader.", name, skuNum);
           printCurrentPick();
         }
       }
     }
   }
   
+  /** Sets the pick request whose stock is reserved for this Picker. Its reservations are
+   * used up as the Picker picks its SKUs.
+   * 
+   * @param pickRequest
+   *    The pick request given to the Picker by OrderHandler.
+   */
+  public void setReservation(PickRequest pickRequest) {
+    reservation = pickRequest;
+  }
+
+  /** Discards the Picker's pick request: the stock still reserved for it is released, and
+   * it is sent back to the front of OrderHandler's queue to be picked again.
+   */
+  @Override
+  public void discard() {
+    if (pickId == -1 || reservation == null) {
+      Simulator.fm.log(2, "Error: Picker {} does not have a pick request to discard.", name);
+      return;
+    }
+    myWarehouse.getStockRoom().release(reservation);
+    // The same request, so Marshalling still expects it just once.
+    myWarehouse.getOrderHandler().priorityQueue(reservation);
+    Simulator.fm.log(3, "Picker {}: Discard!", name);
+    resetScan();
+    initArrays();
+  }
+
   /** Returns null if a getPickRequest attempt is made.
    * Picker does not handle Pick Requests; symptom of inheritance from Worker.
    * 
@@ -157,7 +189,7 @@ public class Picker extends Worker {
 
   /** System prints all picks that should be performed by Picker. */
   public void printPickInfo() {
-    Simulator.fm.logInfo(3, "Printing out " + name + "'s pick order...");
+    Simulator.fm.log(3, "Printing out {}'s pick order...", name);
     for (int i = 0; i < capacity; i++) {
       Simulator.fm.logInfo(3, expectedArray.get(i));
     }
@@ -167,10 +199,11 @@ public class Picker extends Worker {
   private void initArrays() {
     position = 0;
     pickId = -1;
+    reservation = null;
     if (!expectedArray.isEmpty()) {
       expectedArray.clear();
     }
-    Simulator.fm.logInfo(3, "Picker " + name + " can now recieve an order!");
+    Simulator.fm.log(3, "Picker {} can now recieve an order!", name);
   }
 
   /** Informs the Picker where to pick their next SKU. */
@@ -178,6 +211,6 @@ public class Picker extends Worker {
     if (expectedArray == null || expectedArray.isEmpty()) { //TODO: temporary patch to get program running
       return; //TODO: gives a null pointer??? needs to be debugged across 
     }
-    Simulator.fm.logInfo(3, "Picker " + name + ", please pick: " + positionArray.get(position)); 
+    Simulator.fm.log(3, "Picker {}, please pick: {}", name, positionArray.get(position)); 
   }
 }
@@ -1,36 +1,91 @@
-/**
- * A class represensts the replenisher in the stockroom 
+import java.util.ArrayList;
+import java.util.List;
+
+/** A Replenisher in the StockRoom, who restocks shelves running low.
  *
+ * <p>When ready, the Replenisher is given a route by the StockRoom's ReplenishmentPlanner:
+ * the most urgent replenish task, and others in the same zone and aisle. The barcode reader
+ * tells them each location on the route in turn. Shelves are restocked by replenish events;
+ * on completing, any tasks on the route not yet done go back to the planner.
  */
 public class Replenisher extends Worker {
+  /** The replenish tasks the Replenisher is working on, in walking order, or null. */
+  private List<ReplenishmentPlanner.Task> route;
 
+  /** Initializes a Replenisher in the Warehouse that calls it.
+   *
+   * @param name
+   *    The Replenisher's name.
+   * @param warehouse
+   *    The Warehouse for which the Replenisher works.
+   */
   public Replenisher(String name, Warehouse warehouse) {
     super(name, warehouse);
   }
-  
-  
-  /**
-   * Replenisher scans the sku number at the stockroom
-   */
+
+  /** Replenisher scans the SKU of a shelf on their route. */
   @Override
   public void scanSku(String skuNum) {
-    return;
+    if (route == null) {
+      Simulator.fm.log(2, "Replenisher {}: This scanner does not have an assigned task."
+          + " Please report ready.", name);
+    } else if (expectedArray.contains(skuNum)) {
+      Simulator.fm.log(3, "Replenisher {}: SKU {} is on your route.", name, skuNum);
+    } else {
+      Simulator.fm.log(2, "Replenisher {}: SKU {} is not on your route.", name, skuNum);
+    }
   }
-  
-  /**
-   * Make the replenish ready for work
-   */
+
+  /** Asks the StockRoom's ReplenishmentPlanner for a route, if not preoccupied. */
   @Override
   public void ready() {
-    return;
+    Simulator.fm.log(3, "Replenisher {}: Processing 'ready' event.", name);
+    if (route == null) {
+      myWarehouse.getStockRoom().getReplenishmentPlanner().sendRoute(this);
+    } else {
+      Simulator.fm.log(3, "Error: Replenisher {} is currently busy on a route.", name);
+    }
   }
-  
-  /**
-   * Replenisher completes his/her task
-   */
+
+  /** Hands the route back to the ReplenishmentPlanner, which keeps any tasks not done. */
   @Override
   public void complete() {
-    return;
+    if (route == null) {
+      Simulator.fm.log(2, "Error: Replenisher {} does not have a route to complete.", name);
+      return;
+    }
+    int left = myWarehouse.getStockRoom().getReplenishmentPlanner().complete(route);
+    if (left > 0 && Simulator.fm.isLoggable(2)) { // Avoids boxing left when not logged
+      Simulator.fm.log(2, "Replenisher {} has completed their route with {} shelves not"
+          + " replenished. They will be given out again.", name, left);
+    } else {
+      Simulator.fm.log(3, "Replenisher {} has completed their route.", name);
+    }
+    route = null;
+    busy = false;
+    expectedArray = new ArrayList<String>();
+  }
+
+  /** Gives the Replenisher a route of replenish tasks.
+   *
+   * @param tasks
+   *    The tasks, in the order they are to be done.
+   * @param skus
+   *    The SKU of each task.
+   */
+  public void setRoute(List<ReplenishmentPlanner.Task> tasks, ArrayList<String> skus) {
+    route = tasks;
+    busy = true;
+    expectedArray = skus;
+    Simulator.fm.log(3, "Replenisher {} has received a route of {} shelves.", name,
+        String.valueOf(tasks.size()));
+    for (ReplenishmentPlanner.Task task : tasks) {
+      Simulator.fm.log(3, "Replenisher {}, please replenish: {}", name, task);
+    }
   }
 
+  /** Returns the Replenisher's route, or null if they do not have one. */
+  public List<ReplenishmentPlanner.Task> getRoute() {
+    return route;
+  }
 }
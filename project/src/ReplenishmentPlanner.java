@@ -0,0 +1,263 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/** Turns the StockRoom's replenish requests into tasks, and hands them to Replenishers in
+ * routes, the way OrderHandler hands pick requests to Pickers.
+ *
+ * <p>A task is made the first time a shelf falls to the replenish threshold, or is found
+ * empty by a pick; a shelf has at most one task at once. When a Replenisher is ready, every
+ * waiting task is scored by how far its shelf will be short of stock before a Replenisher
+ * can get there:
+ *
+ * <p>shortfall = open demand + depletion rate * LEAD_PICKS - stock left
+ *
+ * <p>where the open demand is the number of the SKU's products in pick requests not yet
+ * picked, and the depletion rate is the share of all picks in the StockRoom that have come
+ * off the shelf since it was last replenished. The task with the most shortfall is taken,
+ * along with other waiting tasks in the same zone and aisle, up to the Replenisher's
+ * capacity; the route is walked in rack and level order.
+ *
+ * <p>A task is done once its shelf is replenished (by a replenish event), whoever does it.
+ * When a Replenisher completes, tasks left on their route go back to waiting.
+ */
+public class ReplenishmentPlanner {
+
+  /** The number of picks taken from the whole StockRoom while a Replenisher gets to a
+   * shelf, used to estimate how much more stock will be picked before it is replenished. */
+  static final int LEAD_PICKS = 50;
+  /** No task for the shelf. */
+  private static final byte NONE = 0;
+  /** The shelf's task is waiting for a Replenisher. */
+  private static final byte WAITING = 1;
+  /** The shelf's task is on a Replenisher's route. */
+  private static final byte ROUTED = 2;
+
+  /** The shelves of the StockRoom. */
+  private final StockStore store;
+  /** The number of products of a SKU in pick requests not yet picked. */
+  private ToIntFunction<String> demand = sku -> 0;
+  /** The number of products picked from the StockRoom so far; the planner's clock. */
+  private final LongAdder picks = new LongAdder();
+  /** The state of each shelf's task: NONE, WAITING or ROUTED. */
+  private final byte[] states;
+  /** The stock of each shelf when it was last replenished, or at the start. */
+  private final int[] lastStock;
+  /** The pick clock when each shelf was last replenished, or 0. */
+  private final long[] lastPick;
+  /** The tasks waiting for a Replenisher. */
+  private final List<Task> waiting = new ArrayList<Task>();
+  /** The number of tasks made so far; also numbers the tasks. */
+  private int taskCount = 0;
+
+  /** Creates the planner of a StockRoom whose stock has been loaded.
+   *
+   * @param store
+   *      The shelves of the StockRoom. No shelves may be added afterwards.
+   */
+  public ReplenishmentPlanner(StockStore store) {
+    this.store = store;
+    states = new byte[store.size()];
+    lastStock = new int[store.size()];
+    lastPick = new long[store.size()];
+    for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+      lastStock[ordinal] = store.getStock(ordinal);
+    }
+  }
+
+  /** Sets where open pick demand is found, such as the Warehouse's OrderHandler.
+   *
+   * @param demand
+   *      Gives the number of products of a SKU in pick requests not yet picked.
+   */
+  public synchronized void setDemand(ToIntFunction<String> demand) {
+    this.demand = demand;
+  }
+
+  /** Counts a product picked from the StockRoom. Safe to call from many threads. */
+  public void recordPick() {
+    picks.increment();
+  }
+
+  /** Makes a task to replenish a shelf, unless it already has one.
+   *
+   * @param ordinal
+   *      The ordinal of the shelf.
+   * @return
+   *      Was a new task made?
+   */
+  public synchronized boolean request(int ordinal) {
+    if (states[ordinal] != NONE) {
+      return false;
+    }
+    states[ordinal] = WAITING;
+    waiting.add(new Task(++taskCount, ordinal));
+    if (Simulator.fm.isLoggable(3)) { // Skips building the location when not logged
+      Simulator.fm.log(3, "Replenishment: Task for SKU#{} at {} waiting for a Replenisher.",
+          store.getSku(ordinal), locationOf(ordinal));
+    }
+    return true;
+  }
+
+  /** Marks a shelf replenished: its task, if any, is done, and its depletion rate is
+   * measured afresh from now.
+   *
+   * @param ordinal
+   *      The ordinal of the shelf.
+   */
+  public synchronized void replenished(int ordinal) {
+    lastStock[ordinal] = store.getStock(ordinal);
+    lastPick[ordinal] = picks.sum();
+    if (states[ordinal] == WAITING) {
+      waiting.removeIf(task -> task.ordinal == ordinal);
+    }
+    states[ordinal] = NONE; // A routed task is dropped from the route when completed
+  }
+
+  /** Gives a ready Replenisher the route of the most urgent waiting task.
+   *
+   * @param replenisher
+   *      The Replenisher.
+   * @return
+   *      Was a route given? False if no tasks are waiting.
+   */
+  public synchronized boolean sendRoute(Replenisher replenisher) {
+    if (waiting.isEmpty()) {
+      Simulator.fm.logInfo(3, "Replenishment: No replenish task waiting.");
+      return false;
+    }
+    for (Task task : waiting) { // Scored now, with the latest stock and demand
+      task.shortfall = shortfall(task.ordinal);
+    }
+    Task first = waiting.get(0);
+    for (Task task : waiting) {
+      if (task.shortfall > first.shortfall) {
+        first = task;
+      }
+    }
+    String zone = store.getZone(first.ordinal);
+    int aisle = store.getAisle(first.ordinal);
+    List<Task> route = new ArrayList<Task>();
+    route.add(first);
+    waiting.remove(first);
+    waiting.sort(Comparator.comparingDouble((Task task) -> -task.shortfall));
+    Iterator<Task> tasks = waiting.iterator();
+    while (tasks.hasNext() && route.size() < replenisher.getCapacity()) {
+      Task task = tasks.next();
+      if (store.getAisle(task.ordinal) == aisle && store.getZone(task.ordinal).equals(zone)) {
+        route.add(task);
+        tasks.remove();
+      }
+    }
+    route.sort(Comparator.comparingInt((Task task) -> store.getRack(task.ordinal))
+        .thenComparingInt(task -> store.getLevel(task.ordinal)));
+    ArrayList<String> skus = new ArrayList<String>();
+    for (Task task : route) {
+      states[task.ordinal] = ROUTED;
+      skus.add(store.getSku(task.ordinal));
+    }
+    replenisher.setRoute(route, skus);
+    return true;
+  }
+
+  /** Takes back a Replenisher's route: tasks whose shelves have not been replenished go
+   * back to waiting.
+   *
+   * @param route
+   *      The route.
+   * @return
+   *      The number of tasks that went back to waiting.
+   */
+  public synchronized int complete(List<Task> route) {
+    int left = 0;
+    for (Task task : route) {
+      if (states[task.ordinal] == ROUTED) {
+        states[task.ordinal] = WAITING;
+        waiting.add(task);
+        left++;
+      }
+    }
+    return left;
+  }
+
+  /** Checks if a task on a route has been done.
+   *
+   * @param task
+   *      The task.
+   * @return
+   *      Has the task's shelf been replenished since it was routed?
+   */
+  public synchronized boolean isDone(Task task) {
+    return states[task.ordinal] != ROUTED;
+  }
+
+  /** Returns the number of tasks waiting for a Replenisher. */
+  public synchronized int waitingCount() {
+    return waiting.size();
+  }
+
+  /** Estimates how short of stock a shelf will be by the time a Replenisher gets there.
+   *
+   * @param ordinal
+   *      The ordinal of the shelf.
+   * @return
+   *      The shortfall; the higher, the more urgent.
+   */
+  synchronized double shortfall(int ordinal) {
+    int left = store.getStock(ordinal);
+    long elapsed = picks.sum() - lastPick[ordinal];
+    double rate = elapsed <= 0 ? 0 : Math.max(0, lastStock[ordinal] - left) / (double) elapsed;
+    return demand.applyAsInt(store.getSku(ordinal)) + rate * LEAD_PICKS - left;
+  }
+
+  /** Returns the location of a shelf, as "(zone) (aisle) (rack) (level)". */
+  String locationOf(int ordinal) {
+    return store.getZone(ordinal) + " " + store.getAisle(ordinal) + " "
+        + store.getRack(ordinal) + " " + store.getLevel(ordinal);
+  }
+
+  /** A request to replenish one shelf. */
+  public class Task {
+    /** The number of the task. */
+    private final int taskId;
+    /** The ordinal of the shelf to replenish. */
+    private final int ordinal;
+    /** The shortfall when the task was last scored. */
+    private double shortfall;
+
+    /** Creates a task.
+     *
+     * @param taskId
+     *      The number of the task.
+     * @param ordinal
+     *      The ordinal of the shelf to replenish.
+     */
+    private Task(int taskId, int ordinal) {
+      this.taskId = taskId;
+      this.ordinal = ordinal;
+    }
+
+    /** Returns the number of the task. */
+    public int getTaskId() {
+      return taskId;
+    }
+
+    /** Returns the SKU to replenish. */
+    public String getSku() {
+      return store.getSku(ordinal);
+    }
+
+    /** Returns the location to replenish, as "(zone) (aisle) (rack) (level)". */
+    public String getLocation() {
+      return locationOf(ordinal);
+    }
+
+    @Override
+    public String toString() {
+      return getLocation() + " " + getSku();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** A buffered log output file that keeps count of its size, and can be rotated once it
+ * grows too large.
+ *
+ * <p>Rotating renames the file to (path).1, (path).1 to (path).2 and so on, deletes the
+ * oldest file beyond the number kept, and starts a new, empty file at the original path.
+ * Sinks check isFull() between records, so a record is never split across two files.
+ */
+public class RotatingLogFile extends OutputStream {
+
+  /** The path of the current log file. */
+  private final String filePath;
+  /** The size at which the file should be rotated, or 0 to never rotate. */
+  private final long maxBytes;
+  /** The number of rotated files kept next to the current one. */
+  private final int maxFiles;
+  /** The output stream of the current file. */
+  private OutputStream out;
+  /** The number of bytes written to the current file. */
+  private long size;
+
+  /** Opens a log file, overwriting any existing one.
+   *
+   * @param filePath
+   *      The path of the log file.
+   * @param maxBytes
+   *      The size at which the file should be rotated, or 0 to never rotate.
+   * @param maxFiles
+   *      The number of rotated files kept next to the current one.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public RotatingLogFile(String filePath, long maxBytes, int maxFiles) throws IOException {
+    this.filePath = filePath;
+    this.maxBytes = maxBytes;
+    this.maxFiles = maxFiles;
+    open();
+  }
+
+  /** Checks if the file has reached the size at which it should be rotated. */
+  public boolean isFull() {
+    return maxBytes > 0 && size >= maxBytes;
+  }
+
+  /** Returns the number of bytes written to the current file. */
+  public long size() {
+    return size;
+  }
+
+  /** Closes the current file, shifts it and the older rotated files along by one, and
+   * starts a new, empty file.
+   *
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void rotate() throws IOException {
+    out.close();
+    new File(filePath + "." + maxFiles).delete();
+    for (int i = maxFiles - 1; i >= 1; i--) {
+      File older = new File(filePath + "." + i);
+      if (older.exists()) {
+        older.renameTo(new File(filePath + "." + (i + 1)));
+      }
+    }
+    File current = new File(filePath);
+    if (maxFiles > 0) {
+      current.renameTo(new File(filePath + ".1"));
+    }
+    open();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    size++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    size += len;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  /** Starts writing a new, empty file at the log's path. */
+  private void open() throws IOException {
+    out = new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16);
+    size = 0;
+  }
+}
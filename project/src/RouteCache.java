@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Remembers the routes of recent pick requests, so a pick request of the same SKUs as one
+ * before it is routed without asking the RoutingStrategy again.
+ *
+ * <p>A route is looked up by the multiset of its SKUs, whatever order they come in: the
+ * ordinals of their shelves, sorted, with a hash of them worked out once. When the cache
+ * is full, the route used least recently is evicted.
+ *
+ * <p>Routes are only good for the layout they were planned on. A StockRoom's shelves stay
+ * where the traversal table put them for as long as it lives (a SlottingAdvisor's plan is
+ * only shelved by the next run), so the routes are kept for one StockRoom: if the cache is
+ * used with another, every route is dropped.
+ *
+ * <p>Not thread safe; each OrderHandler routes with its own.
+ */
+public class RouteCache implements RoutingStrategy {
+
+  /** The number of routes a cache holds by default. */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /** Plans the routes not in the cache. */
+  private final RoutingStrategy strategy;
+  /** The most routes held. */
+  private final int capacity;
+  /** The routes held, by their SKUs, least recently used first. */
+  private final Map<Key, List<String>> routes;
+  /** The StockRoom the routes were planned in, or null if none have been. */
+  private StockRoom stockRoom;
+  /** The number of routes found in the cache. */
+  private long hits = 0;
+  /** The number of routes planned by the strategy. */
+  private long misses = 0;
+  /** The number of routes evicted to make room for another. */
+  private long evictions = 0;
+  /** The number of times every route was dropped for another StockRoom. */
+  private long invalidations = 0;
+
+  /** Creates an empty cache.
+   *
+   * @param strategy
+   *      Plans the routes not in the cache.
+   * @param capacity
+   *      The most routes held.
+   * @throws IllegalArgumentException
+   *      If capacity is not positive.
+   */
+  public RouteCache(RoutingStrategy strategy, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Route cache capacity must be positive: " + capacity);
+    }
+    this.strategy = strategy;
+    this.capacity = capacity;
+    this.routes = new LinkedHashMap<Key, List<String>>(16, 0.75f, true) { // In access order
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+        if (size() > RouteCache.this.capacity) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /** Routes a pick request from the cache, or by the strategy if it is not there.
+   *
+   * @param skus
+   *      The SKUs to be picked.
+   * @param stockRoom
+   *      The StockRoom whose shelves hold them.
+   * @return
+   *      The location of each SKU, in the order they are to be picked. A new List each
+   *      time, which the caller may change.
+   */
+  @Override
+  public List<String> optimize(List<String> skus, StockRoom stockRoom) {
+    if (stockRoom != this.stockRoom) {
+      if (!routes.isEmpty()) {
+        routes.clear();
+        invalidations++;
+      }
+      this.stockRoom = stockRoom;
+    }
+    StockStore store = stockRoom.getStore();
+    int[] ordinals = new int[skus.size()];
+    for (int i = 0; i < ordinals.length; i++) {
+      ordinals[i] = store.ordinalOf(skus.get(i));
+      if (ordinals[i] < 0) { // Not in the StockRoom: left to the strategy, and not kept
+        misses++;
+        return strategy.optimize(skus, stockRoom);
+      }
+    }
+    Arrays.sort(ordinals);
+    Key key = new Key(ordinals);
+    List<String> route = routes.get(key);
+    if (route != null) {
+      hits++;
+    } else {
+      misses++;
+      route = new ArrayList<String>(strategy.optimize(skus, stockRoom));
+      routes.put(key, route);
+    }
+    return new ArrayList<String>(route);
+  }
+
+  /** Returns the strategy that plans the routes not in the cache. */
+  public RoutingStrategy getStrategy() {
+    return strategy;
+  }
+
+  /** Returns the most routes held. */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Returns the number of routes held. */
+  public int size() {
+    return routes.size();
+  }
+
+  /** Returns the number of routes found in the cache. */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Returns the number of routes planned by the strategy. */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Returns the number of routes evicted to make room for another. */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /** Returns the number of times every route was dropped for another StockRoom. */
+  public long getInvalidations() {
+    return invalidations;
+  }
+
+  /** The SKUs of a route: the sorted ordinals of their shelves. */
+  private static final class Key {
+    /** The ordinals of the shelves, sorted. */
+    private final int[] ordinals;
+    /** The hash of the ordinals. */
+    private final int hash;
+
+    /** Creates the key of sorted ordinals. */
+    private Key(int[] ordinals) {
+      this.ordinals = ordinals;
+      this.hash = Arrays.hashCode(ordinals);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key && ((Key) other).hash == hash
+          && Arrays.equals(((Key) other).ordinals, ordinals);
+    }
+  }
+}
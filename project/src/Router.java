@@ -0,0 +1,267 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Orders the shelves of a pick request into a route for the Picker, using the walking
+ * distances of a WarehouseLayout.
+ *
+ * <p>Zones are visited in name order. Within a zone, the heuristic is one of:
+ * <ul>
+ * <li>S_SHAPE: every aisle with a shelf to visit is walked from end to end, the first from
+ * the front, the next from the back, and so on.</li>
+ * <li>LARGEST_GAP: the first and last aisles are walked from end to end; each aisle in
+ * between is entered from the back as far as the largest gap between its shelves, on the
+ * way out along the back cross-aisle, and from the front up to that gap on the way back.
+ * </li>
+ * <li>NEAREST_NEIGHBOUR: the nearest shelf not yet visited is always visited next, then
+ * the route is improved by 2-opt: reversing any stretch of it that makes it shorter, until
+ * none does.</li>
+ * </ul>
+ *
+ * <p>The shelves are visited in a different order than Optimizer sorts them, so event files
+ * whose Pickers scan SKUs in sorted order do not replay under a Router.
+ */
+public class Router implements RoutingStrategy {
+
+  /** How a route is ordered. */
+  public enum Heuristic {
+    /** Walk each aisle from end to end, in alternating directions. */
+    S_SHAPE,
+    /** Walk the end aisles fully and the others up to their largest gap from each end. */
+    LARGEST_GAP,
+    /** Visit the nearest shelf next, then shorten the route by 2-opt. */
+    NEAREST_NEIGHBOUR
+  }
+
+  /** The most rounds of 2-opt improvement made on one route. */
+  private static final int TWO_OPT_ROUNDS = 50;
+
+  /** The walking distances between shelves. */
+  private final WarehouseLayout layout;
+  /** How routes are ordered. */
+  private final Heuristic heuristic;
+
+  /** Creates a Router.
+   *
+   * @param layout
+   *      The walking distances between shelves.
+   * @param heuristic
+   *      How routes are ordered.
+   */
+  public Router(WarehouseLayout layout, Heuristic heuristic) {
+    this.layout = layout;
+    this.heuristic = heuristic;
+  }
+
+  /** Orders shelves into a route from Marshalling and back.
+   *
+   * @param shelves
+   *      The ordinals of the shelves to visit; a shelf may appear more than once.
+   * @return
+   *      The same ordinals, in the order they are to be visited.
+   */
+  public int[] route(int[] shelves) {
+    if (heuristic == Heuristic.NEAREST_NEIGHBOUR) {
+      int[] route = nearestNeighbour(shelves);
+      twoOpt(route);
+      return route;
+    }
+    // Sorted by zone, aisle then rack, so each zone and each aisle is a run
+    Integer[] sorted = new Integer[shelves.length];
+    for (int i = 0; i < shelves.length; i++) {
+      sorted[i] = shelves[i];
+    }
+    Arrays.sort(sorted, (a, b) -> layout.zoneOf(a) != layout.zoneOf(b)
+        ? layout.zoneOf(a) - layout.zoneOf(b) : layout.aisleOf(a) != layout.aisleOf(b)
+        ? layout.aisleOf(a) - layout.aisleOf(b) : layout.rackOf(a) - layout.rackOf(b));
+    int[] route = new int[shelves.length];
+    int length = 0;
+    for (int start = 0; start < sorted.length;) {
+      int end = start;
+      while (end < sorted.length && layout.zoneOf(sorted[end]) == layout.zoneOf(sorted[start])) {
+        end++;
+      }
+      length = heuristic == Heuristic.S_SHAPE ? sShape(sorted, start, end, route, length)
+          : largestGap(sorted, start, end, route, length);
+      start = end;
+    }
+    return route;
+  }
+
+  /** Routes the SKUs of a pick request by their shelves in the StockRoom.
+   *
+   * @param skus
+   *      The SKUs to be picked.
+   * @param stockRoom
+   *      The StockRoom this Router's layout was modelled on.
+   * @return
+   *      The location of each SKU, in the order they are to be picked.
+   */
+  @Override
+  public List<String> optimize(List<String> skus, StockRoom stockRoom) {
+    StockStore store = stockRoom.getStore();
+    int[] shelves = new int[skus.size()];
+    for (int i = 0; i < shelves.length; i++) {
+      shelves[i] = store.ordinalOf(skus.get(i));
+    }
+    List<String> locations = new ArrayList<String>(shelves.length);
+    for (int shelf : route(shelves)) {
+      locations.add(stockRoom.getLocation(store.getSku(shelf)));
+    }
+    return locations;
+  }
+
+  /** Returns the walking distances this Router routes by. */
+  public WarehouseLayout getLayout() {
+    return layout;
+  }
+
+  /** Returns how this Router orders routes. */
+  public Heuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /** Routes the shelves of one zone by S-shape.
+   *
+   * @param sorted
+   *      The shelves, sorted by zone, aisle and rack.
+   * @param start
+   *      The first of the zone's shelves in sorted.
+   * @param end
+   *      After the last of the zone's shelves in sorted.
+   * @param route
+   *      The route, to add the zone's shelves to.
+   * @param length
+   *      The number of shelves in the route so far.
+   * @return
+   *      The number of shelves in the route afterwards.
+   */
+  private int sShape(Integer[] sorted, int start, int end, int[] route, int length) {
+    boolean fromFront = true;
+    for (int first = start; first < end;) {
+      int last = endOfAisle(sorted, first, end);
+      if (fromFront) {
+        for (int i = first; i < last; i++) {
+          route[length++] = sorted[i];
+        }
+      } else {
+        for (int i = last - 1; i >= first; i--) {
+          route[length++] = sorted[i];
+        }
+      }
+      fromFront = !fromFront;
+      first = last;
+    }
+    return length;
+  }
+
+  /** Routes the shelves of one zone by largest gap. See sShape for the parameters. */
+  private int largestGap(Integer[] sorted, int start, int end, int[] route, int length) {
+    int firstEnd = endOfAisle(sorted, start, end);
+    for (int i = start; i < firstEnd; i++) { // First aisle, front to back
+      route[length++] = sorted[i];
+    }
+    if (firstEnd == end) { // Only one aisle: in and back out
+      return length;
+    }
+    int lastStart = firstEnd;
+    while (endOfAisle(sorted, lastStart, end) != end) {
+      lastStart = endOfAisle(sorted, lastStart, end);
+    }
+    int back = layout.racksIn(layout.zoneOf(sorted[start]));
+    int[] gaps = new int[end - start]; // Where each middle aisle splits, by its first index
+    for (int first = firstEnd; first < lastStart;) { // Middle aisles from the back, left first
+      int last = endOfAisle(sorted, first, end);
+      int split = last; // Index of the first shelf picked from the back
+      int largest = back - layout.rackOf(sorted[last - 1]);
+      for (int i = last - 1; i >= first; i--) {
+        int below = i == first ? layout.rackOf(sorted[i]) + 1
+            : layout.rackOf(sorted[i]) - layout.rackOf(sorted[i - 1]);
+        if (below > largest) {
+          largest = below;
+          split = i;
+        }
+      }
+      gaps[first - start] = split;
+      for (int i = last - 1; i >= split; i--) {
+        route[length++] = sorted[i];
+      }
+      first = last;
+    }
+    for (int i = end - 1; i >= lastStart; i--) { // Last aisle, back to front
+      route[length++] = sorted[i];
+    }
+    for (int last = lastStart; last > firstEnd;) { // Middle aisles from the front, right first
+      int first = last - 1;
+      while (first > firstEnd && layout.aisleOf(sorted[first - 1])
+          == layout.aisleOf(sorted[last - 1])) {
+        first--;
+      }
+      for (int i = first; i < gaps[first - start]; i++) {
+        route[length++] = sorted[i];
+      }
+      last = first;
+    }
+    return length;
+  }
+
+  /** Finds the end of the run of shelves in the same aisle as sorted[first], before end. */
+  private int endOfAisle(Integer[] sorted, int first, int end) {
+    int last = first + 1;
+    while (last < end && layout.aisleOf(sorted[last]) == layout.aisleOf(sorted[first])) {
+      last++;
+    }
+    return last;
+  }
+
+  /** Orders shelves by always visiting the nearest one not yet visited, from Marshalling. */
+  private int[] nearestNeighbour(int[] shelves) {
+    int[] route = shelves.clone();
+    int at = WarehouseLayout.DEPOT;
+    for (int i = 0; i < route.length; i++) {
+      int nearest = i;
+      int nearestDistance = Integer.MAX_VALUE;
+      for (int j = i; j < route.length; j++) {
+        int distance = layout.distance(at, route[j]);
+        if (distance < nearestDistance) {
+          nearest = j;
+          nearestDistance = distance;
+        }
+      }
+      int swap = route[i];
+      route[i] = route[nearest];
+      route[nearest] = swap;
+      at = route[i];
+    }
+    return route;
+  }
+
+  /** Shortens a route from Marshalling and back by reversing stretches of it, for as long as
+   * one can be found that makes it shorter.
+   *
+   * @param route
+   *      The route, improved in place.
+   */
+  private void twoOpt(int[] route) {
+    boolean improved = true;
+    for (int round = 0; improved && round < TWO_OPT_ROUNDS; round++) {
+      improved = false;
+      for (int i = 0; i < route.length - 1; i++) {
+        int before = i == 0 ? WarehouseLayout.DEPOT : route[i - 1];
+        for (int j = i + 1; j < route.length; j++) {
+          int after = j == route.length - 1 ? WarehouseLayout.DEPOT : route[j + 1];
+          int change = layout.distance(before, route[j]) + layout.distance(route[i], after)
+              - layout.distance(before, route[i]) - layout.distance(route[j], after);
+          if (change < 0) { // Reverse route[i..j]
+            for (int a = i, b = j; a < b; a++, b--) {
+              int swap = route[a];
+              route[a] = route[b];
+              route[b] = swap;
+            }
+            improved = true;
+          }
+        }
+      }
+    }
+  }
+}
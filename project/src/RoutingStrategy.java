@@ -0,0 +1,94 @@
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/** Orders the SKUs of a pick request into the route its Picker walks.
+ *
+ * <p>Each Warehouse's OrderHandler routes with one strategy, chosen by name in
+ * settings.txt or with --route (see help.txt):
+ * <ul>
+ * <li>sort: Optimizer.optimize, the default; by SKU.</li>
+ * <li>s-shape, largest-gap, nearest-neighbour: a Router with that heuristic, by walking
+ * distance on the StockRoom's layout.</li>
+ * <li>The name of any other class implementing RoutingStrategy with a public constructor
+ * taking no arguments, such as an adapter to a generic traversal program.</li>
+ * </ul>
+ *
+ * <p>A route should only depend on the SKUs, in any order, and where they are shelved: a
+ * RouteCache in front of the strategy hands out the same route again for the same SKUs.
+ */
+@FunctionalInterface
+public interface RoutingStrategy {
+
+  /** The names of the strategies built in. */
+  String[] BUILT_IN = {"sort", "s-shape", "largest-gap", "nearest-neighbour"};
+
+  /** Orders the SKUs of a pick request into a route.
+   *
+   * @param skus
+   *      The SKUs to be picked; may be reordered by the strategy.
+   * @param stockRoom
+   *      The StockRoom whose shelves hold them.
+   * @return
+   *      The location of each SKU, as "(zone) (aisle) (rack) (level) (SKU)", in the order
+   *      they are to be picked.
+   */
+  List<String> optimize(List<String> skus, StockRoom stockRoom);
+
+  /** Creates the strategy of a name.
+   *
+   * @param name
+   *      A built-in strategy, or the name of a class implementing RoutingStrategy.
+   * @param stockRoom
+   *      The StockRoom the strategy will route in.
+   * @return
+   *      The strategy.
+   * @throws IllegalArgumentException
+   *      If there is no such strategy.
+   */
+  static RoutingStrategy named(String name, StockRoom stockRoom) {
+    switch (name) {
+      case "sort":
+        return Optimizer::optimize;
+      case "s-shape":
+      case "largest-gap":
+      case "nearest-neighbour":
+        return new Router(new WarehouseLayout(stockRoom.getStore()),
+            Router.Heuristic.valueOf(name.toUpperCase().replace('-', '_')));
+      default:
+        try {
+          return Class.forName(name).asSubclass(RoutingStrategy.class)
+              .getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError exception) {
+          throw new IllegalArgumentException("No routing strategy named " + name, exception);
+        }
+    }
+  }
+
+  /** Checks that a strategy of a name can be created, without creating it.
+   *
+   * @param name
+   *      A built-in strategy, or the name of a class implementing RoutingStrategy.
+   * @return
+   *      Is there such a strategy? A class must be public and concrete, with a public
+   *      constructor taking no arguments.
+   */
+  static boolean exists(String name) {
+    for (String builtIn : BUILT_IN) {
+      if (builtIn.equals(name)) {
+        return true;
+      }
+    }
+    try {
+      Class<?> strategy = Class.forName(name);
+      if (!RoutingStrategy.class.isAssignableFrom(strategy)
+          || Modifier.isAbstract(strategy.getModifiers()) // Interfaces are abstract too
+          || !Modifier.isPublic(strategy.getModifiers())) {
+        return false;
+      }
+      strategy.getConstructor();
+      return true;
+    } catch (ReflectiveOperationException | LinkageError exception) {
+      return false;
+    }
+  }
+}
@@ -23,12 +23,16 @@ public class Sequencer extends Worker {
   
   /** After scanning is complete, add pallets ready for loading. */
   public void complete() {
+    if (getPickRequest() == null) { // A pick request, full or partial, has not been received
+      Simulator.fm.log(2, "Sequencer {}: No load to sequence. Complete request ignored.", name);
+      return;
+    }
     resetScan();
     busy = false;
     // from sequencerQueue to loaderQueue
     this.myWarehouse.getMarshalling().addLoaderRequest(getPickRequest().clone());
-    System.out.println("Sequencer: load sequenced and passed scanning, passing to loader.");
-    System.out.println("Sequencer: passing SKUs: " + getPickRequest().getSkuPackage());
+    Simulator.fm.logInfo(3, "Sequencer: load sequenced and passed scanning, passing to loader.");
+    Simulator.fm.log(3, "Sequencer: passing SKUs: {}", getPickRequest().getSkuPackage());
     setPickRequest(null);
   }
 }
@@ -4,6 +4,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import exception.BadFileNameException;
 
@@ -15,11 +19,37 @@ import exception.BadFileNameException;
  */
 public class Simulator {
 
-  /**A counter to keep track of the number of Warehouses in the Simulation.
-   * 
-   * <p>Used to determine which Warehouse is which when files are saved.
-   */
-  private static int warehouseCounter = 0;
+  /** The number of Warehouses to simulate at the same time; 1 runs them one by one. */
+  private static int threadCount = 1;
+  /** What to do when the async log buffer is full, or null to log synchronously. */
+  private static AsyncLogger.OverflowPolicy logPolicy;
+  /** The least severe records logged: 1 errors, 2 warnings, 3 info. */
+  private static int logLevel = 3;
+  /** The format of the log file: xml, text or binary. */
+  private static String logFormat = "xml";
+  /** The size at which text and binary log files are rotated, or 0 to never rotate. */
+  private static long logRotateSize = 0;
+  /** The number of rotated log files kept next to the current one. */
+  private static final int LOG_FILES_KEPT = 5;
+  /** How each StockRoom keeps its shelves: object, array, offheap, concurrent or mapped. */
+  private static String stockStore = "object";
+  /** The number of stock changes journaled between checkpoints, or 0 to keep no journal. */
+  private static int stockJournalInterval = 0;
+  /** The batch size of Warehouses that do not set their own: a number of orders,
+   * "adaptive" or "adaptive:(most orders)". */
+  private static String batchSize = String.valueOf(OrderHandler.DEFAULT_BATCH_SIZE);
+  /** The most events an order waits for its batch to fill, or 0 to always wait. */
+  private static int flushAge = 0;
+  /** The number of orders planned together in a wave, or 0 to batch orders as received. */
+  private static int waveSize = 0;
+  /** The RoutingStrategy of Warehouses that do not set their own. */
+  private static String route = "sort";
+  /** The number of routes each Warehouse remembers, or 0 to plan every route. */
+  private static int routeCacheSize = RouteCache.DEFAULT_CAPACITY;
+  /** Does each Warehouse recommend where its SKUs should be shelved? */
+  private static boolean slotting = false;
+  /** The number of records the async log buffer can hold. */
+  private static final int LOG_BUFFER_SIZE = 8192;
   /** An array containing the ID's of all Warehouses in the system. */
   private static ArrayList<Warehouse> warehouseList = new ArrayList<Warehouse>();
   /**A FileManager in charge of reading and logging for this simulator. */
@@ -29,8 +59,31 @@ public class Simulator {
 
   /** Initializes the Simulator and creates a FileManager class. */
   public Simulator() {
+    this("xml", 0, null);
+  }
+
+  /** Initializes the Simulator and creates a FileManager class.
+   * 
+   * @param logFormat
+   *      The format of the log file: xml (infolog.txt), text (infolog.txt) or binary
+   *      (infolog.bin).
+   * @param logRotateSize
+   *      The size at which text and binary log files are rotated, or 0 to never rotate.
+   * @param logPolicy
+   *      What to do when the async log buffer is full, or null to log synchronously.
+   */
+  private Simulator(String logFormat, long logRotateSize, AsyncLogger.OverflowPolicy logPolicy) {
     try { // Creating FileManager / Logger
-      fm = new FileManager("infolog.txt");
+      LogSink sink;
+      switch (logFormat) {
+        case "text": sink = new TextLogSink("infolog.txt", logRotateSize, LOG_FILES_KEPT);
+          break;
+        case "binary": sink = new BinaryLogSink("infolog.bin", logRotateSize, LOG_FILES_KEPT);
+          break;
+        default: sink = new XmlLogSink("infolog.txt", logPolicy != null);
+          break;
+      }
+      fm = new FileManager(sink, logPolicy, LOG_BUFFER_SIZE);
     } catch (IOException exception) {
       // No logger available to handle exception, process crash.
       exception.printStackTrace();
@@ -39,58 +92,278 @@ public class Simulator {
 
   /** Runs the Warehouse Simulator.
    * 
-   * <p>Warehouses are created, then run sequentially.
+   * <p>Warehouses are created, then run sequentially, or in parallel when the
+   * --threads=(count) option is given.
    * 
    * @param args
-   *      Arguments to pass to the main() method. Currently not utilized.
+   *      The settings file to read (see help.txt), followed by any options.
    * @throws IOException
    *      Indicates that an I/O exception has occurred.
    */
   public static void main(String[] args) throws IOException {
-    Simulator simulator = new Simulator();
-    fm.logInfo(3, "::::::::::Warehouse Simulator 2017::::::::::"); 
+    // Options are read before the FileManager exists, as some of them configure it.
+    ArrayList<String> warnings = new ArrayList<String>();
     String file0 = "settings.txt";
+    readfrom = "default";
+    threadCount = 1;
+    logPolicy = null;
+    logLevel = 3;
+    logFormat = "xml";
+    logRotateSize = 0;
+    stockStore = "object";
+    stockJournalInterval = 0;
+    batchSize = String.valueOf(OrderHandler.DEFAULT_BATCH_SIZE);
+    flushAge = 0;
+    waveSize = 0;
+    route = "sort";
+    routeCacheSize = RouteCache.DEFAULT_CAPACITY;
+    slotting = false;
+    if (args != null) { // Argument(s) supplied
+      for (String arg : args) {
+        if (arg.startsWith("--")) { // Check options
+          readOption(arg, warnings);
+        } else if (arg.matches("^\\w+\\.txt$")) { // Check settings.txt
+          file0 = arg;
+          readfrom = "console";
+        } else { // Invalid filename, use default.
+          warnings.add("Simulator: Supplied settings filename invalid, defaulting to settings.txt.");
+        }
+      }
+    }
+    Simulator simulator = new Simulator(logFormat, logRotateSize, logPolicy);
+    fm.setThreshold(logLevel);
+    fm.logInfo(3, "::::::::::Warehouse Simulator 2017::::::::::"); 
+    for (String warning : warnings) {
+      fm.logInfo(2, warning);
+    }
+    try {
+      simulator.simulate(file0);
+    } finally {
+      fm.close(); // Nothing logged may be lost, even if a Warehouse failed.
+    }
+  }
+
+  /** Generates the Warehouses and runs them.
+   * 
+   * @param file0
+   *      The settings file to read.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  private void simulate(String file0) throws IOException {
     String file1 = "TestFile1.txt"; // Default files (used when running demo version)
     String file2 = "initial.csv";
     String file3 = "traversal_table.csv";
     String file4 = "translation.csv";
     // boolean useSettings = false; // TODO: Switch back to this if you want demo version
-    if (args.length > 0) { // Argument(s) supplied
-      // Check settings.txt
-      if (args[0].matches("^\\w+\\.txt$")) {
-        file0 = args[0];
-        readfrom = "console";
-      } else { // Invalid filename, use default.
-        fm.logInfo(2, "Simulator: Supplied settings filename invalid, defaulting to settings.txt.");
-        readfrom = "default";
-      }
-    }
     boolean useSettings = fm.checkFile(file0); // Check for settings.txt file
-    warehouseCounter = 0;
+    warehouseList.clear();
     fm.logInfo(3, "Simulator: Generating Warehouses...");
     if (useSettings) {
       fm.logInfo(3, "Simulator: Detected " + file0 + ", reading...");
-      simulator.readSetting(file0);
+      readSetting(file0);
     } else {
       fm.logInfo(2, "Simulator: Warehouse Simulator 2017 could not access " + file0  
           + " Please ensure settings.txt is in the root folder. See help.txt for"
           + " more information. Running demo simulation...");
-      simulator.generateWarehouse( // Makes a single warehouse
-          file1, file2, file3, file4);
+      generateWarehouse( // Makes a single warehouse
+          file1, file2, file3, file4, batchSize, route);
     }
-    fm.logInfo(3, "Simulator: Opening Simulation: Beginning with Warehouse 0...");
-    for (Warehouse i : warehouseList) { // Runs the Warehouses
-      i.runWarehouse();
-      fm.logInfo(3, "~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
-      fm.logInfo(3, "############################################");
-      fm.logInfo(3, "Warehouse " + warehouseCounter + " closing...");
-      warehouseCounter++;
+    if (threadCount > 1) {
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+      try {
+        runWarehouses(executor);
+      } finally {
+        executor.shutdown();
+      }
+    } else {
+      fm.logInfo(3, "Simulator: Opening Simulation: Beginning with Warehouse 0...");
+      for (Warehouse i : warehouseList) { // Runs the Warehouses
+        runWarehouse(i);
+      }
     }
     fm.logInfo(3, "~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
     fm.logInfo(3, "############################################");
     fm.logInfo(3, "All Warehouses simulated. Closing program...");
   }
 
+  /** Runs all generated Warehouses at the same time on the given executor, and waits for
+   * them to finish.
+   * 
+   * <p>Warehouses share no state, and each one writes its own finalN.csv and ordersN.csv.
+   * 
+   * @param executor
+   *      The executor to run the Warehouses on, one task per Warehouse.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred in one of the Warehouses.
+   */
+  public static void runWarehouses(ExecutorService executor) throws IOException {
+    fm.logInfo(3, "Simulator: Opening Simulation: Running " + warehouseList.size()
+        + " Warehouses in parallel...");
+    ArrayList<Future<Void>> results = new ArrayList<Future<Void>>();
+    for (Warehouse i : warehouseList) {
+      results.add(executor.submit(() -> {
+        runWarehouse(i);
+        return null;
+      }));
+    }
+    for (Future<Void> result : results) {
+      try {
+        result.get();
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for Warehouses to finish.", exception);
+      } catch (ExecutionException exception) {
+        if (exception.getCause() instanceof IOException) {
+          throw (IOException) exception.getCause();
+        }
+        throw new IOException("A Warehouse failed to run.", exception.getCause());
+      }
+    }
+  }
+
+  /** Runs a single Warehouse to the end of its events file.
+   * 
+   * @param warehouse
+   *      The Warehouse to run.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  private static void runWarehouse(Warehouse warehouse) throws IOException {
+    warehouse.runWarehouse();
+    fm.logInfo(3, "~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
+    fm.logInfo(3, "############################################");
+    fm.logInfo(3, "Warehouse " + warehouse.getWarehouseId() + " closing...");
+  }
+
+  /** Reads a command line option of the form --(name)=(value).
+   * 
+   * <p>See help.txt for the available options.
+   * 
+   * @param option
+   *      The option, as supplied on the command line.
+   * @param warnings
+   *      Collects any problems with the option, to be logged once logging is set up.
+   */
+  private static void readOption(String option, ArrayList<String> warnings) {
+    String[] values = option.substring(2).split("=", 2);
+    String value = values.length > 1 ? values[1] : "";
+    switch (values[0]) {
+      case "threads":
+        if (value.matches("^\\d+$")) {
+          threadCount = Math.max(1, Integer.parseInt(value));
+        } else {
+          warnings.add("Simulator: --threads needs a number, running Warehouses one by one.");
+        }
+        break;
+      case "async-log":
+        try {
+          logPolicy = AsyncLogger.OverflowPolicy.valueOf(value.toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException exception) {
+          warnings.add("Simulator: --async-log needs block, drop-oldest or sample,"
+              + " logging synchronously.");
+        }
+        break;
+      case "log-level":
+        switch (value) {
+          case "error": logLevel = 1;
+            break;
+          case "warning": logLevel = 2;
+            break;
+          case "info": logLevel = 3;
+            break;
+          default: warnings.add("Simulator: --log-level needs error, warning or info,"
+              + " logging everything.");
+            break;
+        }
+        break;
+      case "log-format":
+        if (value.matches("^(xml|text|binary)$")) {
+          logFormat = value;
+        } else {
+          warnings.add("Simulator: --log-format needs xml, text or binary, logging as xml.");
+        }
+        break;
+      case "log-rotate":
+        if (value.matches("^\\d+[kKmMgG]?$")) {
+          char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+          int shift = unit == 'k' ? 10 : unit == 'm' ? 20 : unit == 'g' ? 30 : 0;
+          String digits = shift == 0 ? value : value.substring(0, value.length() - 1);
+          logRotateSize = Long.parseLong(digits) << shift;
+        } else {
+          warnings.add("Simulator: --log-rotate needs a size such as 500k or 10m,"
+              + " log files are not rotated.");
+        }
+        break;
+      case "stock-store":
+        if (value.matches("^(object|array|offheap|concurrent|mapped)$")) {
+          stockStore = value;
+        } else {
+          warnings.add("Simulator: --stock-store needs object, array, offheap, concurrent or"
+              + " mapped, using object.");
+        }
+        break;
+      case "batch-size":
+        if (isBatchSize(value)) {
+          batchSize = value;
+        } else {
+          warnings.add("Simulator: --batch-size needs a number of orders, adaptive or"
+              + " adaptive:<orders>, of at most " + Truck.CAPACITY + " orders, using "
+              + batchSize + ".");
+        }
+        break;
+      case "flush-age":
+        if (value.matches("^\\d{1,9}$")) {
+          flushAge = Integer.parseInt(value);
+        } else {
+          warnings.add("Simulator: --flush-age needs a number of events, orders wait for"
+              + " full batches.");
+        }
+        break;
+      case "wave":
+        if (value.matches("^\\d{1,5}$")) {
+          waveSize = Integer.parseInt(value);
+        } else {
+          warnings.add("Simulator: --wave needs a number of orders, orders are batched as"
+              + " received.");
+        }
+        break;
+      case "route":
+        if (RoutingStrategy.exists(value)) {
+          route = value;
+        } else {
+          warnings.add("Simulator: --route needs sort, s-shape, largest-gap,"
+              + " nearest-neighbour or a RoutingStrategy class, routing by sort.");
+        }
+        break;
+      case "route-cache":
+        if (value.matches("^\\d{1,7}$")) {
+          routeCacheSize = Integer.parseInt(value);
+        } else {
+          warnings.add("Simulator: --route-cache needs a number of routes, using "
+              + routeCacheSize + ".");
+        }
+        break;
+      case "slotting":
+        slotting = true;
+        break;
+      case "stock-journal":
+        if (value.isEmpty()) {
+          stockJournalInterval = JournaledStockStore.CHECKPOINT_INTERVAL;
+        } else if (value.matches("^[1-9]\\d{0,8}$")) {
+          stockJournalInterval = Integer.parseInt(value);
+        } else {
+          warnings.add("Simulator: --stock-journal needs a number of changes between"
+              + " checkpoints, using " + JournaledStockStore.CHECKPOINT_INTERVAL + ".");
+          stockJournalInterval = JournaledStockStore.CHECKPOINT_INTERVAL;
+        }
+        break;
+      default:
+        warnings.add("Simulator: Unknown option " + option + " ignored. See help.txt.");
+        break;
+    }
+  }
+
   /** Generates Warehouses depending on the contents of settings.txt
    * 
    * <p>Precondition: if setting.txt exists, then the content of the file 
@@ -110,7 +383,7 @@ public class Simulator {
       if (i.length > 0) { // Checks that the line isn't empty
         
         // Confirming file names in settings.txt...
-        if (!i[0].matches("^\\w+\\.txt$")) { // Checking Orders.txt filename
+        if (!i[0].matches("^\\w+\\.(txt|bin)$")) { // Checking Orders.txt filename
           fm.logException(new BadFileNameException(), "Error: The specified order.txt"
               + " filename on line " + lineNum + " is invalid. Please refer to help.txt.");
         }
@@ -148,7 +421,25 @@ public class Simulator {
           file = new File(i[4], i[j]);
           i[j] = file.getPath();
         } // Creates a Warehouse using these input locations...
-        this.generateWarehouse(i[0], i[1], i[2], i[3]);
+        String warehouseBatchSize = batchSize;
+        if (i.length > 5) { // Optional batch size for this Warehouse
+          if (isBatchSize(i[5])) {
+            warehouseBatchSize = i[5];
+          } else {
+            fm.logInfo(2, "Simulator: The batch size on line " + lineNum + " is invalid,"
+                + " using " + batchSize + ". Please refer to help.txt.");
+          }
+        }
+        String warehouseRoute = route;
+        if (i.length > 6) { // Optional routing strategy for this Warehouse
+          if (RoutingStrategy.exists(i[6])) {
+            warehouseRoute = i[6];
+          } else {
+            fm.logInfo(2, "Simulator: The routing strategy on line " + lineNum + " is invalid,"
+                + " using " + route + ". Please refer to help.txt.");
+          }
+        }
+        this.generateWarehouse(i[0], i[1], i[2], i[3], warehouseBatchSize, warehouseRoute);
         
       } else {
         // TODO: STUB - any method for ignored lines
@@ -161,51 +452,144 @@ public class Simulator {
    * Creates a warehouse if the specified files exist.
    * 
    * @param orderFilePath
-   *      The path to the events file (.txt).
+   *      The path to the events file (.txt, or .bin for a binary event log).
    * @param initFilePath
-   *      The path to the initial layout file (.csv).
+   *      The path to the initial layout file (.csv), which a mapped store need not have once
+   *      it has saved the initial stock in stockN.dat.
    * @param traversalPath
    *      The path to the traversal file (.csv).
    * @param translationPath
    *      The path to the order translation file (.csv).
+   * @param batchSize
+   *      The number of orders in each pick request, "adaptive" or "adaptive:(most orders)".
+   * @param route
+   *      The name of the RoutingStrategy of the Warehouse.
    * @throws FileNotFoundException 
    *      If a file doesn't exist, this error will be thrown.
    * @throws IOException
    *      Indicates that an I/O exception has occurred.
    */
   private void generateWarehouse(String orderFilePath, String initFilePath, String traversalPath,
-      String translationPath) throws FileNotFoundException {
-    ArrayList<String> order = fm.readFromFile(orderFilePath);
+      String translationPath, String batchSize, String route) throws FileNotFoundException {
+    EventSource order = fm.openEventSource(orderFilePath);
     ArrayList<String> traversal = fm.readFromFile(traversalPath);
     ArrayList<String> trans = fm.readFromFile(translationPath);
-    ArrayList<String> initial = fm.readFromFile(initFilePath);
+    ArrayList<String> initial;
+    String savedStock = "stock" + warehouseList.size() + ".dat";
+    if (stockStore.equals("mapped") && !new File(initFilePath).exists()
+        && new File(savedStock).exists()) {
+      fm.logInfo(3, "Warehouse Simulator 2017 did not detect an initial stock file "
+            + "for Warehouse number " + warehouseList.size() + ". The simulation will use"
+            + " the initial stock saved in " + savedStock + ", or assume all shelves have"
+            + " been fully stocked if it was saved for other shelves.");
+      initial = new ArrayList<String>(); // Restored by the MappedStockStore
+    } else {
+      initial = fm.readFromFile(initFilePath);
+    }
     if (order == null || traversal == null || trans == null) {
+      if (order != null) { // This Warehouse will not be run, release the events file.
+        order.close();
+      }
       fm.logInfo(1, "Warehouse Simulator 2017 could not access the necessary files " 
-              + "to simulate Warehouse number " + warehouseCounter + ". Please check to see if the" 
+              + "to simulate Warehouse number " + warehouseList.size() + ". Please check to see if the" 
               + " all files are in their specified locations.");
       // TODO: Exception??
     } else if (initial == null) {
       fm.logInfo(2, "Warehouse Simulator 2017 did not detect an initial stock file " 
-            + "for Warehouse number " + warehouseCounter + ". The simulation will assume" 
+            + "for Warehouse number " + warehouseList.size() + ". The simulation will assume" 
             + " all shelves have been fully stocked.");
+      order.close();
     } else {
-      Warehouse house = new Warehouse(order, initial, traversal, trans);
+      Warehouse house = new Warehouse(warehouseList.size(), order, initial, traversal, trans,
+          newStockStore(traversal.size(), warehouseList.size()));
+      boolean adaptive = batchSize.startsWith("adaptive");
+      String orders = adaptive ? batchSize.substring("adaptive".length()).replace(":", "")
+          : batchSize;
+      house.getOrderHandler().setBatchSize(orders.isEmpty() ? OrderHandler.DEFAULT_BATCH_SIZE
+          : Integer.parseInt(orders), adaptive);
+      house.getOrderHandler().setMaxOrderAge(flushAge);
+      house.getOrderHandler().setWaveSize(waveSize);
+      RoutingStrategy routing;
+      try {
+        routing = RoutingStrategy.named(route, house.getStockRoom());
+      } catch (IllegalArgumentException exception) { // Its constructor failed
+        fm.logInfo(2, "Simulator: The routing strategy " + route + " could not be created"
+            + " for Warehouse number " + warehouseList.size() + ", routing by sort.");
+        routing = Optimizer::optimize;
+      }
+      house.getOrderHandler().setRoutingStrategy(routeCacheSize == 0 ? routing
+          : new RouteCache(routing, routeCacheSize));
+      if (slotting) {
+        house.getStockRoom().setSlottingAdvisor(
+            new SlottingAdvisor(house.getStockRoom().getStore()));
+      }
       warehouseList.add(house);
     }
   }
 
-  /** Write a string array into an CSV file with fileName.
+  /** Checks a batch size: a number of orders, "adaptive" or "adaptive:(most orders)", of
+   * at most the Truck.CAPACITY orders a pick request is loaded onto.
+   * 
+   * @param value
+   *      The batch size.
+   * @return
+   *      Is it valid?
+   */
+  private static boolean isBatchSize(String value) {
+    if (!value.matches("^(adaptive(:[1-9]\\d{0,3})?|[1-9]\\d{0,3})$")) {
+      return false;
+    }
+    String orders = value.replace("adaptive", "").replace(":", "");
+    return orders.isEmpty() || Integer.parseInt(orders) <= Truck.CAPACITY;
+  }
+
+  /** Creates an empty StockStore of the kind chosen with --stock-store, journaled to
+   * stockN.journal and stockN.checkpoint if --stock-journal was given. A mapped store
+   * keeps its stock in stockN.dat.
+   * 
+   * @param shelves
+   *      The number of shelves expected, from the traversal table.
+   * @param warehouseId
+   *      The number of the Warehouse the store is for.
+   * @return
+   *      The StockStore.
+   */
+  private static StockStore newStockStore(int shelves, int warehouseId) {
+    StockStore store;
+    switch (stockStore) {
+      case "array": store = new ArrayStockStore(shelves, false);
+        break;
+      case "offheap": store = new ArrayStockStore(shelves, true);
+        break;
+      case "concurrent": store = new ConcurrentStockStore(shelves);
+        break;
+      case "mapped": store = new MappedStockStore(shelves, "stock" + warehouseId + ".dat");
+        break;
+      default: store = new ObjectStockStore();
+        break;
+    }
+    if (stockJournalInterval > 0 && !(store instanceof MappedStockStore)) { // Saved anyway
+      store = new JournaledStockStore(store, "stock" + warehouseId, stockJournalInterval);
+    }
+    return store;
+  }
+
+  /** Write a string array into an CSV file with fileName, numbered after the Warehouse
+   * it belongs to (final.csv becomes finalN.csv).
    * 
    * @param entry
    *      The contents to be written to the file.
    * @param fileName
    *      The specified filename for the .csv file.
+   * @param warehouseId
+   *      The number of the Warehouse the file belongs to.
    * @throws IOException
    *      Indicates that an I/O exception has occurred.
    */
-  protected static void writeFile(ArrayList<String> entry, String fileName) throws IOException {
+  protected static void writeFile(ArrayList<String> entry, String fileName, int warehouseId)
+      throws IOException {
     String[] fileArr = fileName.split("\\.");
-    fileName = fileArr[0] + warehouseCounter + "." + fileArr[1];
+    fileName = fileArr[0] + warehouseId + "." + fileArr[1];
     PrintWriter outFile = new PrintWriter(new FileWriter(fileName));
     for (String i : entry) {
       outFile.println(i);
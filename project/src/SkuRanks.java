@@ -0,0 +1,145 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** The sort order of every SKU in a StockStore, and the location of each, worked out once
+ * so that Optimizer can route a pick request without parsing or comparing Strings.
+ *
+ * <p>Each shelf is given a dense rank, from 0, in each of the two orders Optimizer sorts
+ * by:
+ * <ul>
+ * <li>By name: the natural order of the SKUs as Strings. (A10 &lt; A9)</li>
+ * <li>By value: SKUs made only of digits by the number they spell, (9 &lt; 10) then any
+ * other SKUs by name. SKUs of the same value, such as 09 and 9, are ordered by name.</li>
+ * </ul>
+ * Ties between shelves of a SKU laid out twice are broken by ordinal, so no two shelves
+ * share a rank, and sorting the ranks of a pick request's shelves sorts its SKUs.
+ */
+public class SkuRanks {
+
+  /** Orders SKUs by the number they spell, SKUs that are not numbers last, then by name. */
+  private static final Comparator<String> BY_VALUE = (a, b) -> {
+    String x = digits(a);
+    String y = digits(b);
+    if (x == null || y == null) {
+      return x != null ? -1 : y != null ? 1 : a.compareTo(b);
+    }
+    int order = x.length() != y.length() ? x.length() - y.length() : x.compareTo(y);
+    return order != 0 ? order : a.compareTo(b);
+  };
+
+  /** The location of each shelf, as "(zone) (aisle) (rack) (level) (SKU)", by ordinal. */
+  private final String[] locations;
+  /** Is the SKU of each shelf a single digit, by ordinal? */
+  private final boolean[] singleDigit;
+  /** The rank of each shelf by name, by ordinal. */
+  private final int[] nameRanks;
+  /** The ordinal of each shelf, by its rank by name. */
+  private final int[] byName;
+  /** The rank of each shelf by value, by ordinal. */
+  private final int[] valueRanks;
+  /** The ordinal of each shelf, by its rank by value. */
+  private final int[] byValue;
+
+  /** Ranks the shelves of a store, as they are now.
+   *
+   * @param store
+   *      The shelves to rank.
+   */
+  public SkuRanks(StockStore store) {
+    int size = store.size();
+    locations = new String[size];
+    singleDigit = new boolean[size];
+    String[] skus = new String[size];
+    for (int o = 0; o < size; o++) {
+      skus[o] = store.getSku(o);
+      locations[o] = store.getZone(o) + " " + store.getAisle(o) + " " + store.getRack(o) + " "
+          + store.getLevel(o) + " " + skus[o];
+      singleDigit[o] = skus[o].length() == 1 && skus[o].charAt(0) >= '0'
+          && skus[o].charAt(0) <= '9';
+    }
+    byName = order(skus, Comparator.naturalOrder());
+    byValue = order(skus, BY_VALUE);
+    nameRanks = invert(byName);
+    valueRanks = invert(byValue);
+  }
+
+  /** Returns the location of a shelf, as "(zone) (aisle) (rack) (level) (SKU)". */
+  public String getLocation(int ordinal) {
+    return locations[ordinal];
+  }
+
+  /** Returns whether the SKU of a shelf is a single digit, which makes Optimizer sort a pick
+   * request by value. */
+  public boolean isSingleDigit(int ordinal) {
+    return singleDigit[ordinal];
+  }
+
+  /** Returns the rank of a shelf among all shelves.
+   *
+   * @param ordinal
+   *      The ordinal of the shelf.
+   * @param value
+   *      Ranked by value, or else by name?
+   * @return
+   *      The rank, from 0.
+   */
+  public int rankOf(int ordinal, boolean value) {
+    return value ? valueRanks[ordinal] : nameRanks[ordinal];
+  }
+
+  /** Returns the shelf at a rank among all shelves.
+   *
+   * @param rank
+   *      The rank, from 0.
+   * @param value
+   *      Ranked by value, or else by name?
+   * @return
+   *      The ordinal of the shelf.
+   */
+  public int ordinalAt(int rank, boolean value) {
+    return value ? byValue[rank] : byName[rank];
+  }
+
+  /** Sorts the ordinals of shelves by their SKUs, then by ordinal. */
+  private static int[] order(String[] skus, Comparator<String> comparator) {
+    Integer[] ordinals = new Integer[skus.length];
+    for (int o = 0; o < skus.length; o++) {
+      ordinals[o] = o;
+    }
+    // Stable, so the shelves of a SKU stay in ordinal order
+    Arrays.sort(ordinals, (a, b) -> comparator.compare(skus[a], skus[b]));
+    int[] order = new int[skus.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = ordinals[i];
+    }
+    return order;
+  }
+
+  /** Maps each ordinal to its position in an order. */
+  private static int[] invert(int[] order) {
+    int[] ranks = new int[order.length];
+    for (int rank = 0; rank < order.length; rank++) {
+      ranks[order[rank]] = rank;
+    }
+    return ranks;
+  }
+
+  /** Returns the digits of a SKU without its leading zeros, or null if it is not only
+   * digits. */
+  private static String digits(String sku) {
+    if (sku.isEmpty()) {
+      return null;
+    }
+    int start = 0;
+    for (int i = 0; i < sku.length(); i++) {
+      char c = sku.charAt(i);
+      if (c < '0' || c > '9') {
+        return null;
+      }
+      if (c == '0' && start == i) {
+        start++;
+      }
+    }
+    return sku.substring(start);
+  }
+}
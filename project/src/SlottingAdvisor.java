@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/** Watches what is picked from a StockRoom, and recommends where each SKU should be
+ * shelved so that Pickers walk less.
+ *
+ * <p>It counts the products taken from each shelf (from StockRoom.takeProduct) and how
+ * often each pair of SKUs is in the same pick request (from OrderHandler, as each pick
+ * request is made). A plan then moves SKUs between the shelves the StockRoom already has:
+ * <ul>
+ * <li>The SKUs picked most are given the shelves nearest Marshalling, on the
+ * WarehouseLayout.</li>
+ * <li>Each SKU placed is followed by the SKUs picked mostly with it, those at least half of
+ * whose pick requests it shares, on the shelves next nearest.</li>
+ * <li>SKUs never picked stay where they are, if their shelf is still free, or fill the
+ * shelves left over.</li>
+ * </ul>
+ * The saving is estimated by routing the last SAMPLE_SIZE pick requests by nearest
+ * neighbour, on the shelves they are on now and on the shelves of the plan.
+ *
+ * <p>Applying a plan writes it out as a new traversal table; the SKUs are moved when the
+ * warehouse is next set up from it. Shelves of a SKU laid out twice are left as they are.
+ */
+public class SlottingAdvisor {
+
+  /** The number of the latest pick requests kept to estimate the saving of a plan. */
+  static final int SAMPLE_SIZE = 4096;
+
+  /** The shelves of the StockRoom. */
+  private final StockStore store;
+  /** The walking distances between the shelves. */
+  private final WarehouseLayout layout;
+  /** The number of products taken from each shelf, by ordinal. */
+  private final AtomicIntegerArray picks;
+  /** The number of pick requests each pair of shelves was in together, by pairKey. */
+  private final Map<Long, Integer> coPicks = new HashMap<Long, Integer>();
+  /** The shelves of the latest pick requests, oldest overwritten first. */
+  private final int[][] samples = new int[SAMPLE_SIZE][];
+  /** The number of pick requests recorded. */
+  private long pickRequests = 0;
+
+  /** Creates the advisor of a StockRoom's shelves, as they are now.
+   *
+   * @param store
+   *      The shelves of the StockRoom.
+   */
+  public SlottingAdvisor(StockStore store) {
+    this.store = store;
+    this.layout = new WarehouseLayout(store);
+    this.picks = new AtomicIntegerArray(store.size());
+  }
+
+  /** Counts a product taken from a shelf. Safe to call from many threads.
+   *
+   * @param ordinal
+   *      The ordinal of the shelf.
+   */
+  public void recordPick(int ordinal) {
+    picks.incrementAndGet(ordinal);
+  }
+
+  /** Records the shelves of a pick request, to count which SKUs are picked together.
+   *
+   * @param shelves
+   *      The ordinals of the shelves of the pick request's SKUs; a shelf may appear more
+   *      than once.
+   */
+  public synchronized void recordPickRequest(int[] shelves) {
+    int[] distinct = shelves.clone();
+    Arrays.sort(distinct);
+    int count = 0;
+    for (int i = 0; i < distinct.length; i++) {
+      if (distinct[i] >= 0 && (count == 0 || distinct[i] != distinct[count - 1])) {
+        distinct[count++] = distinct[i];
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      for (int j = i + 1; j < count; j++) {
+        coPicks.merge(pairKey(distinct[i], distinct[j]), 1, Integer::sum);
+      }
+    }
+    samples[(int) (pickRequests % SAMPLE_SIZE)] = Arrays.copyOf(distinct, count);
+    pickRequests++;
+  }
+
+  /** Returns the number of products taken from a shelf. */
+  public int getPicks(int ordinal) {
+    return picks.get(ordinal);
+  }
+
+  /** Returns the number of pick requests two shelves were in together. */
+  public synchronized int getCoPicks(int first, int second) {
+    return coPicks.getOrDefault(pairKey(Math.min(first, second), Math.max(first, second)), 0);
+  }
+
+  /** Returns the number of pick requests recorded. */
+  public synchronized long getPickRequests() {
+    return pickRequests;
+  }
+
+  /** Recommends a shelf for each SKU, from what has been picked so far.
+   *
+   * @return
+   *      The plan.
+   */
+  public synchronized Plan plan() {
+    int size = store.size();
+    List<Integer> stocked = new ArrayList<Integer>(); // Shelves moved by the plan
+    for (int o = 0; o < size; o++) {
+      if (store.ordinalOf(store.getSku(o)) == o) {
+        stocked.add(o);
+      }
+    }
+    int[] fromDepot = new int[size];
+    for (int o = 0; o < size; o++) {
+      fromDepot[o] = layout.distance(WarehouseLayout.DEPOT, o);
+    }
+    Integer[] slots = stocked.toArray(new Integer[0]); // Nearest Marshalling first
+    Arrays.sort(slots, (a, b) -> fromDepot[a] != fromDepot[b] ? fromDepot[a] - fromDepot[b]
+        : a - b);
+    Integer[] hottest = stocked.toArray(new Integer[0]); // Picked most first
+    Arrays.sort(hottest, (a, b) -> picks.get(a) != picks.get(b) ? picks.get(b) - picks.get(a)
+        : a - b);
+    Map<Integer, List<long[]>> partners = partners();
+
+    int[] slotOf = new int[size]; // The shelf each SKU moves to, by the ordinal it is on now
+    for (int o = 0; o < size; o++) {
+      slotOf[o] = o;
+    }
+    boolean[] placed = new boolean[size];
+    boolean[] taken = new boolean[size];
+    int next = 0; // The nearest slot not yet taken
+    for (int sku : hottest) {
+      if (placed[sku] || picks.get(sku) == 0) {
+        continue;
+      }
+      next = place(sku, slots, next, fromDepot, slotOf, placed, taken);
+      for (long[] partner : partners.getOrDefault(sku, new ArrayList<long[]>())) {
+        int other = (int) partner[0];
+        if (!placed[other] && picks.get(other) > 0 && 2 * partner[1] >= picks.get(other)) {
+          next = place(other, slots, next, fromDepot, slotOf, placed, taken);
+        }
+      }
+    }
+    for (int sku : stocked) { // Never picked: stays put if it can
+      if (!placed[sku] && !taken[sku]) {
+        placed[sku] = true;
+        taken[sku] = true;
+      }
+    }
+    for (int sku : stocked) {
+      if (!placed[sku]) {
+        next = place(sku, slots, next, fromDepot, slotOf, placed, taken);
+      }
+    }
+
+    int moves = 0;
+    for (int o = 0; o < size; o++) {
+      if (slotOf[o] != o) {
+        moves++;
+      }
+    }
+    List<String> traversal = new ArrayList<String>(size);
+    String[] skuAt = new String[size];
+    for (int o = 0; o < size; o++) {
+      skuAt[slotOf[o]] = store.getSku(o);
+    }
+    for (int o = 0; o < size; o++) {
+      traversal.add(store.getZone(o) + "," + store.getAisle(o) + "," + store.getRack(o) + ","
+          + store.getLevel(o) + "," + skuAt[o]);
+    }
+    return new Plan(slotOf, moves, routeLength(null), routeLength(slotOf), traversal);
+  }
+
+  /** Writes a plan out as the traversal table traversalN.csv, numbered after the Warehouse.
+   *
+   * @param plan
+   *      The plan.
+   * @param warehouseId
+   *      The number of the Warehouse.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void apply(Plan plan, int warehouseId) throws IOException {
+    Simulator.writeFile(new ArrayList<String>(plan.getTraversal()), "traversal.csv",
+        warehouseId);
+  }
+
+  /** Gives a shelf's SKU the nearest slot not yet taken, keeping its own if that is as
+   * near, and returns the index of the nearest slot that may still be free. */
+  private static int place(int sku, Integer[] slots, int next, int[] fromDepot, int[] slotOf,
+      boolean[] placed, boolean[] taken) {
+    while (taken[slots[next]]) {
+      next++;
+    }
+    int slot = !taken[sku] && fromDepot[sku] == fromDepot[slots[next]] ? sku : slots[next];
+    slotOf[sku] = slot;
+    taken[slot] = true;
+    placed[sku] = true;
+    return next;
+  }
+
+  /** Lists the shelves picked with each shelf, with the number of pick requests they were
+   * in together, most first. */
+  private Map<Integer, List<long[]>> partners() {
+    Map<Integer, List<long[]>> partners = new HashMap<Integer, List<long[]>>();
+    for (Map.Entry<Long, Integer> pair : coPicks.entrySet()) {
+      int first = (int) (pair.getKey() >>> 32);
+      int second = (int) (long) pair.getKey();
+      partners.computeIfAbsent(first, o -> new ArrayList<long[]>())
+          .add(new long[] {second, pair.getValue()});
+      partners.computeIfAbsent(second, o -> new ArrayList<long[]>())
+          .add(new long[] {first, pair.getValue()});
+    }
+    for (List<long[]> list : partners.values()) {
+      list.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(a[0], b[0]));
+    }
+    return partners;
+  }
+
+  /** Totals the lengths of the sampled pick requests' routes, by nearest neighbour.
+   *
+   * @param slotOf
+   *      The shelf each SKU is moved to, by its ordinal now, or null to leave them.
+   * @return
+   *      The total walking distance.
+   */
+  private long routeLength(int[] slotOf) {
+    Router router = new Router(layout, Router.Heuristic.NEAREST_NEIGHBOUR);
+    long total = 0;
+    for (int[] sample : samples) {
+      if (sample == null) {
+        continue;
+      }
+      int[] shelves = new int[sample.length];
+      for (int i = 0; i < shelves.length; i++) {
+        shelves[i] = slotOf == null ? sample[i] : slotOf[sample[i]];
+      }
+      total += layout.routeLength(router.route(shelves), shelves.length);
+    }
+    return total;
+  }
+
+  /** Packs a pair of ordinals, the smaller first, into a key. */
+  private static long pairKey(int first, int second) {
+    return (long) first << 32 | second;
+  }
+
+  /** A recommended shelf for each SKU, and what it would save. */
+  public static final class Plan {
+    /** The shelf each SKU moves to, by the ordinal of the shelf it is on now. */
+    private final int[] slotOf;
+    /** The number of SKUs that move. */
+    private final int moves;
+    /** The walking distance of the sampled pick requests on the shelves now. */
+    private final long before;
+    /** The walking distance of the sampled pick requests on the planned shelves. */
+    private final long after;
+    /** The traversal table of the plan, as rows "(zone),(aisle),(rack),(level),(SKU)". */
+    private final List<String> traversal;
+
+    /** Creates a plan; see the fields. */
+    private Plan(int[] slotOf, int moves, long before, long after, List<String> traversal) {
+      this.slotOf = slotOf;
+      this.moves = moves;
+      this.before = before;
+      this.after = after;
+      this.traversal = traversal;
+    }
+
+    /** Returns the ordinal of the shelf the SKU now on a shelf moves to. */
+    public int getSlot(int ordinal) {
+      return slotOf[ordinal];
+    }
+
+    /** Returns the number of SKUs that move. */
+    public int getMoves() {
+      return moves;
+    }
+
+    /** Returns the walking distance of the sampled pick requests on the shelves now. */
+    public long getBefore() {
+      return before;
+    }
+
+    /** Returns the walking distance of the sampled pick requests on the planned shelves. */
+    public long getAfter() {
+      return after;
+    }
+
+    /** Returns the traversal table of the plan, in the order of the shelves now, as rows
+     * "(zone),(aisle),(rack),(level),(SKU)". */
+    public List<String> getTraversal() {
+      return traversal;
+    }
+  }
+}
@@ -0,0 +1,339 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/** The files that make a StockRoom's stock durable: a checkpoint of every shelf's stock,
+ * and an append-only journal of the changes made since.
+ *
+ * <p>Checkpoint format: the CHECKPOINT_MAGIC number, a VERSION byte, the layout hash (see
+ * StockStore.layoutHash), the generation (a long), whether it was taken as the store was
+ * closed (a boolean), the number of shelves (an int) and then each shelf's stock (an int),
+ * by ordinal. It is written to a temporary file, synced and renamed into place, so a
+ * checkpoint on disk is always complete.
+ *
+ * <p>Only a run cut short is recovered. A run that closed its store cleanly replayed all
+ * of its events, so the next run starts again from the initial stock rather than applying
+ * the same events twice.
+ *
+ * <p>Journal format: the JOURNAL_MAGIC number, a VERSION byte, the layout hash and the
+ * generation of the checkpoint it follows, then records. Each record is a tag byte (TAKE,
+ * ADD or SET), the shelf's ordinal (varint) and, for ADD and SET, an amount (zig-zag
+ * varint). TAKE and ADD are changes in stock, so records from different threads may be
+ * replayed in any order. A record cut off by a crash is ignored.
+ *
+ * <p>Records are group committed: append() only copies the record into a buffer, and the
+ * buffer is written and synced to disk once GROUP_SIZE records are waiting, or GROUP_MILLIS
+ * after the first one, by a background thread; so one sync covers many records.
+ */
+public class StockJournal {
+
+  /** The first four bytes of every checkpoint file, "WHSC". */
+  static final int CHECKPOINT_MAGIC = 0x57485343;
+  /** The first four bytes of every journal file, "WHSJ". */
+  static final int JOURNAL_MAGIC = 0x5748534A;
+  /** The version of the checkpoint and journal formats. */
+  static final int VERSION = 2;
+  /** The tag of a record taking one product off a shelf. */
+  static final int TAKE = 1;
+  /** The tag of a record adding an amount of product to a shelf. */
+  static final int ADD = 2;
+  /** The tag of a record setting a shelf's stock. */
+  static final int SET = 3;
+  /** The number of waiting records that are committed straight away. */
+  private static final int GROUP_SIZE = 256;
+  /** The longest a record waits to be committed, in milliseconds. */
+  private static final long GROUP_MILLIS = 10;
+
+  /** The path of the checkpoint file. */
+  private final String checkpointPath;
+  /** The path of the journal file. */
+  private final String journalPath;
+  /** The layout hash of the StockRoom, written to and checked against every file. */
+  private final long layoutHash;
+  /** The generation of the current checkpoint; the journal holds the changes since. */
+  private long generation = 0;
+  /** The journal file, or null if it is not open. */
+  private FileOutputStream journal;
+  /** Records waiting to be committed. */
+  private ByteArrayOutputStream pending = new ByteArrayOutputStream(8192);
+  /** Writes records into pending. */
+  private DataOutputStream pendingOut = new DataOutputStream(pending);
+  /** The number of records waiting to be committed. */
+  private int pendingCount = 0;
+  /** Held while writing records out to the journal file, so only one commit runs at once. */
+  private final Object commitLock = new Object();
+  /** Commits waiting records every GROUP_MILLIS. */
+  private Thread committer;
+  /** Has close() been called? */
+  private volatile boolean closed = false;
+
+  /** Creates the journal of a StockRoom. No files are touched until recover() or
+   * checkpoint() is called.
+   *
+   * @param basePath
+   *      The path of the files without an extension; ".checkpoint" and ".journal" are added.
+   * @param layoutHash
+   *      The layout hash of the StockRoom's shelves.
+   */
+  public StockJournal(String basePath, long layoutHash) {
+    this.checkpointPath = basePath + ".checkpoint";
+    this.journalPath = basePath + ".journal";
+    this.layoutHash = layoutHash;
+  }
+
+  /** Restores the stock saved by an earlier run: loads the checkpoint and replays the
+   * journal written after it.
+   *
+   * @param store
+   *      The store to restore the stock of; its shelves must already be added.
+   * @return
+   *      The number of journal records replayed, or -1 if there is no checkpoint for this
+   *      layout or the last one was taken on close, in which case the store is not changed.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public int recover(StockStore store) throws IOException {
+    File checkpointFile = new File(checkpointPath);
+    if (!checkpointFile.exists()) {
+      return -1;
+    }
+    try (DataInputStream in = open(checkpointFile)) {
+      if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != VERSION
+          || in.readLong() != layoutHash) {
+        return -1; // Written for some other layout
+      }
+      generation = in.readLong();
+      if (in.readBoolean()) {
+        return -1; // Closed cleanly; nothing to recover
+      }
+      int count = in.readInt();
+      if (count != store.size()) {
+        return -1;
+      }
+      for (int ordinal = 0; ordinal < count; ordinal++) {
+        store.setStock(ordinal, in.readInt());
+      }
+    }
+    File journalFile = new File(journalPath);
+    if (!journalFile.exists()) {
+      return 0;
+    }
+    int replayed = 0;
+    try (DataInputStream in = open(journalFile)) {
+      if (in.readInt() != JOURNAL_MAGIC || in.readByte() != VERSION
+          || in.readLong() != layoutHash || in.readLong() != generation) {
+        return 0; // Already included in the checkpoint
+      }
+      int tag;
+      while ((tag = in.read()) != -1) {
+        int ordinal = (int) readVarlong(in);
+        if (ordinal >= store.size()) {
+          throw new IOException(journalPath + " has a record for shelf " + ordinal);
+        }
+        switch (tag) {
+          case TAKE: store.takeOne(ordinal);
+            break;
+          case ADD: store.addStock(ordinal, unzigzag(readVarlong(in)));
+            break;
+          case SET: store.setStock(ordinal, unzigzag(readVarlong(in)));
+            break;
+          default: throw new IOException(journalPath + " has an unknown record tag " + tag);
+        }
+        replayed++;
+      }
+    } catch (EOFException exception) {
+      // The last record was cut off by a crash; it was never committed.
+    }
+    return replayed;
+  }
+
+  /** Saves the stock of every shelf as a new checkpoint, and starts an empty journal after
+   * it. No records may be appended while this runs.
+   *
+   * @param store
+   *      The store to save the stock of.
+   * @param closing
+   *      Is the store being closed? Then the checkpoint is not recovered.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void checkpoint(StockStore store, boolean closing) throws IOException {
+    commit();
+    long next = generation + 1;
+    File temporary = new File(checkpointPath + ".tmp");
+    try (FileOutputStream file = new FileOutputStream(temporary)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+      out.writeInt(CHECKPOINT_MAGIC);
+      out.writeByte(VERSION);
+      out.writeLong(layoutHash);
+      out.writeLong(next);
+      out.writeBoolean(closing);
+      out.writeInt(store.size());
+      for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+        out.writeInt(store.getStock(ordinal));
+      }
+      out.flush();
+      file.getFD().sync();
+    }
+    Files.move(temporary.toPath(), new File(checkpointPath).toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    // From here on, the old journal is ignored by recover(), as its generation is too old.
+    generation = next;
+    synchronized (commitLock) {
+      if (journal != null) {
+        journal.close();
+      }
+      journal = new FileOutputStream(journalPath);
+      DataOutputStream header = new DataOutputStream(journal);
+      header.writeInt(JOURNAL_MAGIC);
+      header.writeByte(VERSION);
+      header.writeLong(layoutHash);
+      header.writeLong(generation);
+      journal.getFD().sync();
+    }
+    if (committer == null) {
+      committer = new Thread(this::commitPeriodically, "StockJournal");
+      committer.setDaemon(true);
+      committer.start();
+    }
+  }
+
+  /** Appends a record to the journal. It is committed to disk with the next group.
+   *
+   * @param tag
+   *      TAKE, ADD or SET.
+   * @param ordinal
+   *      The ordinal of the shelf.
+   * @param amount
+   *      The amount added or set; ignored for TAKE.
+   */
+  public void append(int tag, int ordinal, int amount) {
+    boolean full;
+    synchronized (this) {
+      try {
+        pendingOut.writeByte(tag);
+        writeVarlong(pendingOut, ordinal);
+        if (tag != TAKE) {
+          writeVarlong(pendingOut, zigzag(amount));
+        }
+      } catch (IOException exception) {
+        throw new IllegalStateException(exception); // Writing to memory cannot fail
+      }
+      pendingCount++;
+      full = pendingCount >= GROUP_SIZE;
+    }
+    if (full) {
+      commitQuietly();
+    }
+  }
+
+  /** Writes every waiting record to the journal file and syncs it to disk.
+   *
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void commit() throws IOException {
+    synchronized (commitLock) {
+      byte[] records;
+      synchronized (this) {
+        if (pendingCount == 0) {
+          return;
+        }
+        records = pending.toByteArray();
+        pending.reset();
+        pendingCount = 0;
+      }
+      if (journal != null) {
+        journal.write(records);
+        journal.getFD().sync(); // One sync for the whole group
+      }
+    }
+  }
+
+  /** Commits every waiting record and closes the journal file.
+   *
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public void close() throws IOException {
+    closed = true;
+    commit();
+    synchronized (commitLock) {
+      if (journal != null) {
+        journal.close();
+        journal = null;
+      }
+    }
+  }
+
+  /** The committer thread: commits waiting records every GROUP_MILLIS until closed. */
+  private void commitPeriodically() {
+    while (!closed) {
+      try {
+        Thread.sleep(GROUP_MILLIS);
+      } catch (InterruptedException exception) {
+        return;
+      }
+      commitQuietly();
+    }
+  }
+
+  /** Commits waiting records, logging any error. */
+  private void commitQuietly() {
+    try {
+      commit();
+    } catch (IOException exception) {
+      Simulator.fm.logException(exception, "Error: Could not write stock journal "
+          + journalPath + ". Recent stock changes may be lost in a crash.");
+    }
+  }
+
+  /** Opens a file for reading. */
+  private static DataInputStream open(File file) throws IOException {
+    return new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+  }
+
+  /** Maps a signed int to a non-negative long, keeping small amounts small. */
+  private static long zigzag(int value) {
+    return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+  }
+
+  /** Reverses zigzag(). */
+  private static int unzigzag(long value) {
+    return (int) (value >>> 1) ^ -(int) (value & 1);
+  }
+
+  /** Writes a non-negative integer in 7-bit groups, low group first. */
+  private static void writeVarlong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  /** Reads a non-negative integer written in 7-bit groups, low group first. */
+  private static long readVarlong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int next = in.read();
+      if (next == -1) {
+        throw new EOFException();
+      }
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+}
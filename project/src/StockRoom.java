@@ -1,7 +1,10 @@
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /** The StockRoom of the warehouse.
  * 
@@ -11,16 +14,36 @@ import java.util.Map;
  * <p>Instantiated by OrderHandler with its initial layout and 
  * exports final.csv when all orders have been processed.
  * 
+ * <p>Each shelf's SKU, location and stock are kept in a StockStore, numbered in the order
+ * of the traversal table. Products are views of a shelf in the store.
+ * 
+ * <p>With a ConcurrentStockStore, takeProduct and replenish may be called from many threads
+ * at once, and each time a shelf's stock falls to the replenish threshold exactly one
+ * replenish request is made.
+ * 
  * @author Jack (Editor: Tyson)
  */
 public class StockRoom {
 
-  /** Stores the products currently in the StockRoom in map pair (sku, Product). */
-  private Map<String, Product> productMap = new HashMap<String, Product>();
+  /** Stores the shelves of the StockRoom: their SKUs, locations and stock. */
+  private StockStore store;
+  /** Finds the ordinal of the shelf at each location, in step with the store. */
+  private LocationIndex locationIndex;
+  /** The sort order and location of each shelf's SKU, for Optimizer. */
+  private SkuRanks skuRanks;
+  /** The amount of each shelf's stock reserved for pick requests, by ordinal. Each shelf is
+   * reserved on its own, so pick requests of different shelves never wait for each other. */
+  private AtomicIntegerArray reserved;
+  /** Turns replenish requests into tasks for Replenishers. */
+  private ReplenishmentPlanner replenishmentPlanner;
+  /** Counts what is picked, to recommend where SKUs are shelved, or null if not asked for. */
+  private SlottingAdvisor slottingAdvisor;
   /** Designates when stock should automatically be replenished. */
   private int replenishValue = 5;
+  /** The number of the Warehouse this StockRoom is in, used to name its export file. */
+  private int warehouseId;
   
-  /** Initializes the StockRoom
+  /** Initializes the StockRoom of the first Warehouse.
    * 
    * @param traversal
    *    The layout of the StockRoom floor.
@@ -28,14 +51,55 @@ public class StockRoom {
    *    The inital stock layout of the StockRoom.
    */
   public StockRoom(ArrayList<String> traversal, ArrayList<String> initial) {
+    this(traversal, initial, 0);
+  }
+
+  /** Initializes the StockRoom
+   * 
+   * @param traversal
+   *    The layout of the StockRoom floor.
+   * @param initial
+   *    The inital stock layout of the StockRoom.
+   * @param warehouseId
+   *    The number of the Warehouse this StockRoom is in.
+   */
+  public StockRoom(ArrayList<String> traversal, ArrayList<String> initial, int warehouseId) {
+    this(traversal, initial, warehouseId, new ObjectStockStore());
+  }
+
+  /** Initializes the StockRoom, keeping its shelves in the given store.
+   * 
+   * @param traversal
+   *    The layout of the StockRoom floor.
+   * @param initial
+   *    The inital stock layout of the StockRoom, or an empty list to use the initial stock
+   *    saved in the store by an earlier run, if it keeps it.
+   * @param warehouseId
+   *    The number of the Warehouse this StockRoom is in.
+   * @param store
+   *    An empty StockStore to keep the shelves in.
+   */
+  public StockRoom(ArrayList<String> traversal, ArrayList<String> initial, int warehouseId,
+      StockStore store) {
+    this.warehouseId = warehouseId;
+    this.store = store;
     csvImport(traversal); // sets up position and sku
-    csvInitalize(initial); // sets up amount of stock
+    skuRanks = new SkuRanks(store);
+    if (initial.isEmpty() && store.restoreInitial()) { // Saved by an earlier run
+      Simulator.fm.log(3, "Stock Room: Restored the initial stock of {} shelves.",
+          store.size());
+    } else {
+      csvInitalize(initial); // sets up amount of stock
+    }
+    store.checkpoint();
+    replenishmentPlanner = new ReplenishmentPlanner(store);
+    reserved = new AtomicIntegerArray(store.size());
   }
 
   /** Checks if the SKU is in the StockRoom */
   
   public boolean hasSku(String sku) {
-    return productMap.containsKey(sku);
+    return store.ordinalOf(sku) >= 0;
   }
 
   /** Takes a SKU scanned by picker and, if valid, decreases amount by 1 and returns True.
@@ -47,12 +111,21 @@ public class StockRoom {
    *      Was the product successfully picked / in stock?
    */
   public boolean takeProduct(String sku) {
-    if (productMap.containsKey(sku)) {
-      Product p1 = productMap.get(sku);
-      p1.takeOne();
-      Simulator.fm.logInfo(3, "Stock Room: SKU#" + sku + " scan detected.");
-      if (p1.stock == replenishValue) {
-        triggerReplenishRequest(p1);
+    int ordinal = store.ordinalOf(sku);
+    if (ordinal >= 0) {
+      int left = store.takeOne(ordinal);
+      if (left < 0) {
+        Simulator.fm.log(2, "Stock Room: SKU#{} out of stock.", sku);
+        replenishmentPlanner.request(ordinal); // Unless it is already on its way
+      } else {
+        replenishmentPlanner.recordPick();
+        if (slottingAdvisor != null) {
+          slottingAdvisor.recordPick(ordinal);
+        }
+      }
+      Simulator.fm.log(3, "Stock Room: SKU#{} scan detected.", sku);
+      if (left == replenishValue) {
+        triggerReplenishRequest(sku, ordinal);
       }
       return true;
     } else { // Invalid SKU
@@ -60,6 +133,141 @@ public class StockRoom {
     }
   }
   
+  /** Takes a SKU scanned by a picker working on a pick request and, if valid, decreases
+   * amount by 1 and returns True. If the SKU was reserved for the pick request, the
+   * reservation is used up.
+   * 
+   * @param sku 
+   *      The SKU number scanned by a Picker.
+   * @param pickRequest
+   *      The pick request the SKU was picked for, or null.
+   * @return
+   *      Was the product successfully picked / in stock?
+   */
+  public boolean takeProduct(String sku, PickRequest pickRequest) {
+    boolean taken = takeProduct(sku);
+    if (taken && pickRequest != null) {
+      synchronized (pickRequest) { // Only against release of the same pick request
+        List<String> reservedSkus = pickRequest.getReservedSkus();
+        if (reservedSkus != null && reservedSkus.remove(sku)) {
+          reserved.decrementAndGet(store.ordinalOf(sku)); // Now taken off the shelf
+        }
+      }
+    }
+    return taken;
+  }
+
+  /** Reserves the stock of every SKU in a pick request, if there is enough on the shelves
+   * that is not already reserved. Stock is reserved for all of the SKUs or none of them;
+   * shelves that are short are asked to be replenished.
+   * 
+   * <p>Products taken with takeProduct(sku) alone are taken from the shelf whether or not
+   * they are reserved.
+   * 
+   * <p>No lock is held: each shelf is reserved in turn with a compare-and-set, and the
+   * shelves already reserved are given back if a later one is short.
+   * 
+   * @param pickRequest
+   *      The pick request.
+   * @return
+   *      Is the stock reserved? True if it already was.
+   */
+  public boolean reserve(PickRequest pickRequest) {
+    if (pickRequest.isReserved()) {
+      return true;
+    }
+    List<String> skus = pickRequest.getSkuPackage();
+    int[] ordinals = new int[skus.size()]; // Sorted, so a shelf's SKUs are counted together
+    for (int i = 0; i < ordinals.length; i++) {
+      ordinals[i] = store.ordinalOf(skus.get(i));
+      if (ordinals[i] < 0) {
+        return false; // Can never be picked
+      }
+    }
+    Arrays.sort(ordinals);
+    int shortAt = -1; // The first SKU of the shelf that is short, if one is
+    for (int first = 0; first < ordinals.length; first = next(ordinals, first)) {
+      if (!reserve(ordinals[first], next(ordinals, first) - first)) {
+        shortAt = first;
+        break;
+      }
+    }
+    if (shortAt < 0) {
+      pickRequest.setReservedSkus(new ArrayList<String>(skus));
+      return true;
+    }
+    for (int first = 0; first < shortAt; first = next(ordinals, first)) { // Given back
+      reserved.addAndGet(ordinals[first], first - next(ordinals, first));
+    }
+    for (int first = shortAt; first < ordinals.length; first = next(ordinals, first)) {
+      if (getAvailable(ordinals[first]) < next(ordinals, first) - first) {
+        replenishmentPlanner.request(ordinals[first]);
+      }
+    }
+    return false;
+  }
+
+  /** Reserves an amount of a shelf's stock, if that much is not already reserved.
+   * 
+   * @param ordinal
+   *      The ordinal of the shelf.
+   * @param amount
+   *      The amount to reserve.
+   * @return
+   *      Was it reserved?
+   */
+  private boolean reserve(int ordinal, int amount) {
+    while (true) {
+      int before = reserved.get(ordinal);
+      if (store.getStock(ordinal) - before < amount) {
+        return false;
+      }
+      if (reserved.compareAndSet(ordinal, before, before + amount)) {
+        return true;
+      }
+    }
+  }
+
+  /** Returns the index of the first ordinal after a run of equal ones in a sorted array. */
+  private static int next(int[] ordinals, int first) {
+    int next = first + 1;
+    while (next < ordinals.length && ordinals[next] == ordinals[first]) {
+      next++;
+    }
+    return next;
+  }
+
+  /** Releases the stock still reserved for a pick request, such as one discarded before
+   * all of it was picked.
+   * 
+   * @param pickRequest
+   *      The pick request.
+   */
+  public void release(PickRequest pickRequest) {
+    synchronized (pickRequest) { // Only against picks for the same pick request
+      List<String> reservedSkus = pickRequest.getReservedSkus();
+      if (reservedSkus == null) {
+        return;
+      }
+      for (String sku : reservedSkus) {
+        reserved.decrementAndGet(store.ordinalOf(sku));
+      }
+      pickRequest.setReservedSkus(null);
+    }
+  }
+
+  /** Returns the amount of a SKU on its shelf that is not reserved for a pick request, or
+   * -1 if the SKU is not in the StockRoom. */
+  public int getAvailable(String sku) {
+    int ordinal = store.ordinalOf(sku);
+    return ordinal < 0 ? -1 : getAvailable(ordinal);
+  }
+
+  /** Returns the amount of a shelf's stock that is not reserved for a pick request. */
+  private int getAvailable(int ordinal) {
+    return store.getStock(ordinal) - reserved.get(ordinal);
+  }
+
   /** Handles replenisher events.
    * 
    * @param location 
@@ -72,19 +280,84 @@ public class StockRoom {
     int aisle = Integer.parseInt(values[1]); // convert string of ints to ints for array index
     int rack = Integer.parseInt(values[2]);
     int level = Integer.parseInt(values[3]);
-    for (Product p : productMap.values()) { // find Product with position
-      if (p.getZone().equals(zone) && p.getAisle() == aisle && p.getRack() == rack
-          && p.getLevel() == level) {
-        if (p.getStock() >= 25) {
-          Simulator.fm.logInfo(2, "Stock Room: replenish at " + location + " not required."
-              + " Please return stock to reserve room.");
-        }
-        p.stock += 25;
-        Simulator.fm.logInfo(3, "Stock Room: replenish at " + location + " complete.");
+    replenish(zone, aisle, rack, level);
+  }
+
+  /** Handles replenisher events at an already parsed location.
+   * 
+   * @param zone
+   *      The zone where the replenish took place.
+   * @param aisle
+   *      The aisle where the replenish took place.
+   * @param rack
+   *      The rack where the replenish took place.
+   * @param level
+   *      The level where the replenish took place.
+   */
+  public void replenish(String zone, int aisle, int rack, int level) {
+    int ordinal = ordinalAt(zone, aisle, rack, level);
+    if (ordinal >= 0) {
+      // The stock before is worked out from the total, so it is right even if picks
+      // are being taken from other threads.
+      if (store.addStock(ordinal, 25) - 25 >= 25 && Simulator.fm.isLoggable(2)) {
+        Simulator.fm.log(2, "Stock Room: replenish at {} {} {} {} not required. Please return"
+            + " stock to reserve room.", zone, aisle, rack, level);
       }
+      if (Simulator.fm.isLoggable(3)) { // Avoids boxing the location when not logged
+        Simulator.fm.log(3, "Stock Room: replenish at {} {} {} {} complete.", zone, aisle, rack,
+            level);
+      }
+      replenishmentPlanner.replenished(ordinal);
     }
   }
 
+  /** Returns the planner that hands out this StockRoom's replenish tasks. */
+  public ReplenishmentPlanner getReplenishmentPlanner() {
+    return replenishmentPlanner;
+  }
+
+  /** Sets the advisor told of every product taken, or null to tell none.
+   * 
+   * @param slottingAdvisor
+   *      An advisor made for this StockRoom's store.
+   */
+  public void setSlottingAdvisor(SlottingAdvisor slottingAdvisor) {
+    this.slottingAdvisor = slottingAdvisor;
+  }
+
+  /** Returns the advisor told of every product taken, or null if there is none. */
+  public SlottingAdvisor getSlottingAdvisor() {
+    return slottingAdvisor;
+  }
+
+  /** Gets the Product stored at a location.
+   * 
+   * @param zone
+   *      The zone of the location.
+   * @param aisle
+   *      The aisle of the location.
+   * @param rack
+   *      The rack of the location.
+   * @param level
+   *      The level of the location.
+   * @return
+   *      The Product, or null if nothing is stored there.
+   */
+  public Product getProduct(String zone, int aisle, int rack, int level) {
+    int ordinal = ordinalAt(zone, aisle, rack, level);
+    return ordinal < 0 ? null : new Product(ordinal);
+  }
+
+  /** Finds the ordinal of the shelf at a location, or -1 if nothing is stored there. */
+  private int ordinalAt(String zone, int aisle, int rack, int level) {
+    int ordinal = locationIndex.get(zone, aisle, rack, level);
+    // A SKU laid out twice is only stocked on its last shelf.
+    if (ordinal < 0 || store.ordinalOf(store.getSku(ordinal)) != ordinal) {
+      return -1;
+    }
+    return ordinal;
+  }
+
   /** Takes an sku number and returns a String that contains its location and sku number 
    * 
    * The zone character (in the range ['A'..'B']), the aisle number (an integer
@@ -92,16 +365,34 @@ public class StockRoom {
    * and the level on the rack (an integer in the range [0..3]), and the SKU
    * number.*/
   public String getLocation(String sku) {
-    Product p1 = productMap.get(sku);
-    return p1.getZone() +" "+ p1.getAisle() +" "+ p1.getRack() +" "+ p1.getLevel() +" "+ p1.getSku();
+    return skuRanks.getLocation(store.ordinalOf(sku));
   }
   
-  /** Returns a Map of locations to SKUs.
+  /** Returns the store keeping the shelves of the StockRoom, for planners reading its
+   * layout. */
+  StockStore getStore() {
+    return store;
+  }
+
+  /** Returns the sort order and location of each shelf's SKU, worked out when the traversal
+   * table was loaded. */
+  SkuRanks getSkuRanks() {
+    return skuRanks;
+  }
+
+  /** Returns a Map of SKUs to Products.
+   * 
+   * <p>The map is built on each call, but each Product reads its stock from the store,
+   * so it stays up to date.
    * 
    * @return
-   *      A mapping of locations to SKUs.
+   *      A mapping of SKUs to Products.
    */
   public Map<String, Product> getMap() {
+    Map<String, Product> productMap = new HashMap<String, Product>();
+    for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+      productMap.put(store.getSku(ordinal), new Product(store.ordinalOf(store.getSku(ordinal))));
+    }
     return productMap;
   }
 
@@ -112,21 +403,32 @@ public class StockRoom {
    */
   public void csvExport() throws IOException {  
     ArrayList<String> outArray = new ArrayList<>();
-    for (Product p : productMap.values()) {     // [zone][aisle][rack][level]
-      outArray.add(p.getZone() + "," + p.getAisle() + "," + p.getRack() 
-            + "," + p.getLevel() + "," + p.getStock()); 
+    for (int o = 0; o < store.size(); o++) {     // [zone][aisle][rack][level]
+      if (store.ordinalOf(store.getSku(o)) == o) { // Skips shelves of a SKU laid out again
+        outArray.add(store.getZone(o) + "," + store.getAisle(o) + "," + store.getRack(o) 
+            + "," + store.getLevel(o) + "," + store.getStock(o)); 
+      }
     }
     outArray.sort(null);
-    Simulator.writeFile(outArray, "final.csv");
+    Simulator.writeFile(outArray, "final.csv", warehouseId);
+  }
+
+  /** Saves the stock, if the store keeps it across runs, and releases the store's files. */
+  public void close() {
+    store.close();
   }
 
-  /** Informs system supply is running low and requests a replenish. 
+  /** Informs system supply is running low and requests a replenish from the
+   * ReplenishmentPlanner.
    * 
-   * @param p 
-   *      The Product that requires replenishing.
+   * @param sku 
+   *      The SKU that requires replenishing.
+   * @param ordinal
+   *      The ordinal of the SKU's shelf.
    */
-  private void triggerReplenishRequest(Product p) {
-    Simulator.fm.logInfo(3, "Running out of " + p.getSku() + ". Please Replenish.");
+  private void triggerReplenishRequest(String sku, int ordinal) {
+    Simulator.fm.log(3, "Running out of {}. Please Replenish.", sku);
+    replenishmentPlanner.request(ordinal);
   }
 
   /** Reads formatted String array and constructs initial state of StockRoom.
@@ -138,15 +440,24 @@ public class StockRoom {
     Simulator.fm.logInfo(3, "#####################################");
     Simulator.fm.logInfo(3, "####### Initializing StockRoom ######");
     Simulator.fm.logInfo(3, "#####################################");
+    locationIndex = new LocationIndex(array.size());
     for (int i = 0; i < array.size(); i++) {
       String[] values = array.get(i).split(",");
       int aisle = Integer.parseInt(values[1]); // convert string of ints to ints for array index
       int rack = Integer.parseInt(values[2]);
       int level = Integer.parseInt(values[3]);
-      Simulator.fm.logInfo(3, 
-          "Initializing shelf: " + values[0] + " " + aisle + " " + rack + " " + level + " " + values[4]);
-      Product item = new Product(values[4], 30, values[0], aisle, rack, level);
-      productMap.put(values[4], item);
+      if (Simulator.fm.isLoggable(3)) { // Builds the message only when it is logged
+        Simulator.fm.logInfo(3, "Initializing shelf: " + values[0] + " " + aisle + " " + rack
+            + " " + level + " " + values[4]);
+      }
+      int ordinal = store.addShelf(values[4], values[0], aisle, rack, level, 30);
+      if (!LocationIndex.fits(aisle, rack, level)) {
+        Simulator.fm.log(2, "Stock Room: shelf of SKU#{} is out of range and cannot be"
+            + " replenished.", values[4]);
+      } else if (locationIndex.put(values[0], aisle, rack, level, ordinal) >= 0) {
+        Simulator.fm.log(2, "Stock Room: more than one SKU on shelf {}; only SKU#{} will be"
+            + " replenished.", values[0] + " " + aisle + " " + rack + " " + level, values[4]);
+      }
     }
   }
 
@@ -162,95 +473,63 @@ public class StockRoom {
       int rack = Integer.parseInt(values[2]);
       int level = Integer.parseInt(values[3]);
       int amount = Integer.parseInt(values[4]);
-      for (Product p : productMap.values()) {
-        if (p.getZone().equals(values[0]) && p.getAisle() == aisle && p.getRack() == rack
-            && p.getLevel() == level) {
-          p.stock = amount;
-        }
+      int ordinal = ordinalAt(values[0], aisle, rack, level);
+      if (ordinal >= 0) {
+        store.setStock(ordinal, amount);
       }
     }
   }
 
-  /** The private Product class stores information about a particular product stored in StockRoom. 
+  /** The Product class is a view of a particular shelf in the StockRoom's store. 
    * This includes its current stock, its position, and its SKU number.
    */
   public class Product {
-    /** The Product's SKU number. */
-    private String sku;
-    /** The amount of product in the StockRoom. */
-    private int stock;
-    /* The current location of the product in the StockRoom. 
-     * [zone][aisle][rack][level] */
-    /** The zone in which the Product is located, within the stock room. */
-    private String zone;  
-    /** The aisle in a particular zone. */
-    private int aisle;
-    /** The rack in a particular aisle. */
-    private int rack;
-    /** The level on a particular rack. */
-    private int level;
-
-    /** Initialize a Product object.
+    /** The ordinal of the Product's shelf in the store. */
+    private final int ordinal;
+
+    /** Initialize a view of a shelf.
      * 
-     * @param skuNumber
-     *      The SKU of the product.
-     * @param amount
-     *      The amount of product in stock.
-     * @param initialZone
-     *      A product's zone.
-     * @param initialAisle
-     *      A product's aisle.
-     * @param initialRack
-     *      A product's rack.
-     * @param initialLevel
-     *      A product's level.
-     * */
-    private Product(String skuNumber, int amount, 
-        String initialZone, int initialAisle, int initialRack, int initialLevel) {
-      sku = skuNumber;
-      stock = amount;
-      zone = initialZone;
-      aisle = initialAisle;
-      rack = initialRack;
-      level = initialLevel;
+     * @param ordinal
+     *      The ordinal of the shelf in the store.
+     */
+    private Product(int ordinal) {
+      this.ordinal = ordinal;
     }
 
     /** Remove one product from stock. */
     public void takeOne() {
-      if (stock > 0) {
-        stock--;
-      } else {
-        Simulator.fm.logInfo(2, "Stock Room: SKU#" + this.getSku() + " out of stock.");
+      if (store.takeOne(ordinal) < 0) {
+        Simulator.fm.log(2, "Stock Room: SKU#{} out of stock.", this.getSku());
       }
     }
 
     /** Add 25 more product. */
     public void replenish() {
-      stock += 25;
+      store.addStock(ordinal, 25);
     }
     
     public String getSku() {
-      return sku;
+      return store.getSku(ordinal);
     }
 
     public int getStock() {
-      return stock;
+      return store.getStock(ordinal);
     }
 
     public String getZone() {
-      return zone;
+      return store.getZone(ordinal);
     }
 
     public int getAisle() {
-      return aisle;
+      return store.getAisle(ordinal);
     }
 
     public int getRack() {
-      return rack;
+      return store.getRack(ordinal);
     }
 
     public int getLevel() {
-      return level;
+      return store.getLevel(ordinal);
     }
 
   }
@@ -0,0 +1,145 @@
+/** Where a StockRoom keeps its shelves: the SKU, location and stock of each one.
+ *
+ * <p>Shelves are numbered with dense ordinals, in the order they are added (the order of
+ * the traversal table). If a SKU is added twice, it is then found at its last shelf.
+ *
+ * <p>Implementations:
+ * <ul>
+ * <li>ObjectStockStore: one object per shelf. The default.</li>
+ * <li>ArrayStockStore: parallel primitive arrays, optionally off the Java heap.</li>
+ * <li>ConcurrentStockStore: an ArrayStockStore whose stock is safe to change from many
+ * threads at once.</li>
+ * <li>MappedStockStore: an ArrayStockStore whose stock is a memory-mapped file, saved as
+ * it changes.</li>
+ * <li>JournaledStockStore: wraps another store, and saves its stock to disk so it survives
+ * a restart.</li>
+ * </ul>
+ */
+public interface StockStore {
+
+  /** Adds a shelf.
+   *
+   * @param sku
+   *      The SKU stored on the shelf.
+   * @param zone
+   *      The zone of the shelf.
+   * @param aisle
+   *      The aisle of the shelf.
+   * @param rack
+   *      The rack of the shelf.
+   * @param level
+   *      The level of the shelf.
+   * @param stock
+   *      The amount of product on the shelf.
+   * @return
+   *      The ordinal of the new shelf.
+   */
+  int addShelf(String sku, String zone, int aisle, int rack, int level, int stock);
+
+  /** Returns the number of shelves. */
+  int size();
+
+  /** Finds the shelf of a SKU.
+   *
+   * @param sku
+   *      The SKU.
+   * @return
+   *      The ordinal of the SKU's shelf, or -1 if it is not in the store.
+   */
+  int ordinalOf(String sku);
+
+  /** Returns the SKU stored on a shelf. */
+  String getSku(int ordinal);
+
+  /** Returns the zone of a shelf. */
+  String getZone(int ordinal);
+
+  /** Returns the aisle of a shelf. */
+  int getAisle(int ordinal);
+
+  /** Returns the rack of a shelf. */
+  int getRack(int ordinal);
+
+  /** Returns the level of a shelf. */
+  int getLevel(int ordinal);
+
+  /** Returns the amount of product on a shelf. */
+  int getStock(int ordinal);
+
+  /** Sets the amount of product on a shelf. */
+  void setStock(int ordinal, int stock);
+
+  /** Takes one product off a shelf, if there is any.
+   *
+   * @param ordinal
+   *      The ordinal of the shelf.
+   * @return
+   *      The amount of product left, or -1 if the shelf was already empty.
+   */
+  int takeOne(int ordinal);
+
+  /** Adds product to a shelf.
+   *
+   * @param ordinal
+   *      The ordinal of the shelf.
+   * @param amount
+   *      The amount of product added.
+   * @return
+   *      The amount of product on the shelf afterwards.
+   */
+  int addStock(int ordinal, int amount);
+
+  /** Restores the stock as an earlier run cut short left it, if the store keeps it, to see
+   * how far that run got. Called once all shelves have been added.
+   *
+   * <p>A StockRoom does not start from it: its Warehouse replays every event from the
+   * first, and the orders, pick requests and Trucks they made are not saved, so the run
+   * must start again from the initial stock (see restoreInitial).
+   *
+   * @return
+   *      True if the stock was restored.
+   */
+  default boolean restore() {
+    return false;
+  }
+
+  /** Restores the initial stock an earlier run started from, if the store keeps it, so the
+   * initial stock file need not be read again. Called once all shelves have been added.
+   *
+   * @return
+   *      True if the initial stock was restored, so it should not be loaded.
+   */
+  default boolean restoreInitial() {
+    return false;
+  }
+
+  /** Saves the stock of every shelf, if the store keeps it across runs. Called once the
+   * initial stock is loaded or restored, and may be called again at any time.
+   */
+  default void checkpoint() {
+  }
+
+  /** Saves the stock, if the store keeps it across runs, and releases any files held. */
+  default void close() {
+  }
+
+  /** Computes a hash of the shelves of a store: the SKU and location of each, in order.
+   * Saved stock is only restored into a store with the same layout hash.
+   *
+   * @param store
+   *      The store.
+   * @return
+   *      The layout hash.
+   */
+  static long layoutHash(StockStore store) {
+    long hash = 1125899906842597L;
+    for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+      hash = 31 * hash + store.getSku(ordinal).hashCode();
+      hash = 31 * hash + store.getZone(ordinal).hashCode();
+      hash = 31 * hash + store.getAisle(ordinal);
+      hash = 31 * hash + store.getRack(ordinal);
+      hash = 31 * hash + store.getLevel(ordinal);
+    }
+    return hash;
+  }
+}
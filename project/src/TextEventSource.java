@@ -0,0 +1,42 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/** An EventSource that parses event lines, such as those streamed by an EventReader. */
+public class TextEventSource implements EventSource {
+
+  /** The event lines to be parsed. */
+  private Iterator<String> lines;
+  /** Tokenizes each line into an Event. */
+  private EventParser parser = new EventParser();
+
+  /** Creates an EventSource over the given event lines.
+   * 
+   * @param lines
+   *      The event lines, in the format described in help.txt.
+   */
+  public TextEventSource(Iterator<String> lines) {
+    this.lines = lines;
+  }
+
+  @Override
+  public boolean next(Event event) {
+    while (lines.hasNext()) {
+      if (parser.parse(lines.next(), event)) { // Unrecognized events are logged and skipped
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void close() {
+    if (lines instanceof Closeable) { // Release the events file, if streamed
+      try {
+        ((Closeable) lines).close();
+      } catch (IOException exception) {
+        Simulator.fm.logException(exception, "Error: Could not close events file.");
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/** Writes each log record as a single line of text:
+ *
+ * <pre>
+ * 2017-03-30 14:02:11.045 INFO Picker Alice: Correct SKU: 1 detected.
+ * </pre>
+ *
+ * <p>The stack trace of an exception, if any, follows on lines starting with a tab, so
+ * every line that does not start with one is a new record.
+ */
+public class TextLogSink implements LogSink {
+
+  /** Formats the date and time of a record, to the second. */
+  private static final DateTimeFormatter TIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+  /** The log output file, or null if writing to a plain stream. */
+  private RotatingLogFile file;
+  /** Where the lines are written. */
+  private OutputStream out;
+  /** The line being built, reused for every record. */
+  private StringBuilder line = new StringBuilder(256);
+  /** The second that secondText was formatted for. */
+  private long second = Long.MIN_VALUE;
+  /** The formatted date and time of the current second, reused until it changes. */
+  private String secondText;
+
+  /** Opens a text log file, overwriting any existing one.
+   *
+   * @param filePath
+   *      The path of the log file.
+   * @param maxBytes
+   *      The size at which the file is rotated, or 0 to never rotate.
+   * @param maxFiles
+   *      The number of rotated files kept next to the current one.
+   * @throws IOException
+   *      Indicates that an I/O exception has occurred.
+   */
+  public TextLogSink(String filePath, long maxBytes, int maxFiles) throws IOException {
+    this.file = new RotatingLogFile(filePath, maxBytes, maxFiles);
+    this.out = file;
+  }
+
+  /** Writes log lines to a stream, such as System.out. Nothing is rotated.
+   *
+   * @param out
+   *      Where the lines are written.
+   */
+  public TextLogSink(OutputStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(LogEntry entry) throws IOException {
+    if (file != null && file.isFull()) {
+      file.rotate();
+    }
+    line.setLength(0);
+    long entrySecond = Math.floorDiv(entry.millis, 1000);
+    if (entrySecond != second) {
+      second = entrySecond;
+      secondText = TIME_FORMAT.format(Instant.ofEpochSecond(entrySecond));
+    }
+    int millis = Math.floorMod(entry.millis, 1000);
+    line.append(secondText).append('.');
+    line.append((char) ('0' + millis / 100)).append((char) ('0' + millis / 10 % 10))
+        .append((char) ('0' + millis % 10));
+    line.append(' ').append(XmlLogSink.toLevel(entry.severity)).append(' ');
+    line.append(entry.message).append(System.lineSeparator());
+    String trace = entry.getStackTrace();
+    if (trace != null) {
+      for (String traceLine : trace.split("\\R")) {
+        line.append('\t').append(traceLine).append(System.lineSeparator());
+      }
+    }
+    out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (file != null) {
+      file.close();
+    } else {
+      out.flush();
+    }
+  }
+}
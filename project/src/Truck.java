@@ -37,40 +37,74 @@ Left     ----     ----      Right
 */
 
 public class Truck {
-  /** Counter for total trucks created across all Warehouse simulations. */
-  public static int truckCount = 0;
-  /** The current load of this truck.*/
+  /** The current load of this truck, in orders.*/
   private int currentLoad = 0;
   /** Stores the orders on this truck. */
   private ArrayList<Order> orderList = new ArrayList<Order>();
   /** Stores this truck's identification number (not instance ID).*/
   private int truckId;
+  /** The number of the Warehouse this truck is loaded at, used to name its export file. */
+  private int warehouseId;
   /** The maximum height that pick requests may be stacked. */
   private int truckHeight = 10;
   /** The maximum width that pick requests may fit in the truck. */
   private int truckWidth = 2;
-  /** The truck capacity.*/
-  private int truckCapacity = truckHeight * truckWidth;
-  /** Creates a Truck for storing Pallets to be shipped from the Warehouse. */
+  /** The most orders a truck holds: each of its 10 by 2 front and back pallet pairs holds
+   * a batch of OrderHandler.DEFAULT_BATCH_SIZE orders' fascia. No batch may be larger. */
+  public static final int CAPACITY = 10 * 2 * OrderHandler.DEFAULT_BATCH_SIZE;
+  /** The truck capacity, in orders. */
+  private int truckCapacity = CAPACITY;
+  /** Creates the first Truck for storing Pallets to be shipped from the first Warehouse. */
   public Truck() {
-    this.truckId = truckCount;
-    truckCount += 1;
+    this(0, 0);
+  }
+
+  /** Creates a Truck for storing Pallets to be shipped from a Warehouse.
+   * 
+   * <p>Truck numbers are counted per Warehouse by its Marshalling station, see
+   * Marshalling.newTruck(), so that Warehouses can be simulated at the same time.
+   * 
+   * @param truckId
+   *    This truck's identification number within its Warehouse.
+   * @param warehouseId
+   *    The number of the Warehouse this truck is loaded at.
+   */
+  public Truck(int truckId, int warehouseId) {
+    this.truckId = truckId;
+    this.warehouseId = warehouseId;
   }
 
 
-  /** Loads the specified front and back Pallets onto this Truck. */
-  public void loadPallet(ArrayList<Order> fourOrders) {
-    if (!this.isFull()){
-      for (int i = 0; i < fourOrders.size(); i++) { //add the corresponding 4 orders to the orderList
-        orderList.add(fourOrders.get(i));
+  /** Loads the specified front and back Pallets onto this Truck, if their orders fit.
+   * 
+   * @param batchOrders
+   *    The orders on the Pallets.
+   * @return
+   *    Were the Pallets loaded?
+   */
+  public boolean loadPallet(ArrayList<Order> batchOrders) {
+    if (!this.canLoad(batchOrders.size())){
+      if (Simulator.fm.isLoggable(1)) { // Avoids boxing the counts when not logged
+        Simulator.fm.log(1, "Truck {}: No room for Pallets of {} orders; {} of {} orders"
+            + " loaded.", truckId, batchOrders.size(), currentLoad, truckCapacity);
       }
-      currentLoad++;
+      return false;
+    }
+    for (int i = 0; i < batchOrders.size(); i++) { //add the corresponding orders to the orderList
+      orderList.add(batchOrders.get(i));
     }
+    currentLoad += batchOrders.size();
+    return true;
   }
   
   /** Returns True if this Truck is full. */
   public boolean isFull() {
-    return currentLoad == truckCapacity;
+    return currentLoad >= truckCapacity;
+  }
+
+  /** Returns True if this Truck has room for the given number of orders. */
+  public boolean canLoad(int orders) {
+    return currentLoad + orders <= truckCapacity;
   }
    
   /** Get the identification number of this Truck.*/
@@ -89,6 +123,6 @@ public class Truck {
     for (Order order: orderList) {
       outArray.add(order.getModel() + ", " + order.getColour());
     }
-    Simulator.writeFile(outArray, "orders.csv");
+    Simulator.writeFile(outArray, "orders.csv", warehouseId);
   }
 }
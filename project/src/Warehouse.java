@@ -1,6 +1,6 @@
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Iterator;
 
 /**
  * A Warehouse in the Warehouse Simulation.
@@ -10,17 +10,24 @@ import java.util.Arrays;
  */
 public class Warehouse {
 
-  /** The phrases to be read from an event in eventSequence. */ 
-  private ArrayList<String> events =
-      new ArrayList<>(Arrays.asList("Order", "Picker", "Sequencer", "Loader", "Replenisher"));
+  /** The handler for each type of Event, indexed by EventType ordinal. */
+  private EventHandler[] handlers = new EventHandler[EventType.values().length];
+  /** The number of this Warehouse in the simulation, used to name its output files. */
+  private int warehouseId;
   /** Tracks the current event number being processed. */
   private int eventCounter = 0;
-  /** A sequence of events the Simulator can recognize and process from the text file. */ 
-  private ArrayList<String> eventSequence = new ArrayList<>(); 
+  /** A sequence of events the Simulator can recognize and process from the events file.
+   * 
+   * <p>Events are pulled one at a time, from either a text or a binary event log. */ 
+  private EventSource eventSequence; 
   /** A factory-object for producing Worker classes. */
   private WorkerFactory factory = new WorkerFactory();
   /** The OrderHandler inside this Warehouse. */
   private OrderHandler orderHandler;
+  /** The number of orders the order intake can hold. */
+  static final int INTAKE_CAPACITY = 1024;
+  /** Takes in orders from other threads, such as FAX or EDI feeds, for the OrderHandler. */
+  private OrderIntake orderIntake = new OrderIntake(INTAKE_CAPACITY);
   /** The Marshalling station inside this Warehouse. */
   private Marshalling marshalling;
   /** The StockRoom inside this Warehouse. */
@@ -42,11 +49,99 @@ public class Warehouse {
    */
   public Warehouse(ArrayList<String> event, ArrayList<String> init,
       ArrayList<String> traversal, ArrayList<String> translation) {
+    this(event.iterator(), init, traversal, translation);
+  }
+
+  /** Initializes a Warehouse within the simulation that pulls its events from a cursor,
+   * such as an EventReader streaming them from disk.
+   * 
+   * @param event 
+   *        The events that will be run by this Warehouse, in order.
+   * @param init 
+   *        The initial state of the StockRoom's stock.
+   * @param traversal 
+   *        The traversal table used by OrderHandler's optimize code and to setup the
+   *        layout of the StockRoom.
+   * @param translation 
+   *        The translation table used by OrderHandler to decode orders.
+   */
+  public Warehouse(Iterator<String> event, ArrayList<String> init,
+      ArrayList<String> traversal, ArrayList<String> translation) {
+    this(new TextEventSource(event), init, traversal, translation);
+  }
+
+  /** Initializes a Warehouse within the simulation that replays already parsed events,
+   * such as those in a binary event log.
+   * 
+   * @param event 
+   *        The events that will be run by this Warehouse, in order.
+   * @param init 
+   *        The initial state of the StockRoom's stock.
+   * @param traversal 
+   *        The traversal table used by OrderHandler's optimize code and to setup the
+   *        layout of the StockRoom.
+   * @param translation 
+   *        The translation table used by OrderHandler to decode orders.
+   */
+  public Warehouse(EventSource event, ArrayList<String> init,
+      ArrayList<String> traversal, ArrayList<String> translation) {
+    this(0, event, init, traversal, translation);
+  }
+
+  /** Initializes a numbered Warehouse within the simulation.
+   * 
+   * <p>Everything a Warehouse changes while running, including the numbering of its output
+   * files and Trucks, belongs to it alone, so several Warehouses may be run at once.
+   * 
+   * @param warehouseId
+   *        The number of this Warehouse, used to name its finalN.csv and ordersN.csv.
+   * @param event 
+   *        The events that will be run by this Warehouse, in order.
+   * @param init 
+   *        The initial state of the StockRoom's stock.
+   * @param traversal 
+   *        The traversal table used by OrderHandler's optimize code and to setup the
+   *        layout of the StockRoom.
+   * @param translation 
+   *        The translation table used by OrderHandler to decode orders.
+   */
+  public Warehouse(int warehouseId, EventSource event, ArrayList<String> init,
+      ArrayList<String> traversal, ArrayList<String> translation) {
+    this(warehouseId, event, init, traversal, translation, new ObjectStockStore());
+  }
+
+  /** Initializes a numbered Warehouse whose StockRoom keeps its shelves in the given store.
+   * 
+   * @param warehouseId
+   *        The number of this Warehouse, used to name its finalN.csv and ordersN.csv.
+   * @param event 
+   *        The events that will be run by this Warehouse, in order.
+   * @param init 
+   *        The initial state of the StockRoom's stock.
+   * @param traversal 
+   *        The traversal table used by OrderHandler's optimize code and to setup the
+   *        layout of the StockRoom.
+   * @param translation 
+   *        The translation table used by OrderHandler to decode orders.
+   * @param stockStore
+   *        An empty StockStore for the StockRoom's shelves.
+   */
+  public Warehouse(int warehouseId, EventSource event, ArrayList<String> init,
+      ArrayList<String> traversal, ArrayList<String> translation, StockStore stockStore) {
+    this.warehouseId = warehouseId;
     this.eventSequence = event;
     translation.remove(0);
-    this.stockRoom = new StockRoom(traversal, init);
+    this.stockRoom = new StockRoom(traversal, init, warehouseId, stockStore);
     this.orderHandler = new OrderHandler(translation, this);
-    this.marshalling = new Marshalling();
+    stockRoom.getReplenishmentPlanner().setDemand(orderHandler::openDemand);
+    this.marshalling = new Marshalling(warehouseId);
+    handlers[EventType.ORDER.ordinal()] = this::handleOrder;
+    handlers[EventType.READY.ordinal()] = this::handleReady;
+    handlers[EventType.SCANS.ordinal()] = this::handleScans;
+    handlers[EventType.RESCANS.ordinal()] = this::handleRescans;
+    handlers[EventType.COMPLETES.ordinal()] = this::handleCompletes;
+    handlers[EventType.DISCARDS.ordinal()] = this::handleDiscards;
+    handlers[EventType.REPLENISH.ordinal()] = this::handleReplenish;
   }
 
   /**
@@ -61,65 +156,125 @@ public class Warehouse {
     Simulator.fm.logInfo(3, "#####################################");
     Simulator.fm.logInfo(3, "######### Running Warehouse #########");
     Simulator.fm.logInfo(3, "#####################################");
-    for (String eventString : eventSequence) {
-      String[] event = eventString.split(" ");
-      Simulator.fm.logInfo(3, "## Warehouse: Handling Event #" + eventCounter + ": " + eventString + " ##");
+    Event event = new Event(); // Reused for every event
+    while (eventSequence.next(event)) { // Unrecognized events are logged and skipped
+      orderIntake.drain(orderHandler::addOrder); // Orders from other feeds go first
+      if (Simulator.fm.isLoggable(3)) { // Skips rebuilding the event line when not logged
+        Simulator.fm.log(3, "## Warehouse: Handling Event #{}: {} ##", eventCounter, event);
+      }
   
       ///////////////// EVENT HANDLING //////////////////
-      if (!(events.contains(event[0]))) { // Event not recognized
-        Simulator.fm.logInfo(2, "Simulator: system does not understand the event: " + event[0]);
-        Simulator.fm.logInfo(3, "Simulator: skipping the event: " + event[0]); 
-      }
-      if (event[0].equals("Order")) { // Event: Order (model) (colour)
-        Simulator.fm.logInfo(3, event[1] + " " + event[2]);
-        Order order = new Order(event[1], event[2]);
-        orderHandler.addOrder(order);
-      } else if (event[2].equals("ready")){ // Event: Worker (name) ready
-        if (!checkWorker(event[1])) {
-          workers.add(factory.makeWorker(event[1], event[0], this)); // factory generates Worker of given type
-          Simulator.fm.logInfo(3, "## Warehouse: Registered worker: " + event[0] + " " + event[1] +" ##");
-          getWorker(event[1]).ready();
-        } else {
-          getWorker(event[1]).ready(); // Worker already exists, just change status to ready
-        }
-             
-      } else if (event[2].equals("scans")) { // Event: Worker (name) scans (SKU)
-        Worker worker = getWorker(event[1]);
-        worker.scanSku(event[3]);
-      } else if (event[2].equals("rescans")) { // Event: Worker (name) rescans (SKU)
-        Worker worker = getWorker(event[1]);
-        worker.resetScan();
-      } else if (event[2].equals("completes")) { // Event: Worker (name) completes ---
-        Worker worker = getWorker(event[1]);
-        worker.complete();
-      } else if (event[2].equals("discards")) { // Event: Worker (name) completes ---
-        Worker worker = getWorker(event[1]);
-        worker.discard();
-      }
-      
-//      else if (event[0].equals("Picker") && event[2].equals("printout")) { // Event: Picker (name) printout
-//          Picker picker = (Picker) getWorker(event[1]); //TODO: generalize this for all workers too
-//          picker.printPickInfo();          
-//        } 
-      
-      else if (event[0].equals("Replenisher")) { // Event: Replenisher (name) replenish (locale)
-        stockRoom.replenish(event[3] + " " + event[4] + " " + event[5] + " " + event[6]);
-      }
-//      } else{
-//    	  Simulator.fm.logInfo(3, "Simulator: INVALID EVENT!");
-//      }
+      handlers[event.getType().ordinal()].handle(event);
+      orderHandler.tick(); // Flushes orders that have waited too long for a batch
       
-      // Move to next line...
+      // Move to next event...
       eventCounter++;
       
-    } /////////////////EXPORTING///////////////////
+    }
+    eventSequence.close(); // Release the events file, if streamed
+    orderIntake.drain(orderHandler::addOrder);
+    orderHandler.flush(); // No order is left waiting for a batch to fill
+    if (orderIntake.getTaken() > 0 && Simulator.fm.isLoggable(3)) {
+      Simulator.fm.log(3, "Order Intake: {} orders taken in; waited {} us on average, {} us"
+          + " at most; at most {} waiting.", orderIntake.getTaken(),
+          orderIntake.getMeanWait() / 1000, orderIntake.getMaxWait() / 1000,
+          orderIntake.getMaxDepth());
+    }
+    if (orderHandler.getRoutingStrategy() instanceof RouteCache && Simulator.fm.isLoggable(3)) {
+      RouteCache cache = (RouteCache) orderHandler.getRoutingStrategy();
+      Simulator.fm.log(3, "Route Cache: {} routes found, {} planned; {} evicted.",
+          cache.getHits(), cache.getMisses(), cache.getEvictions());
+    }
+    /////////////////EXPORTING///////////////////
     stockRoom.csvExport();  // export stock to final.csv
+    SlottingAdvisor advisor = stockRoom.getSlottingAdvisor();
+    if (advisor != null) { // export a better layout to traversal.csv
+      SlottingAdvisor.Plan plan = advisor.plan();
+      if (Simulator.fm.isLoggable(3)) {
+        Simulator.fm.log(3, "Slotting Advisor: moving {} SKUs would cut the walk of the last"
+            + " {} pick requests from {} to {}.", plan.getMoves(),
+            Math.min(advisor.getPickRequests(), SlottingAdvisor.SAMPLE_SIZE), plan.getBefore(),
+            plan.getAfter());
+      }
+      advisor.apply(plan, warehouseId);
+    }
+    stockRoom.close();
     for (Truck truck: marshalling.getTruckList()) { // export all orders on trucks to orders.csv
       truck.exportOrders();
     }
   }
 
-  
+  /** Event: Order (model) (colour) */
+  private void handleOrder(Event event) {
+    Simulator.fm.log(3, "{} {}", event.getModel(), event.getColour());
+    Order order = new Order(event.getModel(), event.getColour());
+    orderHandler.addOrder(order);
+  }
+
+  /** Event: Worker (name) ready */
+  private void handleReady(Event event) {
+    if (!checkWorker(event.getName())) {
+      // factory generates Worker of given type
+      workers.add(factory.makeWorker(event.getName(), event.getRole(), this));
+      Simulator.fm.log(3, "## Warehouse: Registered worker: {} {} ##", event.getRole(),
+          event.getName());
+    } // If the Worker already exists, just change status to ready
+    getWorker(event.getName()).ready();
+  }
+
+  /** Event: Worker (name) scans (SKU) */
+  private void handleScans(Event event) {
+    Worker worker = findWorker(event);
+    if (worker != null) {
+      worker.scanSku(event.getSku());
+    }
+  }
+
+  /** Event: Worker (name) rescans */
+  private void handleRescans(Event event) {
+    Worker worker = findWorker(event);
+    if (worker != null) {
+      worker.resetScan();
+    }
+  }
+
+  /** Event: Worker (name) completes */
+  private void handleCompletes(Event event) {
+    Worker worker = findWorker(event);
+    if (worker != null) {
+      worker.complete();
+    }
+  }
+
+  /** Event: Worker (name) discards */
+  private void handleDiscards(Event event) {
+    Worker worker = findWorker(event);
+    if (worker != null) {
+      worker.discard();
+    }
+  }
+
+  /** Event: Replenisher (name) replenish (zone) (aisle) (rack) (level) */
+  private void handleReplenish(Event event) {
+    stockRoom.replenish(event.getZone(), event.getAisle(), event.getRack(), event.getLevel());
+  }
+
+  /** Gets the Worker performing an event, logging if they have not reported ready yet.
+   * 
+   * @param event
+   *      The event being performed.
+   * @return
+   *      The Worker, or null if not found.
+   */
+  private Worker findWorker(Event event) {
+    Worker worker = getWorker(event.getName());
+    if (worker == null) {
+      Simulator.fm.log(2, "Warehouse: {} {} has not reported ready. Event ignored.",
+          event.getRole(), event.getName());
+    }
+    return worker;
+  }
+
   /** Gets a Worker employed in this Warehouse by name.
    * 
    * @param name
@@ -136,11 +291,23 @@ public class Warehouse {
     return null;
   }
 
+  /** Returns the number of this Warehouse in the simulation. */
+  public int getWarehouseId() {
+    return warehouseId;
+  }
+
   /** Returns this Warehouse's OrderHandler. */
   public OrderHandler getOrderHandler() {
     return orderHandler;
   }
 
+  /** Returns the intake through which other threads may submit orders to this Warehouse.
+   * They are handed to the OrderHandler by the thread running the Warehouse, before each
+   * event. */
+  public OrderIntake getOrderIntake() {
+    return orderIntake;
+  }
+
   /** Returns this Warehouse's StockRoom. */
   public StockRoom getStockRoom() {
     return stockRoom;
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/** The walking distances between the shelves of a StockRoom, modelled on its traversal
+ * table.
+ *
+ * <p>Each zone is a block of parallel aisles, numbered from 0, with a cross-aisle along
+ * the front of the racks (before rack 0) and another along the back (after the last rack
+ * in the zone). Walking past a rack costs RACK_DISTANCE, crossing from one aisle to the
+ * next along a cross-aisle AISLE_DISTANCE, and going from one zone to the next
+ * ZONE_DISTANCE. Zones are entered and left at the front of their aisle 0, and lined up
+ * in name order, with Marshalling (the DEPOT) at the entrance of the first.
+ *
+ * <p>Levels are not walked; a shelf's level is reached from where its rack stands.
+ */
+public class WarehouseLayout {
+
+  /** Stands for Marshalling, where every route starts and ends, in place of an ordinal. */
+  public static final int DEPOT = -1;
+  /** The walk past one rack along an aisle. */
+  static final int RACK_DISTANCE = 1;
+  /** The walk along a cross-aisle from one aisle to the next. */
+  static final int AISLE_DISTANCE = 4;
+  /** The walk from the entrance of one zone to the entrance of the next. */
+  static final int ZONE_DISTANCE = 20;
+
+  /** The zones, in name order. */
+  private final List<String> zones = new ArrayList<String>();
+  /** The index of each shelf's zone among the zones, by ordinal. */
+  private final int[] zoneOf;
+  /** The aisle of each shelf, by ordinal. */
+  private final int[] aisleOf;
+  /** The rack of each shelf, by ordinal. */
+  private final int[] rackOf;
+  /** The number of racks along the aisles of each zone, by zone index: the position of
+   * its back cross-aisle. */
+  private final int[] racks;
+
+  /** Models the layout of a StockRoom's shelves, as they are now.
+   *
+   * @param store
+   *      The shelves of the StockRoom.
+   */
+  public WarehouseLayout(StockStore store) {
+    int size = store.size();
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      if (!zones.contains(store.getZone(ordinal))) {
+        zones.add(store.getZone(ordinal));
+      }
+    }
+    zones.sort(null);
+    zoneOf = new int[size];
+    aisleOf = new int[size];
+    rackOf = new int[size];
+    racks = new int[zones.size()];
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      zoneOf[ordinal] = zones.indexOf(store.getZone(ordinal));
+      aisleOf[ordinal] = store.getAisle(ordinal);
+      rackOf[ordinal] = store.getRack(ordinal);
+      racks[zoneOf[ordinal]] = Math.max(racks[zoneOf[ordinal]], rackOf[ordinal] + 1);
+    }
+  }
+
+  /** Measures the shortest walk between two shelves, or a shelf and Marshalling.
+   *
+   * @param from
+   *      The ordinal of a shelf, or DEPOT.
+   * @param to
+   *      The ordinal of a shelf, or DEPOT.
+   * @return
+   *      The walking distance.
+   */
+  public int distance(int from, int to) {
+    int fromZone = from == DEPOT ? 0 : zoneOf[from];
+    int toZone = to == DEPOT ? 0 : zoneOf[to];
+    if (fromZone != toZone) { // Out of one zone by its entrance, into the other by its own
+      return toEntrance(from) + ZONE_DISTANCE * Math.abs(fromZone - toZone) + toEntrance(to);
+    }
+    return distance(fromZone, aisle(from), rack(from), aisle(to), rack(to));
+  }
+
+  /** Measures a route from Marshalling, past each shelf in turn, and back.
+   *
+   * @param route
+   *      The ordinals of the shelves, in the order they are visited.
+   * @param count
+   *      The number of shelves in the route.
+   * @return
+   *      The walking distance.
+   */
+  public int routeLength(int[] route, int count) {
+    int length = 0;
+    int at = DEPOT;
+    for (int i = 0; i < count; i++) {
+      length += distance(at, route[i]);
+      at = route[i];
+    }
+    return length + distance(at, DEPOT);
+  }
+
+  /** Returns the index of a shelf's zone, in name order. */
+  public int zoneOf(int ordinal) {
+    return zoneOf[ordinal];
+  }
+
+  /** Returns the aisle of a shelf. */
+  public int aisleOf(int ordinal) {
+    return aisleOf[ordinal];
+  }
+
+  /** Returns the rack of a shelf. */
+  public int rackOf(int ordinal) {
+    return rackOf[ordinal];
+  }
+
+  /** Returns the number of racks along the aisles of a zone: the rack position of its back
+   * cross-aisle. The front cross-aisle is at rack position -1.
+   *
+   * @param zone
+   *      The index of the zone, in name order.
+   * @return
+   *      The number of racks.
+   */
+  public int racksIn(int zone) {
+    return racks[zone];
+  }
+
+  /** Measures the walk between two points in the same zone, each an aisle and a rack
+   * position, from -1 (the front cross-aisle) to the number of racks (the back one). */
+  private int distance(int zone, int fromAisle, int fromRack, int toAisle, int toRack) {
+    if (fromAisle == toAisle) {
+      return RACK_DISTANCE * Math.abs(fromRack - toRack);
+    }
+    int back = racks[zone];
+    int viaFront = fromRack + 1 + toRack + 1;
+    int viaBack = back - fromRack + back - toRack;
+    return AISLE_DISTANCE * Math.abs(fromAisle - toAisle)
+        + RACK_DISTANCE * Math.min(viaFront, viaBack);
+  }
+
+  /** Measures the walk from a shelf, or Marshalling, to the entrance of its zone. */
+  private int toEntrance(int ordinal) {
+    return ordinal == DEPOT ? 0 : distance(zoneOf[ordinal], aisleOf[ordinal], rackOf[ordinal],
+        0, -1);
+  }
+
+  /** Returns the aisle of a shelf, or 0 for Marshalling. */
+  private int aisle(int ordinal) {
+    return ordinal == DEPOT ? 0 : aisleOf[ordinal];
+  }
+
+  /** Returns the rack position of a shelf, or -1 (the front cross-aisle) for Marshalling. */
+  private int rack(int ordinal) {
+    return ordinal == DEPOT ? -1 : rackOf[ordinal];
+  }
+}
@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** Plans a wave of orders into pick requests whose shelves lie close together, so that
+ * each Picker walks less than they would picking the orders four at a time as they came.
+ *
+ * <p>Walking distance between two shelves is measured on the traversal layout: crossing
+ * to another zone costs ZONE_DISTANCE, moving to another aisle of the same zone costs
+ * AISLE_DISTANCE an aisle, and moving along an aisle costs 1 a rack.
+ *
+ * <p>Each pick request is seeded with the oldest order not yet planned, so no order waits
+ * more than one wave, then filled with the orders that add the least walking to it: those
+ * whose front and back shelves are nearest the shelves already in it.
+ */
+public class WavePlanner {
+
+  /** The walking distance from one zone to another. */
+  static final int ZONE_DISTANCE = 100;
+  /** The walking distance from one aisle to the next in the same zone. */
+  static final int AISLE_DISTANCE = 10;
+
+  /** The shelves of the StockRoom. */
+  private final StockStore store;
+
+  /** Creates the planner of a StockRoom's shelves.
+   *
+   * @param store
+   *      The shelves of the StockRoom.
+   */
+  public WavePlanner(StockStore store) {
+    this.store = store;
+  }
+
+  /** Groups a wave of orders into pick requests.
+   *
+   * @param skus
+   *      The front then back SKU of each order in the wave, oldest order first.
+   * @param batchSize
+   *      The most orders in a pick request.
+   * @return
+   *      The pick requests, as the indexes of their orders in the wave, oldest first. The
+   *      pick requests are in the order of their oldest orders.
+   */
+  public List<int[]> plan(List<String> skus, int batchSize) {
+    int orderCount = skus.size() / 2;
+    int[] shelves = new int[skus.size()];
+    for (int i = 0; i < shelves.length; i++) {
+      shelves[i] = store.ordinalOf(skus.get(i));
+    }
+    boolean[] planned = new boolean[orderCount];
+    int plannedCount = 0;
+    List<int[]> batches = new ArrayList<int[]>();
+    for (int seed = 0; seed < orderCount; seed++) {
+      if (planned[seed]) {
+        continue;
+      }
+      int[] batch = new int[Math.min(batchSize, orderCount - plannedCount)];
+      int size = 0;
+      batch[size++] = seed;
+      planned[seed] = true;
+      while (size < batch.length) { // The order adding the least walking, oldest on ties
+        int best = seed;
+        int bestCost = Integer.MAX_VALUE;
+        for (int order = seed + 1; order < orderCount; order++) {
+          if (!planned[order]) {
+            int cost = addedDistance(shelves, batch, size, order);
+            if (cost < bestCost) {
+              best = order;
+              bestCost = cost;
+            }
+          }
+        }
+        batch[size++] = best;
+        planned[best] = true;
+      }
+      plannedCount += size;
+      Arrays.sort(batch);
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  /** Measures the walk to pick some SKUs in the traversal order of their shelves: zone,
+   * then aisle, then rack. SKUs not in the StockRoom are not walked to.
+   *
+   * @param skus
+   *      The SKUs.
+   * @return
+   *      The walking distance from the first shelf to the last.
+   */
+  public int travel(List<String> skus) {
+    List<Integer> shelves = new ArrayList<Integer>();
+    for (String sku : skus) {
+      int ordinal = store.ordinalOf(sku);
+      if (ordinal >= 0) {
+        shelves.add(ordinal);
+      }
+    }
+    shelves.sort(Comparator.comparing((Integer ordinal) -> store.getZone(ordinal))
+        .thenComparingInt(ordinal -> store.getAisle(ordinal))
+        .thenComparingInt(ordinal -> store.getRack(ordinal)));
+    int distance = 0;
+    for (int i = 1; i < shelves.size(); i++) {
+      distance += distance(shelves.get(i - 1), shelves.get(i));
+    }
+    return distance;
+  }
+
+  /** Measures the walking distance between two shelves.
+   *
+   * @param from
+   *      The ordinal of one shelf.
+   * @param to
+   *      The ordinal of the other.
+   * @return
+   *      The distance.
+   */
+  int distance(int from, int to) {
+    if (!store.getZone(from).equals(store.getZone(to))) {
+      return ZONE_DISTANCE;
+    }
+    return AISLE_DISTANCE * Math.abs(store.getAisle(from) - store.getAisle(to))
+        + Math.abs(store.getRack(from) - store.getRack(to));
+  }
+
+  /** Estimates the walking an order adds to a pick request: the distance from each of its
+   * shelves to the nearest shelf already in the pick request.
+   *
+   * @param shelves
+   *      The front then back shelf ordinal of each order in the wave, or -1 if unknown.
+   * @param batch
+   *      The orders in the pick request so far.
+   * @param size
+   *      The number of orders in the pick request so far.
+   * @param order
+   *      The order to add.
+   * @return
+   *      The walking added.
+   */
+  private int addedDistance(int[] shelves, int[] batch, int size, int order) {
+    int cost = 0;
+    for (int side = 0; side < 2; side++) {
+      int shelf = shelves[order * 2 + side];
+      if (shelf < 0) {
+        continue;
+      }
+      int nearest = Integer.MAX_VALUE;
+      for (int i = 0; i < size; i++) {
+        for (int other = 0; other < 2; other++) {
+          int to = shelves[batch[i] * 2 + other];
+          if (to >= 0) {
+            nearest = Math.min(nearest, distance(shelf, to));
+          }
+        }
+      }
+      cost += nearest == Integer.MAX_VALUE ? 0 : nearest;
+    }
+    return cost;
+  }
+}
@@ -9,7 +9,7 @@ abstract class Worker {
   
   /** Indicates whether or not the Worker is preoccupied. */
   boolean busy = false;
-  /** The number of stock items this Worker can hold. */
+  /** The number of stock items this Worker can hold: the number in their current task. */
   int capacity = 8;
   /** The Worker's name. */
   String name;
@@ -40,30 +40,32 @@ abstract class Worker {
 
   /** The Worker scans an SKU with their barcode reader. */
   public void scanSku(String skuNum) {
-    String myIdentity = (this.getClass()).toString() + " " + name;
+    // Messages identify this Worker as "(class) (name)", built only if logged.
+    Class<?> myClass = this.getClass();
     if (misscanned) {
-      Simulator.fm.logInfo(2, myIdentity + ": A misscan was detected on an earlier scan."
-          + " Please rescan or discard this pick request.");
+      Simulator.fm.log(2, "{} {}: A misscan was detected on an earlier scan."
+          + " Please rescan or discard this pick request.", myClass, name);
       return;
     }
     if (expectedArray == null || expectedArray.size() == 0) {
-      Simulator.fm.logInfo(3, myIdentity + ": "
-          + "This scanner does not have an assigned task. Please assign one."); 
+      Simulator.fm.log(3, "{} {}: "
+          + "This scanner does not have an assigned task. Please assign one.", myClass, name); 
     } else if (skuNum.equals(expectedArray.get(position))) { // Correct Scan!
       if (position < capacity) { // Space available for SKU!
         position++;
-        Simulator.fm.logInfo(3, myIdentity + ": Correct SKU: " + skuNum + " detected.");
+        Simulator.fm.log(3, "{} {}: Correct SKU: {} detected.", myClass, name, skuNum);
         if (position == capacity) { // Scanning just completed!
-          Simulator.fm.logInfo(3, myIdentity + ": Verificiation Complete. "
-              + "Please complete your assignment.");
+          Simulator.fm.log(3, "{} {}: Verificiation Complete. "
+              + "Please complete your assignment.", myClass, name);
         }
       } else { // Already Finished; refuse SKU scanned.
-        Simulator.fm.logInfo(2, myIdentity + ": Verification has been completed; "
-            + "SKU not registered. Please complete your assignment.");
+        Simulator.fm.log(2, "{} {}: Verification has been completed; "
+            + "SKU not registered. Please complete your assignment.", myClass, name);
       }
     } else { // Incorrect SKU scanned.
-      Simulator.fm.logInfo(2, myIdentity + ": Invalid SKU " + skuNum + ", "
-          + "Please rescan or discard this pick request. Should be: " + getExpected().get(position));
+      Simulator.fm.log(2, "{} {}: Invalid SKU {}, "
+          + "Please rescan or discard this pick request. Should be: {}", myClass, name, skuNum,
+          getExpected().get(position));
       misscanned = true;
     } 
   }
@@ -72,7 +74,6 @@ abstract class Worker {
   public void resetScan() {
     position = 0;
     misscanned = false;
-    System.out.println("WORKER RESCANS!!!");
   }
 
   /** Discards the current pickRequest. 
@@ -81,12 +82,16 @@ abstract class Worker {
    * products, so it is sent back to OrderHandler to be re-done, as well as back to the sequencerQueue. 
    */
   public void discard() {
+    if (myPickRequest == null) {
+      Simulator.fm.log(2, "{} {}: No pick request to discard.", this.getClass(), name);
+      return;
+    }
     resetScan();
-    System.out.println(myPickRequest.getSkuPackage());
+    myWarehouse.getStockRoom().release(myPickRequest); // Any stock not yet picked
     PickRequest discardedRequest = myPickRequest.clone();
     myWarehouse.getOrderHandler().priorityQueue(discardedRequest); // resend pickRequest to OrderHandler
     myWarehouse.getMarshalling().redoPickRequest(discardedRequest); // resend pickRequest to Marshalling
-    Simulator.fm.logInfo(3, (this.getClass()).toString() + " " + name + ": Discard!");
+    Simulator.fm.log(3, "{} {}: Discard!", this.getClass(), name);
     busy = false;
     setPickRequest(null);
   }
@@ -117,9 +122,10 @@ abstract class Worker {
     return expectedArray;
   }
 
-  /** Sets expectedArray. */
+  /** Sets expectedArray, and the Worker's capacity to match it. */
   public void setExpected(ArrayList<String> expected) {
     expectedArray = expected;
+    capacity = expected.size();
   }
 
   /** Set pickRequest of Worker. 
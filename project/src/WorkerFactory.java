@@ -21,10 +21,10 @@ public class WorkerFactory {
         break;
       case "Replenisher": worker = new Replenisher(name, warehouse);
         break;
-      default: Simulator.fm.logInfo(2, "Failed to initialize worker of type " + type + ".");
+      default: Simulator.fm.log(2, "Failed to initialize worker of type {}.", type);
         return worker; // Type not recognized.
     }
-    Simulator.fm.logInfo(3, type + " " + name + " initialized.");
+    Simulator.fm.log(3, "{} {} initialized.", type, name);
     return worker;
   }
 }
@@ -0,0 +1,87 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.StreamHandler;
+import java.util.logging.XMLFormatter;
+
+/** Writes log records through java.util.logging, as XML records in the log file and as
+ * plain text on the console's error stream. This is the Simulator's original log format.
+ */
+public class XmlLogSink implements LogSink {
+
+  private Handler consoleHandler = new ConsoleHandler();
+  private Handler fileHandler;
+  private Logger simLog = Logger.getLogger(FileManager.class.getName());
+
+  /** Opens the log file, overwriting any existing one.
+   *
+   * @param filePath
+   *     The path of the logging output file.
+   * @param buffered
+   *     Should records only be written to disk on flush()? Otherwise each record is
+   *     written straight away.
+   * @throws IOException
+   *     An I/O file writing error.
+   */
+  public XmlLogSink(String filePath, boolean buffered) throws IOException {
+    simLog.setLevel(Level.ALL);
+    consoleHandler.setLevel(Level.ALL);
+    simLog.addHandler(consoleHandler);
+    File output = new File(filePath);
+    if (! output.exists()) {
+      output.createNewFile();
+    }
+    if (!buffered) {
+      fileHandler = new FileHandler(filePath);
+    } else { // Unlike FileHandler, only flushes when asked.
+      fileHandler = new StreamHandler(
+          new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16), new XMLFormatter());
+      fileHandler.setLevel(Level.ALL);
+    }
+    simLog.addHandler(fileHandler);
+  }
+
+  @Override
+  public void write(LogEntry entry) {
+    if (entry.exception == null) {
+      simLog.log(toLevel(entry.severity), entry.message);
+    } else {
+      simLog.log(Level.SEVERE, entry.message, entry.exception);
+    }
+  }
+
+  @Override
+  public void flush() {
+    fileHandler.flush();
+  }
+
+  @Override
+  public void close() {
+    simLog.removeHandler(fileHandler);
+    fileHandler.close();
+    simLog.removeHandler(consoleHandler);
+    consoleHandler.flush();
+  }
+
+  /** Converts a logInfo severity to a logging Level.
+   *
+   * @param severity
+   *    1 for errors, 2 for warnings and 3 for information.
+   * @return
+   *    The matching Level.
+   */
+  static Level toLevel(int severity) {
+    switch (severity) {
+      case 1: return Level.SEVERE;
+      case 2: return Level.WARNING;
+      case 3: return Level.INFO;
+      default: return Level.ALL;
+    }
+  }
+}
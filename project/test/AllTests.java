@@ -5,10 +5,31 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
                 SystemTest.class,
+                EventReaderTest.class,
+                EventParserTest.class,
+                EventLogTest.class,
                 OptimizerTest.class,
                 SequencerTest.class,
                 StockRoomTest.class,
+                ReplenishmentPlannerTest.class,
+                StockReservationTest.class,
+                OrderTranslationTest.class,
+                OrderBatchingTest.class,
+                RouterTest.class,
+                RouteCacheTest.class,
+                SlottingAdvisorTest.class,
+                WavePlannerTest.class,
                 FileManagerTest.class,
+                AsyncLoggerTest.class,
+                LogSinkTest.class,
+                LocationIndexTest.class,
+                SkuRanksTest.class,
+                StockStoreTest.class,
+                ConcurrentStockStoreTest.class,
+                OrderIntakeTest.class,
+                JournaledStockStoreTest.class,
+                MappedStockStoreTest.class,
+                CrashRecoveryTest.class,
                 OrderHandlerTest.class,
                 OptimizerTest.class,
                 PickerTest.class,
@@ -0,0 +1,90 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncLoggerTest {
+  /**The log output file written by the test.*/
+  public File logFile;
+
+  @Before
+  public void setUp() throws IOException {
+    logFile = File.createTempFile("asynclog", ".txt");
+  }
+
+  @After
+  public void cleanUp() {
+    logFile.delete();
+  }
+
+  /**Test that a full buffer under the BLOCK policy loses nothing once closed.*/
+  @Test
+  public void testBlockFlushesEverything() throws IOException {
+    FileManager fm = new FileManager(logFile.getPath(), AsyncLogger.OverflowPolicy.BLOCK, 4);
+    for (int i = 0; i < 1000; i++) {
+      fm.logInfo(3, "Async record " + i);
+    }
+    fm.close();
+    assertEquals(1000, countRecords());
+  }
+
+  /**Test that every record logged under the DROP_OLDEST policy is either written or
+   * counted as dropped.*/
+  @Test
+  public void testDropOldest() throws IOException {
+    FileManager fm = new FileManager(logFile.getPath(), AsyncLogger.OverflowPolicy.DROP_OLDEST, 4);
+    for (int i = 0; i < 1000; i++) {
+      fm.logInfo(3, "Async record " + i);
+    }
+    fm.close();
+    int written = countRecords();
+    assertTrue(written >= 1);
+    assertEquals(1000, written + countDropped()); // The drop count is logged on close
+  }
+
+  /**Test that the last line is still known to the caller straight away.*/
+  @Test
+  public void testLastLine() throws IOException {
+    FileManager fm = new FileManager(logFile.getPath(), AsyncLogger.OverflowPolicy.SAMPLE, 4);
+    fm.logInfo(3, "Last async record");
+    assertEquals("Last async record", fm.getLastLine());
+    fm.close();
+  }
+
+  /**Reads the number of records dropped from the notice logged on close, or 0 if none.*/
+  private long countDropped() throws IOException {
+    Scanner scanner = new Scanner(new FileInputStream(logFile));
+    long dropped = 0;
+    while (scanner.hasNextLine()) {
+      Matcher notice = Pattern.compile("(\\d+) log records were dropped")
+          .matcher(scanner.nextLine());
+      if (notice.find()) {
+        dropped += Long.parseLong(notice.group(1));
+      }
+    }
+    scanner.close();
+    return dropped;
+  }
+
+  /**Counts the records written to the log output file.*/
+  private int countRecords() throws IOException {
+    Scanner scanner = new Scanner(new FileInputStream(logFile));
+    int count = 0;
+    while (scanner.hasNextLine()) {
+      if (scanner.nextLine().contains("<message>Async record")) {
+        count++;
+      }
+    }
+    scanner.close();
+    return count;
+  }
+}
@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class ConcurrentStockStoreTest {
+  /**The number of threads taking stock at once.*/
+  private static final int THREADS = 8;
+
+  /**Test that no stock is lost or taken twice when many threads take from one shelf.*/
+  @Test
+  public void testTakeOneFromManyThreads() throws Exception {
+    ConcurrentStockStore store = new ConcurrentStockStore(1);
+    int ordinal = store.addShelf("1", "A", 0, 0, 0, 100000);
+    List<Integer> results = runOnAllThreads(() -> {
+      int taken = 0;
+      while (store.takeOne(ordinal) >= 0) {
+        taken++;
+      }
+      return taken;
+    });
+    int taken = 0;
+    for (int result : results) {
+      taken += result;
+    }
+    assertEquals(100000, taken);
+    assertEquals(0, store.getStock(ordinal));
+  }
+
+  /**Test that every amount left is seen by exactly one taker, so a threshold such as the
+   * StockRoom's replenish value is crossed once each time, never twice or not at all.*/
+  @Test
+  public void testEachAmountSeenOnce() throws Exception {
+    ConcurrentStockStore store = new ConcurrentStockStore(1);
+    int ordinal = store.addShelf("1", "A", 0, 0, 0, 100000);
+    AtomicIntegerArray seen = new AtomicIntegerArray(100000);
+    runOnAllThreads(() -> {
+      int left;
+      while ((left = store.takeOne(ordinal)) >= 0) {
+        seen.incrementAndGet(left);
+      }
+      return 0;
+    });
+    for (int left = 0; left < 100000; left++) {
+      assertEquals(1, seen.get(left));
+    }
+  }
+
+  /**Test that stock is conserved while being taken and replenished at once.*/
+  @Test
+  public void testTakeWhileReplenishing() throws Exception {
+    ConcurrentStockStore store = new ConcurrentStockStore(1);
+    int ordinal = store.addShelf("1", "A", 0, 0, 0, 30);
+    AtomicInteger taken = new AtomicInteger();
+    AtomicInteger crossings = new AtomicInteger();
+    runOnAllThreads(() -> {
+      for (int i = 0; i < 2000; i++) {
+        int left = store.takeOne(ordinal);
+        if (left >= 0) {
+          taken.incrementAndGet();
+        }
+        if (left == 5) {
+          crossings.incrementAndGet();
+          store.addStock(ordinal, 25); // Whoever sees the crossing replenishes the shelf
+        }
+      }
+      return 0;
+    });
+    assertEquals(30 + 25 * crossings.get() - taken.get(), store.getStock(ordinal));
+  }
+
+  /**Runs a task on every thread at once and returns each thread's result.*/
+  private List<Integer> runOnAllThreads(Callable<Integer> task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < THREADS; i++) {
+      futures.add(executor.submit(task));
+    }
+    List<Integer> results = new ArrayList<Integer>();
+    for (Future<Integer> future : futures) {
+      results.add(future.get());
+    }
+    executor.shutdown();
+    return results;
+  }
+}
@@ -0,0 +1,119 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CrashRecoveryTest {
+  /**The number of events run before the crash, about half of the events file.*/
+  private static final int CRASH_AFTER = 120;
+  /**The number of the Warehouse run straight through; the one cut short is the next.*/
+  private static final int WAREHOUSE_ID = 90;
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**The path of the stock files, without an extension.*/
+  public String basePath;
+
+  @Before
+  public void setUp() throws IOException {
+    simulator = new Simulator();
+    File file = File.createTempFile("stock", "");
+    file.delete();
+    basePath = file.getPath();
+  }
+
+  @After
+  public void cleanUp() {
+    for (String extension : new String[] {".journal", ".checkpoint", ".dat"}) {
+      new File(basePath + extension).delete();
+    }
+    for (int id = WAREHOUSE_ID; id <= WAREHOUSE_ID + 1; id++) {
+      new File("final" + id + ".csv").delete();
+      new File("orders" + id + ".csv").delete();
+    }
+    simulator = null;
+  }
+
+  /**Test that a journaled Warehouse cut short part way through its events, then run again,
+   * ends with the same stock as one run straight through.*/
+  @Test
+  public void testJournaledRestart() throws IOException {
+    List<String> expected = run(WAREHOUSE_ID, new ObjectStockStore(), -1, true);
+    try {
+      run(WAREHOUSE_ID + 1, new JournaledStockStore(new ArrayStockStore(), basePath, 100),
+          CRASH_AFTER, true);
+      fail("The run was not cut short");
+    } catch (IllegalStateException crash) {
+      // As if the process died: the store was never closed
+    }
+    assertEquals(expected, run(WAREHOUSE_ID + 1,
+        new JournaledStockStore(new ArrayStockStore(), basePath, 100), -1, true));
+  }
+
+  /**Test that a mapped Warehouse cut short part way through its events, then run again
+   * without the initial stock file, ends with the same stock as one run straight through.*/
+  @Test
+  public void testMappedRestart() throws IOException {
+    List<String> expected = run(WAREHOUSE_ID, new ObjectStockStore(), -1, true);
+    try {
+      run(WAREHOUSE_ID + 1, new MappedStockStore(0, basePath + ".dat"), CRASH_AFTER, true);
+      fail("The run was not cut short");
+    } catch (IllegalStateException crash) {
+      // As if the process died: the store was never closed
+    }
+    assertEquals(expected, run(WAREHOUSE_ID + 1, new MappedStockStore(0, basePath + ".dat"),
+        -1, false));
+  }
+
+  /**Runs the Markham Warehouse's events, and returns its finalN.csv.
+   *
+   * @param warehouseId
+   *      The number of the Warehouse.
+   * @param store
+   *      An empty StockStore for its StockRoom.
+   * @param crashAfter
+   *      The number of events after which the run is cut short with an
+   *      IllegalStateException, or -1 to run them all.
+   * @param initial
+   *      Should the initial stock file be given to the Warehouse?
+   */
+  private static List<String> run(int warehouseId, StockStore store, int crashAfter,
+      boolean initial) throws IOException {
+    EventSource events =
+        new TextEventSource(new EventReader("MarkhamWarehouse/TestFile1.txt"));
+    EventSource source = new EventSource() {
+      private int count = 0;
+
+      @Override
+      public boolean next(Event event) {
+        if (count++ == crashAfter) {
+          throw new IllegalStateException("Crashed after " + crashAfter + " events");
+        }
+        return events.next(event);
+      }
+
+      @Override
+      public void close() {
+        events.close();
+      }
+    };
+    Warehouse warehouse = new Warehouse(warehouseId, source,
+        initial ? Simulator.fm.readFromFile("MarkhamWarehouse/initial.csv")
+            : new ArrayList<String>(),
+        Simulator.fm.readFromFile("MarkhamWarehouse/traversal_table.csv"),
+        Simulator.fm.readFromFile("MarkhamWarehouse/translation.csv"), store);
+    try {
+      warehouse.runWarehouse();
+    } finally {
+      source.close();
+    }
+    return Files.readAllLines(new File("final" + warehouseId + ".csv").toPath());
+  }
+}
@@ -0,0 +1,89 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventLogTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A binary event log written by the test.*/
+  public File binary;
+  /**A text events file decoded by the test.*/
+  public File text;
+
+  @Before
+  public void setUp() throws IOException {
+    simulator = new Simulator();
+    binary = File.createTempFile("events", ".bin");
+    text = File.createTempFile("events", ".txt");
+  }
+
+  @After
+  public void cleanUp() {
+    binary.delete();
+    text.delete();
+    simulator = null;
+  }
+
+  /**Test that an events file, comments and all, decodes back byte for byte.*/
+  @Test
+  public void testRoundTrip() throws IOException {
+    ArrayList<String> expected = Simulator.fm.readFromFile("TestFile1.txt");
+    int count = EventLogConverter.encode("TestFile1.txt", binary.getPath());
+    assertEquals(expected.size(), count);
+    assertEquals(848, EventLogConverter.decode(binary.getPath(), text.getPath()));
+    assertArrayEquals(Files.readAllBytes(Paths.get("TestFile1.txt")),
+        Files.readAllBytes(text.toPath()));
+  }
+
+  /**Test that spacing, leading zeros, invalid lines and line separators are given back as
+   * written, while the events replay as parsed.*/
+  @Test
+  public void testLinesKept() throws IOException {
+    String original = "# Shift 2\r\nPicker  Alice   ready\r\n\nPicker Alice dances\n"
+        + "Replenisher Ruby replenish A 01 002 3 # late";
+    FileWriter out = new FileWriter(text);
+    out.write(original);
+    out.close();
+    assertEquals(2, EventLogConverter.encode(text.getPath(), binary.getPath()));
+    assertEquals(5, EventLogConverter.decode(binary.getPath(), text.getPath()));
+    assertEquals(original, new String(Files.readAllBytes(text.toPath()),
+        StandardCharsets.UTF_8));
+    EventLogReader reader = new EventLogReader(binary.getPath());
+    Event event = new Event();
+    reader.next(event);
+    assertEquals("Picker Alice ready", event.toString());
+    reader.next(event);
+    assertEquals("Replenisher Ruby replenish A 1 2 3 # late", event.toString());
+    assertEquals(false, reader.next(event));
+  }
+
+  /**Test that a replayed event has the same arguments as the parsed one.*/
+  @Test
+  public void testReplay() throws IOException {
+    EventLogConverter.encode("TestFile1.txt", binary.getPath());
+    EventLogReader reader = new EventLogReader(binary.getPath());
+    Event event = new Event();
+    reader.next(event);
+    assertEquals(EventType.ORDER, event.getType());
+    assertEquals("SES", event.getModel());
+    assertEquals("Blue", event.getColour());
+    reader.close();
+  }
+
+  /**Test that a file that is not a binary event log is refused.*/
+  @Test (expected = IOException.class)
+  public void testNotAnEventLog() throws IOException {
+    new EventLogReader("TestFile1.txt");
+  }
+}
@@ -0,0 +1,70 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventParserTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A test EventParser.*/
+  public EventParser parser;
+  /**The Event filled in by the parser.*/
+  public Event event;
+
+  @Before
+  public void setUp() {
+    simulator = new Simulator();
+    parser = new EventParser();
+    event = new Event();
+  }
+
+  @After
+  public void cleanUp() {
+    simulator = null;
+  }
+
+  /**Test that an order is parsed into its model and colour.*/
+  @Test
+  public void testOrder() {
+    assertTrue(parser.parse("Order SES Blue", event));
+    assertEquals(EventType.ORDER, event.getType());
+    assertEquals("SES", event.getModel());
+    assertEquals("Blue", event.getColour());
+  }
+
+  /**Test that a scan keeps its SKU and ignores a trailing comment.*/
+  @Test
+  public void testScans() {
+    assertTrue(parser.parse("Picker Alice scans 21 # wrong scan", event));
+    assertEquals(EventType.SCANS, event.getType());
+    assertEquals("Picker", event.getRole());
+    assertEquals("Alice", event.getName());
+    assertEquals("21", event.getSku());
+  }
+
+  /**Test that a replenish location is parsed into numbers.*/
+  @Test
+  public void testReplenish() {
+    assertTrue(parser.parse("Replenisher Ron replenish A 1 2 3", event));
+    assertEquals(EventType.REPLENISH, event.getType());
+    assertEquals("A", event.getZone());
+    assertEquals(1, event.getAisle());
+    assertEquals(2, event.getRack());
+    assertEquals(3, event.getLevel());
+    assertEquals("Replenisher Ron replenish A 1 2 3", event.toString());
+  }
+
+  /**Test that unknown roles, verbs and missing arguments are rejected.*/
+  @Test
+  public void testRejected() {
+    assertFalse(parser.parse("Manager Bob ready", event));
+    assertFalse(parser.parse("Picker Alice printout", event));
+    assertFalse(parser.parse("Picker Alice scans", event));
+    assertFalse(parser.parse("Order SES", event));
+    assertFalse(parser.parse("Picker Alice replenish A 1 1 1", event));
+    assertFalse(parser.parse("Replenisher Ron replenish A 1 x 1", event));
+  }
+}
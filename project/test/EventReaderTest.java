@@ -0,0 +1,58 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventReaderTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A test EventReader.*/
+  public EventReader reader;
+
+  @Before
+  public void setUp() throws FileNotFoundException {
+    simulator = new Simulator();
+    reader = new EventReader("TestFile1.txt");
+  }
+
+  @After
+  public void cleanUp() {
+    reader.close();
+    simulator = null;
+  }
+
+  /**Test that streaming a file yields the same events as reading it whole.*/
+  @Test
+  public void testSameAsReadFromFile() {
+    ArrayList<String> expected = Simulator.fm.readFromFile("TestFile1.txt");
+    ArrayList<String> actual = new ArrayList<String>();
+    while (reader.hasNext()) {
+      actual.add(reader.next());
+    }
+    assertEquals(expected, actual);
+  }
+
+  /**Test that the first event is available before the rest of the file is read.*/
+  @Test
+  public void testFirstEvent() {
+    assertEquals("Order SES Blue", reader.next());
+  }
+
+  /**Test that a closed reader has no more events.*/
+  @Test
+  public void testClose() {
+    reader.close();
+    assertFalse(reader.hasNext());
+  }
+
+  /**Test that a missing events file is reported.*/
+  @Test (expected = FileNotFoundException.class)
+  public void testFileNotFound() throws FileNotFoundException {
+    new EventReader("Nothing");
+  }
+}
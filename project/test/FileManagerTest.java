@@ -1,4 +1,5 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -36,4 +37,20 @@ public class FileManagerTest {
     assertEquals(actual, expected);
   }
   
+  @Test
+  public void TestLogTemplate() {
+    fm.log(3, "Picker {}: Correct SKU: {} detected.", "Alice", "1");
+    assertEquals("Picker Alice: Correct SKU: 1 detected.", fm.getLastLine());
+  }
+  
+  @Test
+  public void TestLogThreshold() {
+    fm.setThreshold(2);
+    fm.log(2, "Warning {}", 1);
+    fm.log(3, "Info {}", 2);
+    fm.log(3, () -> "Info");
+    assertFalse(fm.isLoggable(3));
+    assertEquals("Warning 1", fm.getLastLine());
+  }
+  
 }
@@ -0,0 +1,174 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournaledStockStoreTest {
+  /**The length of a journal's header.*/
+  private static final int HEADER = 4 + 1 + 8 + 8;
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**The path of the journal and checkpoint files, without an extension.*/
+  public String basePath;
+
+  @Before
+  public void setUp() throws IOException {
+    simulator = new Simulator();
+    File file = File.createTempFile("stock", "");
+    file.delete();
+    basePath = file.getPath();
+  }
+
+  @After
+  public void cleanUp() {
+    new File(basePath + ".journal").delete();
+    new File(basePath + ".checkpoint").delete();
+    simulator = null;
+  }
+
+  /**Returns a journaled store of three shelves, ready to be restored or initialized.*/
+  private JournaledStockStore newStore(int checkpointInterval) {
+    JournaledStockStore store =
+        new JournaledStockStore(new ArrayStockStore(), basePath, checkpointInterval);
+    store.addShelf("1", "A", 0, 0, 0, 30);
+    store.addShelf("2", "A", 0, 0, 1, 30);
+    store.addShelf("3", "B", 1, 0, 0, 30);
+    return store;
+  }
+
+  /**Test that a new store has nothing to restore.*/
+  @Test
+  public void testNothingToRestore() {
+    assertFalse(newStore(100).restore());
+  }
+
+  /**Test that stock changed after the first checkpoint is restored from the journal.*/
+  @Test
+  public void testRestoreReplaysJournal() {
+    JournaledStockStore store = newStore(100);
+    store.restore();
+    store.setStock(0, 10);
+    store.checkpoint();
+    store.takeOne(0);
+    store.takeOne(0);
+    store.addStock(1, 25);
+    store.setStock(2, 7);
+    // Not closed, as if the run was cut short.
+    waitForLength(new File(basePath + ".journal"), HEADER + 2 + 2 + 3 + 3);
+    JournaledStockStore restored = newStore(100);
+    assertTrue(restored.restore());
+    assertEquals(8, restored.getStock(0));
+    assertEquals(55, restored.getStock(1));
+    assertEquals(7, restored.getStock(2));
+  }
+
+  /**Test that changes journaled after a checkpoint are restored even without close().*/
+  @Test
+  public void testRestoreAfterCrash() throws IOException {
+    JournaledStockStore store = newStore(100);
+    store.checkpoint();
+    store.takeOne(2);
+    store.addStock(1, -4);
+    // No close(): the committer thread syncs the journal within a few milliseconds.
+    waitForLength(new File(basePath + ".journal"), HEADER + 2 + 3);
+    JournaledStockStore restored = newStore(100);
+    assertTrue(restored.restore());
+    assertEquals(29, restored.getStock(2));
+    assertEquals(26, restored.getStock(1));
+  }
+
+  /**Test that a record cut off by a crash is ignored, and the ones before it replayed.*/
+  @Test
+  public void testTornRecordIgnored() throws IOException {
+    JournaledStockStore store = newStore(100);
+    store.checkpoint();
+    store.takeOne(0);
+    store.addStock(1, 1000);
+    File journal = new File(basePath + ".journal");
+    long length = waitForLength(journal, HEADER + 2 + 4);
+    try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+      file.setLength(length - 1); // Cut the amount of the last record short
+    }
+    JournaledStockStore restored = newStore(100);
+    assertTrue(restored.restore());
+    assertEquals(29, restored.getStock(0));
+    assertEquals(30, restored.getStock(1));
+  }
+
+  /**Test that the journal is checkpointed and emptied every checkpointInterval changes.*/
+  @Test
+  public void testCheckpointInterval() {
+    JournaledStockStore store = newStore(10);
+    store.checkpoint();
+    for (int i = 0; i < 25; i++) {
+      store.takeOne(1);
+    }
+    // Two checkpoints were taken, so at most five changes are left in the journal.
+    waitForLength(new File(basePath + ".journal"), HEADER + 5 * 2);
+    assertEquals(HEADER + 5 * 2, new File(basePath + ".journal").length());
+    JournaledStockStore restored = newStore(10);
+    assertTrue(restored.restore());
+    assertEquals(5, restored.getStock(1));
+  }
+
+  /**Test that a store closed cleanly is not restored, so its changes are not made twice.*/
+  @Test
+  public void testCleanCloseNotRestored() {
+    JournaledStockStore store = newStore(100);
+    store.restore();
+    store.checkpoint();
+    store.takeOne(0);
+    store.close();
+    assertFalse(newStore(100).restore());
+  }
+
+  /**Test that a StockRoom run twice, each run closed cleanly, ends with the same stock.*/
+  @Test
+  public void testRunTwice() {
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList("A,0,0,0,1", "A,0,0,1,2"));
+    ArrayList<String> initial = new ArrayList<String>(Arrays.asList("A,0,0,0,20",
+        "A,0,0,1,20"));
+    for (int run = 0; run < 2; run++) {
+      StockRoom stockRoom = new StockRoom(traversal, initial, 0,
+          new JournaledStockStore(new ArrayStockStore(), basePath, 100));
+      stockRoom.takeProduct("1");
+      stockRoom.takeProduct("1");
+      stockRoom.takeProduct("2");
+      assertEquals(18, stockRoom.getAvailable("1"));
+      assertEquals(19, stockRoom.getAvailable("2"));
+      stockRoom.close();
+    }
+  }
+
+  /**Test that stock saved for one layout is not restored into another.*/
+  @Test
+  public void testLayoutMismatch() {
+    JournaledStockStore store = newStore(100);
+    store.checkpoint();
+    store.close();
+    JournaledStockStore other =
+        new JournaledStockStore(new ArrayStockStore(), basePath, 100);
+    other.addShelf("1", "A", 0, 0, 0, 30);
+    other.addShelf("2", "A", 0, 0, 2, 30);
+    other.addShelf("3", "B", 1, 0, 0, 30);
+    assertFalse(other.restore());
+  }
+
+  /**Waits until a file has at least a number of bytes, and returns its length.*/
+  private static long waitForLength(File file, long length) {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (file.length() < length && System.currentTimeMillis() < deadline) {
+      Thread.yield();
+    }
+    return file.length();
+  }
+}
@@ -0,0 +1,47 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LocationIndexTest {
+
+  /**Test that every location maps to its own slot, through many resizes.*/
+  @Test
+  public void testPutAndGet() {
+    LocationIndex index = new LocationIndex(1);
+    int slot = 0;
+    for (String zone : new String[] {"A", "B", "C"}) {
+      for (int aisle = 0; aisle < 20; aisle++) {
+        for (int rack = 0; rack < 20; rack++) {
+          for (int level = 0; level < 4; level++) {
+            assertEquals(-1, index.put(zone, aisle, rack, level, slot++));
+          }
+        }
+      }
+    }
+    assertEquals(slot, index.size());
+    assertEquals(0, index.get("A", 0, 0, 0));
+    assertEquals(1 * 1600 + 7 * 80 + 3 * 4 + 2, index.get("B", 7, 3, 2));
+    assertEquals(slot - 1, index.get("C", 19, 19, 3));
+  }
+
+  /**Test that missing locations are not found.*/
+  @Test
+  public void testMissing() {
+    LocationIndex index = new LocationIndex(16);
+    index.put("A", 1, 2, 3, 0);
+    assertEquals(-1, index.get("A", 1, 2, 2));
+    assertEquals(-1, index.get("B", 1, 2, 3));
+    assertEquals(-1, index.get("A", -1, 2, 3));
+    assertEquals(-1, index.get("A", LocationIndex.MAX_COORDINATE, 2, 3));
+  }
+
+  /**Test that putting a location twice replaces its slot.*/
+  @Test
+  public void testReplace() {
+    LocationIndex index = new LocationIndex(16);
+    index.put("A", 0, 0, 0, 4);
+    assertEquals(4, index.put("A", 0, 0, 0, 9));
+    assertEquals(9, index.get("A", 0, 0, 0));
+    assertEquals(1, index.size());
+  }
+}
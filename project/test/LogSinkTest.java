@@ -0,0 +1,98 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogSinkTest {
+  /**The log output file written by the test.*/
+  public File logFile;
+
+  @Before
+  public void setUp() throws IOException {
+    logFile = File.createTempFile("sinklog", ".log");
+  }
+
+  @After
+  public void cleanUp() {
+    for (int i = 0; i <= 2; i++) {
+      new File(logFile.getPath() + (i == 0 ? "" : "." + i)).delete();
+    }
+  }
+
+  /**Test that the text sink writes one line per record.*/
+  @Test
+  public void testTextOneLinePerRecord() throws IOException {
+    FileManager fm = new FileManager(new TextLogSink(logFile.getPath(), 0, 0), null, 0);
+    fm.log(3, "Picker {}: Correct SKU: {} detected.", "Alice", "1");
+    fm.logInfo(2, "Stock Room: replenish not required.");
+    fm.close();
+    List<String> lines = Files.readAllLines(logFile.toPath());
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(0).endsWith(" INFO Picker Alice: Correct SKU: 1 detected."));
+    assertTrue(lines.get(1).endsWith(" WARNING Stock Room: replenish not required."));
+  }
+
+  /**Test that a binary log decodes back to the same messages, templates included.*/
+  @Test
+  public void testBinaryRoundTrip() throws IOException {
+    FileManager fm = new FileManager(new BinaryLogSink(logFile.getPath(), 0, 0), null, 0);
+    for (int i = 0; i < 100; i++) {
+      fm.log(3, "Marshalling: received pick request with id: {}", i);
+    }
+    fm.logException(new IOException("disk full"), "Error: Could not write");
+    fm.close();
+    List<LogEntry> entries = decodeAll(logFile.getPath());
+    assertEquals(101, entries.size());
+    assertEquals("Marshalling: received pick request with id: 42", entries.get(42).getMessage());
+    assertEquals(1, entries.get(100).severity);
+    assertTrue(entries.get(100).getStackTrace().contains("disk full"));
+  }
+
+  /**Test that the binary log only holds each template once.*/
+  @Test
+  public void testBinaryIsCompact() throws IOException {
+    FileManager fm = new FileManager(new BinaryLogSink(logFile.getPath(), 0, 0), null, 0);
+    String template = "Picker {}: Verificiation Complete. Please complete your assignment.";
+    for (int i = 0; i < 1000; i++) {
+      fm.log(3, template, "Alice");
+    }
+    fm.close();
+    assertTrue(logFile.length() < 1000 * template.length() / 4);
+  }
+
+  /**Test that rotated files each decode on their own and nothing is lost.*/
+  @Test
+  public void testRotation() throws IOException {
+    FileManager fm = new FileManager(new BinaryLogSink(logFile.getPath(), 512, 2), null, 0);
+    for (int i = 0; i < 200; i++) {
+      fm.log(3, "Record {}", i);
+    }
+    fm.close();
+    assertTrue(new File(logFile.getPath() + ".1").exists());
+    List<LogEntry> newest = decodeAll(logFile.getPath());
+    assertEquals("Record 199", newest.get(newest.size() - 1).getMessage());
+    List<LogEntry> older = decodeAll(logFile.getPath() + ".1");
+    // The older file ends with the record just before the first one in the newest file.
+    assertEquals("Record " + (199 - newest.size()), older.get(older.size() - 1).getMessage());
+  }
+
+  /**Decodes every record in a binary log.*/
+  private List<LogEntry> decodeAll(String path) throws IOException {
+    List<LogEntry> entries = new ArrayList<LogEntry>();
+    LogDecoder decoder = new LogDecoder(path);
+    LogEntry entry;
+    while ((entry = decoder.next()) != null) {
+      entries.add(entry);
+    }
+    decoder.close();
+    return entries;
+  }
+}
@@ -0,0 +1,167 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedStockStoreTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**The stock file written by the test.*/
+  public File stockFile;
+
+  @Before
+  public void setUp() throws IOException {
+    simulator = new Simulator();
+    stockFile = File.createTempFile("stock", ".dat");
+    stockFile.delete();
+  }
+
+  @After
+  public void cleanUp() {
+    stockFile.delete();
+    simulator = null;
+  }
+
+  /**Returns a mapped store of three shelves, ready to be restored.*/
+  private MappedStockStore newStore(String lastSku) {
+    MappedStockStore store = new MappedStockStore(3, stockFile.getPath());
+    store.addShelf("1", "A", 0, 0, 0, 30);
+    store.addShelf("2", "A", 0, 0, 1, 30);
+    store.addShelf(lastSku, "B", 1, 0, 0, 30);
+    return store;
+  }
+
+  /**Test that a new file is made with the stock already in the store.*/
+  @Test
+  public void testNewFile() {
+    MappedStockStore store = newStore("3");
+    assertFalse(store.restore());
+    assertEquals(MappedStockStore.HEADER + 3 * 8, stockFile.length());
+    assertEquals(30, store.getStock(2));
+  }
+
+  /**Test that stock changed through the map is there on the next start.*/
+  @Test
+  public void testStockKept() {
+    MappedStockStore store = newStore("3");
+    store.restore();
+    store.setStock(0, 12);
+    store.checkpoint();
+    store.takeOne(0);
+    store.addStock(1, 25);
+    // Not closed, as if the run was cut short.
+    MappedStockStore restarted = newStore("3");
+    assertTrue(restarted.restore());
+    assertEquals(11, restarted.getStock(0));
+    assertEquals(55, restarted.getStock(1));
+    assertEquals(30, restarted.getStock(2));
+  }
+
+  /**Test that a file never checkpointed, as if cut short by a crash, is made again.*/
+  @Test
+  public void testUncheckpointedFileRemade() {
+    MappedStockStore store = newStore("3");
+    store.restore();
+    store.setStock(0, 12);
+    MappedStockStore restarted = newStore("3");
+    assertFalse(restarted.restore());
+    assertEquals(30, restarted.getStock(0));
+  }
+
+  /**Test that a file closed cleanly is made again, so its changes are not made twice.*/
+  @Test
+  public void testClosedFileRemade() {
+    MappedStockStore store = newStore("3");
+    store.restore();
+    store.checkpoint();
+    store.takeOne(0);
+    store.close();
+    MappedStockStore restarted = newStore("3");
+    assertFalse(restarted.restore());
+    assertEquals(30, restarted.getStock(0));
+  }
+
+  /**Test that the initial stock is restored after a run cut short, not the stock it left.*/
+  @Test
+  public void testInitialRestored() {
+    MappedStockStore store = newStore("3");
+    store.setStock(0, 12);
+    store.checkpoint();
+    store.takeOne(0);
+    store.addStock(1, 25);
+    // Not closed, as if the run was cut short.
+    MappedStockStore restarted = newStore("3");
+    assertTrue(restarted.restoreInitial());
+    assertEquals(12, restarted.getStock(0));
+    assertEquals(30, restarted.getStock(1));
+    restarted.takeOne(0);
+    restarted.close();
+    MappedStockStore again = newStore("3");
+    assertTrue(again.restoreInitial());
+    assertEquals(12, again.getStock(0));
+  }
+
+  /**Test that a file made for other shelves has no initial stock to restore.*/
+  @Test
+  public void testOtherLayoutNoInitial() {
+    MappedStockStore store = newStore("3");
+    store.setStock(2, 1);
+    store.close();
+    MappedStockStore other = newStore("4");
+    assertFalse(other.restoreInitial());
+    assertEquals(30, other.getStock(2));
+  }
+
+  /**Test that a StockRoom run twice, each run closed cleanly, ends with the same stock.*/
+  @Test
+  public void testRunTwice() {
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList("A,0,0,0,1", "A,0,0,1,2"));
+    ArrayList<String> initial = new ArrayList<String>(Arrays.asList("A,0,0,0,20",
+        "A,0,0,1,20"));
+    for (int run = 0; run < 2; run++) {
+      StockRoom stockRoom = new StockRoom(traversal, initial, 0,
+          new MappedStockStore(2, stockFile.getPath()));
+      stockRoom.takeProduct("1");
+      stockRoom.takeProduct("2");
+      assertEquals(19, stockRoom.getAvailable("1"));
+      assertEquals(19, stockRoom.getAvailable("2"));
+      stockRoom.close();
+    }
+  }
+
+  /**Test that a StockRoom given no initial stock takes the one saved by an earlier run.*/
+  @Test
+  public void testRunWithoutInitial() {
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList("A,0,0,0,1", "A,0,0,1,2"));
+    ArrayList<String> initial = new ArrayList<String>(Arrays.asList("A,0,0,0,20",
+        "A,0,0,1,20"));
+    StockRoom stockRoom = new StockRoom(traversal, initial, 0,
+        new MappedStockStore(2, stockFile.getPath()));
+    stockRoom.takeProduct("1");
+    // Not closed, as if the run was cut short.
+    stockRoom = new StockRoom(traversal, new ArrayList<String>(), 0,
+        new MappedStockStore(2, stockFile.getPath()));
+    assertEquals(20, stockRoom.getAvailable("1"));
+    assertEquals(20, stockRoom.getAvailable("2"));
+  }
+
+  /**Test that a file made for other shelves is made again.*/
+  @Test
+  public void testOtherLayoutRemade() {
+    MappedStockStore store = newStore("3");
+    store.restore();
+    store.setStock(2, 1);
+    store.close();
+    MappedStockStore other = newStore("4");
+    assertFalse(other.restore());
+    assertEquals(30, other.getStock(2));
+  }
+}
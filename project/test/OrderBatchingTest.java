@@ -0,0 +1,159 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderBatchingTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A test Warehouse.*/
+  public Warehouse warehouse;
+  /**The test Warehouse's OrderHandler.*/
+  public OrderHandler orderHandler;
+
+  @Before
+  public void setUp() {
+    simulator = new Simulator();
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList(
+        "A,0,0,0,1", "A,0,0,1,2", "A,0,1,0,3", "A,0,1,1,4"));
+    ArrayList<String> translation = new ArrayList<String>(Arrays.asList(
+        "Colour,Model,Front,Back", "White,S,1,2", "Blue,S,3,4"));
+    warehouse = new Warehouse(new ArrayList<String>(), new ArrayList<String>(), traversal,
+        translation);
+    orderHandler = warehouse.getOrderHandler();
+  }
+
+  @After
+  public void cleanUp() {
+    simulator = null;
+  }
+
+  /**Test that a fixed batch size sets the orders in each pick request.*/
+  @Test
+  public void testFixedBatchSize() {
+    orderHandler.setBatchSize(2, false);
+    orderHandler.addOrder(new Order("S", "White"));
+    assertEquals(0, orderHandler.getProcessQueue().size());
+    orderHandler.addOrder(new Order("S", "Blue"));
+    assertEquals(1, orderHandler.getProcessQueue().size());
+    PickRequest request = orderHandler.getProcessQueue().peek();
+    assertEquals(Arrays.asList("3", "1", "4", "2"), request.getSkuPackage());
+    assertEquals(2, request.getOrders().size());
+  }
+
+  /**Test that a Picker picks a pick request of any batch size in full.*/
+  @Test
+  public void testPickerTakesBatch() {
+    orderHandler.setBatchSize(2, false);
+    orderHandler.addOrder(new Order("S", "White"));
+    orderHandler.addOrder(new Order("S", "Blue"));
+    Picker alice = new Picker("Alice", warehouse);
+    alice.ready();
+    assertEquals(1, alice.getPickNum());
+    for (String sku : new String[] {"1", "2", "3", "4"}) {
+      alice.scanSku(sku);
+    }
+    alice.complete();
+    assertEquals(-1, alice.getPickNum());
+  }
+
+  /**Test that adaptive batches shrink while Pickers are idle and grow back when busy.*/
+  @Test
+  public void testAdaptiveBatchSize() {
+    orderHandler.setBatchSize(4, true);
+    assertEquals(4, orderHandler.batchSize());
+    Picker alice = new Picker("Alice", warehouse);
+    alice.ready(); // Nothing to pick; Alice waits
+    assertEquals(2, orderHandler.batchSize());
+    orderHandler.addOrder(new Order("S", "White"));
+    orderHandler.addOrder(new Order("S", "Blue"));
+    assertEquals(1, orderHandler.getProcessQueue().size());
+    assertEquals(4, orderHandler.getProcessQueue().peek().getSkuPackage().size());
+    alice.ready();
+    assertEquals(1, alice.getPickNum());
+    assertEquals(4, orderHandler.batchSize());
+  }
+
+  /**Test that orders waiting too long are flushed as a partial batch.*/
+  @Test
+  public void testFlushByAge() {
+    orderHandler.setMaxOrderAge(3);
+    orderHandler.addOrder(new Order("S", "White"));
+    orderHandler.tick();
+    orderHandler.tick();
+    assertEquals(0, orderHandler.getProcessQueue().size());
+    orderHandler.tick();
+    assertEquals(1, orderHandler.getProcessQueue().size());
+    assertEquals(Arrays.asList("1", "2"),
+        orderHandler.getProcessQueue().peek().getSkuPackage());
+  }
+
+  /**Test that the orders still waiting when the events end are flushed as partial batches.*/
+  @Test
+  public void testFlushAtEnd() {
+    orderHandler.setBatchSize(2, false);
+    for (int i = 0; i < 3; i++) {
+      orderHandler.addOrder(new Order("S", "Blue"));
+    }
+    assertEquals(1, orderHandler.getProcessQueue().size());
+    orderHandler.flush();
+    assertEquals(2, orderHandler.getProcessQueue().size());
+    assertEquals(Arrays.asList("3", "4"),
+        orderHandler.getProcessQueue().peekLast().getSkuPackage());
+    orderHandler.flush();
+    assertEquals(2, orderHandler.getProcessQueue().size());
+  }
+
+  /**Test that a partial batch is picked, sequenced and loaded onto a Truck.*/
+  @Test
+  public void testPartialBatchLoaded() {
+    orderHandler.setMaxOrderAge(1);
+    orderHandler.addOrder(new Order("S", "White"));
+    orderHandler.tick();
+    Picker alice = new Picker("Alice", warehouse);
+    alice.ready();
+    alice.scanSku("1");
+    alice.scanSku("2");
+    alice.complete();
+    Sequencer sequencer = new Sequencer("Sue", warehouse);
+    sequencer.ready();
+    sequencer.scanSku("1");
+    sequencer.scanSku("2");
+    sequencer.complete();
+    Loader loader = new Loader("Lou", warehouse);
+    loader.ready();
+    loader.scanSku("1");
+    loader.scanSku("2");
+    loader.complete();
+    assertEquals(1, warehouse.getMarshalling().getTruckList().size());
+    assertFalse(warehouse.getMarshalling().getTruckList().get(0).isFull());
+  }
+
+  /**Test that pick requests are routed by the routing strategy set, and measured.*/
+  @Test
+  public void testRoutingStrategy() {
+    orderHandler.setBatchSize(1, false);
+    orderHandler.setRoutingStrategy(new RouterTest.Reversed());
+    orderHandler.addOrder(new Order("S", "White"));
+    PickRequest request = orderHandler.getProcessQueue().peek();
+    assertEquals(Arrays.asList("A 0 0 1 2", "A 0 0 0 1"), request.getTraversalLocations());
+    assertEquals(2, request.getRouteLength()); // To rack 0 and back
+  }
+
+  /**Test that a batch size below 1 is refused.*/
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBatchSize() {
+    orderHandler.setBatchSize(0, false);
+  }
+
+  /**Test that a batch of more orders than a Truck holds is refused.*/
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchLargerThanTruck() {
+    orderHandler.setBatchSize(Truck.CAPACITY + 1, false);
+  }
+}
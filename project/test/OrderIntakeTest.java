@@ -0,0 +1,75 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OrderIntakeTest {
+
+  /**Test that the capacity is rounded up to a power of two.*/
+  @Test
+  public void testCapacity() {
+    assertEquals(1, new OrderIntake(1).getCapacity());
+    assertEquals(4, new OrderIntake(3).getCapacity());
+    assertEquals(1024, new OrderIntake(1024).getCapacity());
+  }
+
+  /**Test that orders are drained oldest first, and offers are refused when full.*/
+  @Test
+  public void testOfferAndDrain() {
+    OrderIntake intake = new OrderIntake(2);
+    assertTrue(intake.offer(new Order("S", "White")));
+    assertTrue(intake.offer(new Order("S", "Blue")));
+    assertFalse(intake.offer(new Order("S", "Red")));
+    assertEquals(2, intake.depth());
+    List<Order> taken = new ArrayList<Order>();
+    assertEquals(2, intake.drain(taken::add));
+    assertEquals("White", taken.get(0).getColour());
+    assertEquals("Blue", taken.get(1).getColour());
+    assertEquals(0, intake.depth());
+    assertEquals(2, intake.getTaken());
+    assertEquals(2, intake.getMaxDepth());
+    assertTrue(intake.getMaxWait() >= intake.getMeanWait());
+    assertTrue(intake.offer(new Order("S", "Red"))); // Room again, a lap later
+    assertEquals(1, intake.drain(taken::add));
+    assertEquals("Red", taken.get(2).getColour());
+  }
+
+  /**Test that every order from many producers is taken once, each producer's in order.*/
+  @Test
+  public void testManyProducers() throws InterruptedException {
+    final int producers = 4;
+    final int perProducer = 20000;
+    OrderIntake intake = new OrderIntake(64);
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      String model = String.valueOf(p);
+      threads[p] = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          intake.submit(new Order(model, String.valueOf(i)));
+        }
+      });
+      threads[p].start();
+    }
+    int[] next = new int[producers];
+    int total = 0;
+    while (total < producers * perProducer) {
+      total += intake.drain(order -> {
+        int producer = Integer.parseInt(order.getModel());
+        assertEquals(next[producer], Integer.parseInt(order.getColour()));
+        next[producer]++;
+      });
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, intake.depth());
+    assertEquals(producers * perProducer, intake.getTaken());
+    for (int p = 0; p < producers; p++) {
+      assertEquals(perProducer, next[p]);
+    }
+  }
+}
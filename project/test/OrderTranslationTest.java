@@ -0,0 +1,60 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderTranslationTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A test OrderHandler.*/
+  public OrderHandler orderHandler;
+
+  @Before
+  public void setUp() {
+    simulator = new Simulator();
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList(
+        "A,0,0,0,1", "A,0,0,1,2", "A,0,1,0,3", "A,0,1,1,4", "A,1,0,0,5", "A,1,0,1,6"));
+    ArrayList<String> translation = new ArrayList<String>(Arrays.asList(
+        "Colour,Model,Front,Back", "White,S,1,2", "Blue,S,3,4", "White,SE", "White,S,5,6"));
+    Warehouse warehouse =
+        new Warehouse(new ArrayList<String>(), new ArrayList<String>(), traversal, translation);
+    orderHandler = warehouse.getOrderHandler();
+  }
+
+  @After
+  public void cleanUp() {
+    simulator = null;
+  }
+
+  /**Adds four of an order, enough for one pick request, and returns its SKUs.*/
+  private String skusOf(String model, String colour) {
+    for (int i = 0; i < 4; i++) {
+      orderHandler.addOrder(new Order(model, colour));
+    }
+    PickRequest pickRequest = orderHandler.getProcessQueue().pollLast();
+    return pickRequest == null ? "" : String.join(",", pickRequest.getSkuPackage());
+  }
+
+  /**Test that an order is translated by its colour and model.*/
+  @Test
+  public void testTranslate() {
+    assertEquals("3,3,3,3,4,4,4,4", skusOf("S", "Blue"));
+  }
+
+  /**Test that a later row for the same colour and model replaces an earlier one.*/
+  @Test
+  public void testLastRowWins() {
+    assertEquals("5,5,5,5,6,6,6,6", skusOf("S", "White"));
+  }
+
+  /**Test that orders not in the table, or in a row that is too short, are not queued.*/
+  @Test
+  public void testUnknownOrder() {
+    assertEquals("", skusOf("SE", "White"));
+    assertEquals("", skusOf("S", "Red"));
+  }
+}
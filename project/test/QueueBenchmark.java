@@ -0,0 +1,76 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.function.Supplier;
+
+/**Compares the queues of the order pipeline, LinkedList against ArrayDeque, replaying the
+ * way OrderHandler and Marshalling use them: each order adds two SKUs and an order, each
+ * batch of four takes them out into a pick request, which passes through the process,
+ * sequencer and loader queues; one pick request in fifty is discarded and put back first.
+ *
+ * <p>Reports the time and the bytes allocated by the queues per order. Queued items are
+ * made up front, so only the queues allocate.
+ *
+ * <p>Usage: java QueueBenchmark [orders]. Not part of AllTests.
+ */
+public class QueueBenchmark {
+
+  public static void main(String[] args) {
+    int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20000000;
+    String[] skus = new String[64];
+    for (int i = 0; i < skus.length; i++) {
+      skus[i] = String.valueOf(i);
+    }
+    for (String kind : new String[] {"linked", "array", "linked", "array"}) {
+      Supplier<Deque<Object>> queues = kind.equals("linked") ? LinkedList::new : ArrayDeque::new;
+      long allocated = allocatedBytes();
+      long start = System.nanoTime();
+      long checksum = replay(queues, skus, orders);
+      long nanos = System.nanoTime() - start;
+      allocated = allocatedBytes() - allocated;
+      System.out.printf("%-6s %5.1f ns, %5.1f bytes per order (%d)%n", kind,
+          (double) nanos / orders, (double) allocated / orders, checksum % 10);
+    }
+  }
+
+  /**Replays the pipeline's queue operations for a number of orders.*/
+  private static long replay(Supplier<Deque<Object>> queues, String[] skus, int orders) {
+    Deque<Object> orderQueue = queues.get();
+    Deque<Object> skuQueue = queues.get();
+    Deque<Object> processQueue = queues.get();
+    Deque<Object> sequencerQueue = queues.get();
+    Deque<Object> loaderQueue = queues.get();
+    Object order = new Object();
+    long checksum = 0;
+    for (int i = 0; i < orders; i++) {
+      skuQueue.add(skus[i & 63]);
+      skuQueue.add(skus[(i + 1) & 63]);
+      orderQueue.add(order);
+      if (orderQueue.size() == 4) {
+        for (int j = 0; j < 8; j++) {
+          checksum += skuQueue.remove().hashCode();
+        }
+        for (int j = 0; j < 4; j++) {
+          orderQueue.remove();
+        }
+        processQueue.add(skus[i & 63]);
+        Object request = processQueue.poll();
+        sequencerQueue.add(request);
+        if (i % 200 == 3) { // Discarded: back to the front of both queues
+          processQueue.addFirst(sequencerQueue.pollLast());
+          sequencerQueue.addFirst(processQueue.poll());
+        }
+        loaderQueue.add(sequencerQueue.poll());
+        checksum += loaderQueue.poll().hashCode();
+      }
+    }
+    return checksum;
+  }
+
+  /**Returns the bytes allocated by this thread so far.*/
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
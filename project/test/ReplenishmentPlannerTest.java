@@ -0,0 +1,134 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplenishmentPlannerTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A test Warehouse, whose StockRoom has shelves in two aisles of zone A and one of B.*/
+  public Warehouse warehouse;
+  /**The test Warehouse's StockRoom.*/
+  public StockRoom stockroom;
+  /**The test StockRoom's planner.*/
+  public ReplenishmentPlanner planner;
+
+  @Before
+  public void setUp() {
+    simulator = new Simulator();
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList(
+        "A,0,0,0,1", "A,0,0,1,2", "A,0,1,0,3", "A,1,0,0,4", "B,0,0,0,5"));
+    ArrayList<String> initial = new ArrayList<String>(Arrays.asList(
+        "A,0,0,0,7", "A,0,0,1,7", "A,0,1,0,7", "A,1,0,0,7", "B,0,0,0,7"));
+    ArrayList<String> translation = new ArrayList<String>(Arrays.asList(
+        "Colour,Model,Front,Back", "White,S,1,2"));
+    warehouse = new Warehouse(new ArrayList<String>(), initial, traversal, translation);
+    stockroom = warehouse.getStockRoom();
+    planner = stockroom.getReplenishmentPlanner();
+  }
+
+  @After
+  public void cleanUp() {
+    simulator = null;
+  }
+
+  /**Takes products of a SKU from the test StockRoom.*/
+  private void take(String sku, int count) {
+    for (int i = 0; i < count; i++) {
+      stockroom.takeProduct(sku);
+    }
+  }
+
+  /**Returns the SKUs of a route.*/
+  private static List<String> skusOf(List<ReplenishmentPlanner.Task> route) {
+    List<String> skus = new ArrayList<String>();
+    for (ReplenishmentPlanner.Task task : route) {
+      skus.add(task.getSku());
+    }
+    return skus;
+  }
+
+  /**Test that a shelf falling to the threshold gets one task, however low it then goes.*/
+  @Test
+  public void testOneTaskPerShelf() {
+    take("1", 1);
+    assertEquals(0, planner.waitingCount());
+    take("1", 1); // 5 left: the threshold
+    assertEquals(1, planner.waitingCount());
+    take("1", 10); // Runs out
+    assertEquals(1, planner.waitingCount());
+  }
+
+  /**Test that an empty shelf gets a task even if its threshold crossing was missed.*/
+  @Test
+  public void testEmptyShelfGetsTask() {
+    for (int i = 0; i < 7; i++) { // Emptied without crossing the threshold with a pick
+      stockroom.getMap().get("1").takeOne();
+    }
+    assertEquals(0, planner.waitingCount());
+    take("1", 1);
+    assertEquals(1, planner.waitingCount());
+  }
+
+  /**Test that a route keeps to the most urgent task's zone and aisle, in walking order.*/
+  @Test
+  public void testRouteByZoneAndAisle() {
+    take("3", 2);
+    take("4", 2);
+    take("2", 2);
+    take("5", 2);
+    take("1", 3); // The fastest to run out, so the most urgent
+    Replenisher replenisher = new Replenisher("Ruby", warehouse);
+    assertTrue(planner.sendRoute(replenisher));
+    assertEquals(Arrays.asList("1", "2", "3"), skusOf(replenisher.getRoute()));
+    assertEquals(2, planner.waitingCount());
+  }
+
+  /**Test that open pick demand makes a task more urgent.*/
+  @Test
+  public void testDemandRaisesUrgency() {
+    take("4", 2);
+    take("5", 2);
+    planner.setDemand(sku -> sku.equals("5") ? 8 : 0);
+    Replenisher replenisher = new Replenisher("Ruby", warehouse);
+    planner.sendRoute(replenisher);
+    assertEquals(Arrays.asList("5"), skusOf(replenisher.getRoute()));
+  }
+
+  /**Test that tasks not done when a Replenisher completes go back to waiting.*/
+  @Test
+  public void testCompleteReturnsTasksNotDone() {
+    take("1", 2);
+    take("2", 2);
+    Replenisher replenisher = new Replenisher("Ruby", warehouse);
+    replenisher.ready();
+    List<ReplenishmentPlanner.Task> route = replenisher.getRoute();
+    assertEquals(2, route.size());
+    assertEquals(0, planner.waitingCount());
+    stockroom.replenish("A 0 0 0");
+    assertTrue(planner.isDone(route.get(0)));
+    assertFalse(planner.isDone(route.get(1)));
+    replenisher.complete();
+    assertNull(replenisher.getRoute());
+    assertEquals(1, planner.waitingCount());
+  }
+
+  /**Test that replenishing a shelf cancels its waiting task.*/
+  @Test
+  public void testReplenishCancelsTask() {
+    take("5", 2);
+    assertEquals(1, planner.waitingCount());
+    stockroom.replenish("B 0 0 0");
+    assertEquals(0, planner.waitingCount());
+    Replenisher replenisher = new Replenisher("Ruby", warehouse);
+    assertFalse(planner.sendRoute(replenisher));
+  }
+}
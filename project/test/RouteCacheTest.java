@@ -0,0 +1,84 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RouteCacheTest {
+  /**A test StockRoom of SKUs 1 to 6, in aisle 0 of zone A.*/
+  public StockRoom stockRoom;
+  /**The number of routes planned by the strategy behind the cache.*/
+  public int planned;
+  /**A cache of two routes, planned by sort.*/
+  public RouteCache cache;
+
+  @Before
+  public void setUp() {
+    new Simulator();
+    stockRoom = newStockRoom();
+    planned = 0;
+    cache = new RouteCache((skus, room) -> {
+      planned++;
+      return Optimizer.optimize(skus, room);
+    }, 2);
+  }
+
+  /**Makes a StockRoom of SKUs 1 to 6.*/
+  private static StockRoom newStockRoom() {
+    ArrayList<String> traversal = new ArrayList<String>();
+    for (int sku = 1; sku <= 6; sku++) {
+      traversal.add("A,0," + (sku - 1) / 4 + "," + (sku - 1) % 4 + "," + sku);
+    }
+    return new StockRoom(traversal, new ArrayList<String>());
+  }
+
+  /**Test that the same SKUs, in any order, are routed once.*/
+  @Test
+  public void testHit() {
+    List<String> route = cache.optimize(Arrays.asList("3", "1", "3"), stockRoom);
+    assertEquals(Arrays.asList("A 0 0 0 1", "A 0 0 2 3", "A 0 0 2 3"), route);
+    List<String> again = cache.optimize(Arrays.asList("3", "3", "1"), stockRoom);
+    assertEquals(route, again);
+    assertNotSame(route, again);
+    assertEquals(1, planned);
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    cache.optimize(Arrays.asList("3", "1"), stockRoom); // Another multiset
+    assertEquals(2, planned);
+  }
+
+  /**Test that the route used least recently is evicted when the cache is full.*/
+  @Test
+  public void testEviction() {
+    cache.optimize(Arrays.asList("1", "2"), stockRoom);
+    cache.optimize(Arrays.asList("3", "4"), stockRoom);
+    cache.optimize(Arrays.asList("2", "1"), stockRoom); // Now used more recently than 3, 4
+    cache.optimize(Arrays.asList("5", "6"), stockRoom);
+    assertEquals(1, cache.getEvictions());
+    assertEquals(2, cache.size());
+    cache.optimize(Arrays.asList("1", "2"), stockRoom);
+    assertEquals(3, planned);
+    cache.optimize(Arrays.asList("4", "3"), stockRoom);
+    assertEquals(4, planned);
+  }
+
+  /**Test that routes are dropped when routing in another StockRoom.*/
+  @Test
+  public void testInvalidation() {
+    cache.optimize(Arrays.asList("1", "2"), stockRoom);
+    cache.optimize(Arrays.asList("1", "2"), newStockRoom());
+    assertEquals(2, planned);
+    assertEquals(1, cache.getInvalidations());
+    assertEquals(1, cache.size());
+  }
+
+  /**Test that a cache must hold at least one route.*/
+  @Test(expected = IllegalArgumentException.class)
+  public void testCapacity() {
+    new RouteCache(Optimizer::optimize, 0);
+  }
+}
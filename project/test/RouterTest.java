@@ -0,0 +1,112 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RouterTest {
+  /**A test layout: zone A of 4 aisles of 10 racks, and zone B of 1 aisle of 10 racks.*/
+  public WarehouseLayout layout;
+
+  @Before
+  public void setUp() {
+    StockStore store = new ArrayStockStore(50, false);
+    for (int aisle = 0; aisle < 4; aisle++) {
+      for (int rack = 0; rack < 10; rack++) { // The ordinal is aisle * 10 + rack
+        store.addShelf("A" + aisle + rack, "A", aisle, rack, 0, 30);
+      }
+    }
+    for (int rack = 0; rack < 10; rack++) { // Ordinals 40 to 49
+      store.addShelf("B" + rack, "B", 0, rack, 0, 30);
+    }
+    layout = new WarehouseLayout(store);
+  }
+
+  /**Test walking distances along aisles, across them and between zones.*/
+  @Test
+  public void testDistance() {
+    assertEquals(3, layout.distance(2, 5));
+    assertEquals(WarehouseLayout.AISLE_DISTANCE + 2 + 3, layout.distance(1, 12)); // By the front
+    assertEquals(WarehouseLayout.AISLE_DISTANCE * 2 + 2 + 1, layout.distance(9, 28)); // By the back
+    assertEquals(1, layout.distance(WarehouseLayout.DEPOT, 0));
+    assertEquals(1 + WarehouseLayout.ZONE_DISTANCE + 1, layout.distance(0, 40));
+    assertEquals(2 * (WarehouseLayout.AISLE_DISTANCE + 4),
+        layout.routeLength(new int[] {13}, 1));
+  }
+
+  /**Test that S-shape walks each aisle through, in alternating directions.*/
+  @Test
+  public void testSShape() {
+    Router router = new Router(layout, Router.Heuristic.S_SHAPE);
+    int[] route = router.route(new int[] {21, 5, 13, 2, 18});
+    assertArrayEquals(new int[] {2, 5, 18, 13, 21}, route);
+  }
+
+  /**Test that largest gap picks a middle aisle from both ends, split at its largest gap.*/
+  @Test
+  public void testLargestGap() {
+    Router router = new Router(layout, Router.Heuristic.LARGEST_GAP);
+    int[] route = router.route(new int[] {11, 25, 2, 19});
+    assertArrayEquals(new int[] {2, 19, 25, 11}, route);
+  }
+
+  /**Test that zones are routed one after the other.*/
+  @Test
+  public void testZones() {
+    Router router = new Router(layout, Router.Heuristic.S_SHAPE);
+    assertArrayEquals(new int[] {3, 12, 41}, router.route(new int[] {41, 12, 3}));
+  }
+
+  /**Test that nearest neighbour with 2-opt visits every shelf once, no longer than S-shape.*/
+  @Test
+  public void testNearestNeighbour() {
+    int[] shelves = {39, 0, 21, 9, 30, 12, 27, 3};
+    int[] route = new Router(layout, Router.Heuristic.NEAREST_NEIGHBOUR).route(shelves);
+    int[] sorted = route.clone();
+    Arrays.sort(sorted);
+    int[] expected = shelves.clone();
+    Arrays.sort(expected);
+    assertArrayEquals(expected, sorted);
+    int[] sShape = new Router(layout, Router.Heuristic.S_SHAPE).route(shelves);
+    assertTrue(layout.routeLength(route, route.length)
+        <= layout.routeLength(sShape, sShape.length));
+  }
+
+  /**Test that routing strategies are found by name, built in or by class.*/
+  @Test
+  public void testNamedStrategies() {
+    for (String name : RoutingStrategy.BUILT_IN) {
+      assertTrue(RoutingStrategy.exists(name));
+    }
+    assertTrue(RoutingStrategy.exists("RouterTest$Reversed"));
+    assertFalse(RoutingStrategy.exists("String"));
+    assertFalse(RoutingStrategy.exists("NoSuchStrategy"));
+    assertFalse(RoutingStrategy.exists("Router")); // No constructor taking no arguments
+    assertFalse(RoutingStrategy.exists("RoutingStrategy")); // An interface
+    assertTrue(RoutingStrategy.named("RouterTest$Reversed", null) instanceof Reversed);
+  }
+
+  /**Test that an unknown routing strategy is refused.*/
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownStrategy() {
+    RoutingStrategy.named("NoSuchStrategy", null);
+  }
+
+  /**A RoutingStrategy that picks SKUs in the reverse of the order given.*/
+  public static class Reversed implements RoutingStrategy {
+    @Override
+    public List<String> optimize(List<String> skus, StockRoom stockRoom) {
+      List<String> route = new ArrayList<String>();
+      for (int i = skus.size() - 1; i >= 0; i--) {
+        route.add(stockRoom.getLocation(skus.get(i)));
+      }
+      return route;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**Replays an events file once under each RoutingStrategy, and reports how long optimize()
+ * took per pick request and the total walking distance of the routes, measured on the
+ * traversal table's WarehouseLayout.
+ *
+ * <p>Usage: java RoutingBenchmark (events) (initial) (traversal) (translation) [strategy...].
+ * The built-in strategies are compared by default. Writes final0.csv, orders0.csv and
+ * infolog.txt to the working directory. Not part of AllTests.
+ */
+public class RoutingBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    List<String> strategies = args.length > 4
+        ? Arrays.asList(args).subList(4, args.length) : Arrays.asList(RoutingStrategy.BUILT_IN);
+    for (String name : strategies) {
+      new Simulator();
+      Simulator.fm.setThreshold(1);
+      Warehouse house = new Warehouse(0, Simulator.fm.openEventSource(args[0]),
+          Simulator.fm.readFromFile(args[1]), Simulator.fm.readFromFile(args[2]),
+          Simulator.fm.readFromFile(args[3]));
+      StockRoom stockRoom = house.getStockRoom();
+      WarehouseLayout layout = new WarehouseLayout(stockRoom.getStore());
+      RoutingStrategy strategy = RoutingStrategy.named(name, stockRoom);
+      long[] totals = new long[3]; // Calls, nanoseconds, walking distance
+      house.getOrderHandler().setRoutingStrategy((skus, room) -> {
+        long start = System.nanoTime();
+        List<String> route = strategy.optimize(skus, room);
+        totals[1] += System.nanoTime() - start;
+        totals[0]++;
+        totals[2] += length(route, room, layout);
+        return route;
+      });
+      house.runWarehouse();
+      Simulator.fm.close();
+      System.out.printf("%-18s %6d pick requests, optimize %8.1f ns, walked %8d%n", name,
+          totals[0], totals[0] == 0 ? 0.0 : (double) totals[1] / totals[0], totals[2]);
+    }
+  }
+
+  /**Measures a route from Marshalling and back, from its locations.*/
+  private static int length(List<String> route, StockRoom stockRoom, WarehouseLayout layout) {
+    int[] shelves = new int[route.size()];
+    for (int i = 0; i < shelves.length; i++) {
+      String location = route.get(i);
+      shelves[i] = stockRoom.getStore().ordinalOf(location.substring(location.lastIndexOf(' ')
+          + 1));
+    }
+    return layout.routeLength(shelves, shelves.length);
+  }
+}
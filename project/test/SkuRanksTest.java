@@ -0,0 +1,73 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SkuRanksTest {
+
+  /**Makes a store with one shelf of each SKU, in aisle 0 of zone A.*/
+  private static StockStore store(String... skus) {
+    StockStore store = new ObjectStockStore();
+    for (int i = 0; i < skus.length; i++) {
+      store.addShelf(skus[i], "A", 0, i / 4, i % 4, 30);
+    }
+    return store;
+  }
+
+  /**Test the ranks by name and by value of numbers with and without leading zeros.*/
+  @Test
+  public void testRanks() {
+    SkuRanks ranks = new SkuRanks(store("10", "9", "100", "09", "B1"));
+    int[] byName = {1, 3, 2, 0, 4}; // 09 < 10 < 100 < 9 < B1
+    int[] byValue = {2, 1, 3, 0, 4}; // 09 < 9 < 10 < 100 < B1
+    for (int ordinal = 0; ordinal < 5; ordinal++) {
+      assertEquals(byName[ordinal], ranks.rankOf(ordinal, false));
+      assertEquals(ordinal, ranks.ordinalAt(byName[ordinal], false));
+      assertEquals(byValue[ordinal], ranks.rankOf(ordinal, true));
+      assertEquals(ordinal, ranks.ordinalAt(byValue[ordinal], true));
+    }
+    assertTrue(ranks.isSingleDigit(1));
+    assertFalse(ranks.isSingleDigit(0));
+    assertFalse(ranks.isSingleDigit(3));
+  }
+
+  /**Test that numbers too long for an int are still ranked by value.*/
+  @Test
+  public void testLongNumbers() {
+    SkuRanks ranks = new SkuRanks(store("123456789012345678901", "99999999999"));
+    assertEquals(1, ranks.rankOf(0, true));
+    assertEquals(0, ranks.rankOf(1, true));
+  }
+
+  /**Test that the shelves of a SKU laid out twice get their own ranks, in ordinal order.*/
+  @Test
+  public void testDuplicates() {
+    SkuRanks ranks = new SkuRanks(store("7", "3", "7"));
+    assertEquals(1, ranks.rankOf(0, true));
+    assertEquals(2, ranks.rankOf(2, true));
+    assertEquals("A 0 0 2 7", ranks.getLocation(2));
+  }
+
+  /**Test that Optimizer sorts by value once any SKU is a single digit, and by name
+   * otherwise, without changing the list it is given.*/
+  @Test
+  public void testOptimize() {
+    new Simulator();
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList(
+        "A,0,0,0,26", "A,0,0,1,9", "A,0,0,2,100", "B,1,2,3,A9", "B,1,2,2,A10"));
+    StockRoom stockRoom = new StockRoom(traversal, new ArrayList<String>());
+    List<String> skus = new ArrayList<String>(Arrays.asList("100", "26", "9"));
+    assertEquals(Arrays.asList("A 0 0 1 9", "A 0 0 0 26", "A 0 0 2 100"),
+        Optimizer.optimize(skus, stockRoom));
+    assertEquals(Arrays.asList("100", "26", "9"), skus);
+    assertEquals(Arrays.asList("A 0 0 2 100", "A 0 0 0 26"),
+        Optimizer.optimize(Arrays.asList("26", "100"), stockRoom));
+    assertEquals(Arrays.asList("B 1 2 2 A10", "B 1 2 3 A9"),
+        Optimizer.optimize(Arrays.asList("A9", "A10"), stockRoom));
+  }
+}
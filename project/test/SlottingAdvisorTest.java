@@ -0,0 +1,77 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlottingAdvisorTest {
+  /**A test store: zone A of 2 aisles of 5 racks; the ordinal is aisle * 5 + rack.*/
+  public StockStore store;
+
+  @Before
+  public void setUp() {
+    store = new ArrayStockStore(10, false);
+    for (int aisle = 0; aisle < 2; aisle++) {
+      for (int rack = 0; rack < 5; rack++) {
+        store.addShelf("S" + (aisle * 5 + rack), "A", aisle, rack, 0, 30);
+      }
+    }
+  }
+
+  /**Picks from a shelf a number of times.*/
+  private static void pick(SlottingAdvisor advisor, int ordinal, int times) {
+    for (int i = 0; i < times; i++) {
+      advisor.recordPick(ordinal);
+    }
+  }
+
+  /**Test that the SKUs picked most move nearest Marshalling, and the others stay put.*/
+  @Test
+  public void testFastMovers() {
+    SlottingAdvisor advisor = new SlottingAdvisor(store);
+    pick(advisor, 9, 5);
+    pick(advisor, 3, 2);
+    SlottingAdvisor.Plan plan = advisor.plan();
+    assertEquals(0, plan.getSlot(9));
+    assertEquals(1, plan.getSlot(3));
+    assertEquals(2, plan.getSlot(2)); // Not picked, and its shelf is still free
+    assertEquals(3, plan.getSlot(0)); // Not picked, moved to the nearest shelf left
+    assertEquals(9, plan.getSlot(1));
+    assertEquals(4, plan.getMoves());
+    assertEquals("A,0,0,0,S9", plan.getTraversal().get(0));
+    assertEquals("A,1,4,0,S1", plan.getTraversal().get(9));
+  }
+
+  /**Test that a SKU mostly picked with another is shelved next to it, and the saving.*/
+  @Test
+  public void testCoPicks() {
+    SlottingAdvisor advisor = new SlottingAdvisor(store);
+    pick(advisor, 9, 4);
+    pick(advisor, 4, 3);
+    pick(advisor, 7, 2);
+    advisor.recordPickRequest(new int[] {9, 7, 9});
+    advisor.recordPickRequest(new int[] {7, 9});
+    assertEquals(2, advisor.getCoPicks(7, 9));
+    assertEquals(2, advisor.getPickRequests());
+    SlottingAdvisor.Plan plan = advisor.plan();
+    assertEquals(0, plan.getSlot(9));
+    assertEquals(1, plan.getSlot(7));
+    assertEquals(2, plan.getSlot(4));
+    assertEquals(2 * 4, plan.getAfter()); // Out past rack 0 to rack 1, and back
+    assertTrue(plan.getBefore() > plan.getAfter());
+  }
+
+  /**Test that the shelf of a SKU laid out again is left alone.*/
+  @Test
+  public void testDuplicateShelf() {
+    store.addShelf("S0", "B", 0, 0, 0, 30); // S0 is now stocked in zone B, ordinal 10
+    SlottingAdvisor advisor = new SlottingAdvisor(store);
+    pick(advisor, 10, 1);
+    SlottingAdvisor.Plan plan = advisor.plan();
+    assertEquals(1, plan.getSlot(10)); // The nearest shelf of those stocked
+    assertEquals(0, plan.getSlot(0));
+    assertEquals(10, plan.getSlot(1));
+    assertEquals("A,0,0,0,S0", plan.getTraversal().get(0));
+    assertEquals("A,0,1,0,S0", plan.getTraversal().get(1));
+  }
+}
@@ -0,0 +1,145 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StockReservationTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A test Warehouse, whose StockRoom has little of SKU 1 and plenty of the others.*/
+  public Warehouse warehouse;
+  /**The test Warehouse's StockRoom.*/
+  public StockRoom stockroom;
+
+  @Before
+  public void setUp() {
+    simulator = new Simulator();
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList(
+        "A,0,0,0,1", "A,0,0,1,2", "A,0,1,0,3", "A,0,1,1,4"));
+    ArrayList<String> initial = new ArrayList<String>(Arrays.asList("A,0,0,0,6"));
+    ArrayList<String> translation = new ArrayList<String>(Arrays.asList(
+        "Colour,Model,Front,Back", "White,S,1,2", "Blue,S,3,4"));
+    warehouse = new Warehouse(new ArrayList<String>(), initial, traversal, translation);
+    stockroom = warehouse.getStockRoom();
+  }
+
+  @After
+  public void cleanUp() {
+    simulator = null;
+  }
+
+  /**Returns a pick request of 8 SKUs, 4 of each given SKU.*/
+  private static PickRequest newPickRequest(int id, String front, String back) {
+    ArrayList<String> skus = new ArrayList<String>();
+    for (int i = 0; i < 4; i++) {
+      skus.add(front);
+    }
+    for (int i = 0; i < 4; i++) {
+      skus.add(back);
+    }
+    return new PickRequest(new ArrayList<String>(), skus, new ArrayList<Order>(), id);
+  }
+
+  /**Test that stock is reserved for all of a pick request or none of it.*/
+  @Test
+  public void testReserveAllOrNothing() {
+    PickRequest first = newPickRequest(1, "1", "2");
+    assertTrue(stockroom.reserve(first));
+    assertEquals(2, stockroom.getAvailable("1"));
+    assertEquals(26, stockroom.getAvailable("2"));
+    PickRequest second = newPickRequest(2, "1", "2");
+    assertFalse(stockroom.reserve(second));
+    assertEquals(2, stockroom.getAvailable("1"));
+    assertEquals(26, stockroom.getAvailable("2"));
+    assertEquals(1, stockroom.getReplenishmentPlanner().waitingCount());
+  }
+
+  /**Test that pick requests reserved from many threads at once never reserve more than is
+   * on a shelf, and that those refused give back what they reserved.*/
+  @Test
+  public void testReserveFromManyThreads() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+    for (int i = 0; i < 8; i++) {
+      ArrayList<String> skus = new ArrayList<String>(Arrays.asList("2", "1", "2", "1"));
+      PickRequest request = new PickRequest(new ArrayList<String>(), skus,
+          new ArrayList<Order>(), i);
+      results.add(executor.submit(() -> stockroom.reserve(request)));
+    }
+    int reserved = 0;
+    for (Future<Boolean> result : results) {
+      reserved += result.get() ? 1 : 0;
+    }
+    executor.shutdown();
+    assertEquals(3, reserved); // 2 of the 6 of SKU 1 each
+    assertEquals(0, stockroom.getAvailable("1"));
+    assertEquals(24, stockroom.getAvailable("2"));
+  }
+
+  /**Test that picking uses up a reservation, and discarding releases the rest.*/
+  @Test
+  public void testPickThenRelease() {
+    PickRequest request = newPickRequest(1, "1", "2");
+    stockroom.reserve(request);
+    stockroom.takeProduct("1", request);
+    stockroom.takeProduct("1", request);
+    assertEquals(4, stockroom.getMap().get("1").getStock());
+    assertEquals(2, stockroom.getAvailable("1"));
+    stockroom.release(request);
+    assertFalse(request.isReserved());
+    assertEquals(4, stockroom.getAvailable("1"));
+    assertEquals(30, stockroom.getAvailable("2"));
+  }
+
+  /**Test that a pick request that cannot be reserved is held back and a later one sent.*/
+  @Test
+  public void testShortRequestHeldBack() {
+    OrderHandler orderHandler = warehouse.getOrderHandler();
+    for (int i = 0; i < 8; i++) { // Two pick requests that each need 4 of SKU 1
+      orderHandler.addOrder(new Order("S", "White"));
+    }
+    for (int i = 0; i < 4; i++) {
+      orderHandler.addOrder(new Order("S", "Blue"));
+    }
+    assertEquals(3, orderHandler.getProcessQueue().size());
+    Picker alice = new Picker("Alice", warehouse);
+    alice.ready();
+    assertEquals(1, alice.getPickNum());
+    Picker bob = new Picker("Bob", warehouse);
+    bob.ready();
+    assertEquals(3, bob.getPickNum()); // #2 is short of SKU 1
+    Picker carol = new Picker("Carol", warehouse);
+    carol.ready();
+    assertEquals(-1, carol.getPickNum());
+    stockroom.replenish("A 0 0 0");
+    carol.ready();
+    assertEquals(2, carol.getPickNum());
+  }
+
+  /**Test that a Picker's discarded pick request is released and sent out again.*/
+  @Test
+  public void testPickerDiscard() {
+    OrderHandler orderHandler = warehouse.getOrderHandler();
+    for (int i = 0; i < 4; i++) {
+      orderHandler.addOrder(new Order("S", "White"));
+    }
+    Picker alice = new Picker("Alice", warehouse);
+    alice.ready();
+    alice.discard();
+    assertEquals(-1, alice.getPickNum());
+    assertEquals(6, stockroom.getAvailable("1"));
+    Picker bob = new Picker("Bob", warehouse);
+    bob.ready();
+    assertEquals(1, bob.getPickNum());
+  }
+}
@@ -0,0 +1,44 @@
+/**Measures the heap used by each StockStore for a large layout, and how long taking a
+ * product off a shelf by SKU takes.
+ *
+ * <p>Usage: java StockStoreBenchmark [shelves]. Not part of AllTests.
+ */
+public class StockStoreBenchmark {
+
+  public static void main(String[] args) {
+    int shelves = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    String[] skus = new String[shelves];
+    for (int i = 0; i < shelves; i++) {
+      skus[i] = String.valueOf(i);
+    }
+    for (String kind : new String[] {"object", "array", "offheap", "object", "array", "offheap"}) {
+      long before = usedHeap();
+      StockStore store = kind.equals("object") ? new ObjectStockStore()
+          : new ArrayStockStore(shelves, kind.equals("offheap"));
+      for (int i = 0; i < shelves; i++) {
+        store.addShelf(skus[i], i % 2 == 0 ? "A" : "B", i / 96, i / 4 % 24, i % 4, 1 << 30);
+      }
+      long heap = usedHeap() - before;
+      long start = System.nanoTime();
+      long checksum = 0;
+      int takes = 20000000;
+      for (int i = 0; i < takes; i++) {
+        // Each scan is a new String, as if just read from the events file.
+        int ordinal = store.ordinalOf(String.valueOf((i * 2654435761L) % shelves));
+        checksum += store.takeOne(ordinal);
+      }
+      long nanos = System.nanoTime() - start;
+      System.out.printf("%-8s heap %6.1f MB, takeOne by SKU %5.1f ns (%d)%n", kind,
+          heap / 1048576.0, (double) nanos / takes, checksum % 10);
+    }
+  }
+
+  /**Returns the heap in use after a garbage collection.*/
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**Checks that every StockStore behaves the same way.*/
+@RunWith(Parameterized.class)
+public class StockStoreTest {
+  /**The kind of store under test.*/
+  public String kind;
+  /**The store under test.*/
+  public StockStore store;
+
+  public StockStoreTest(String kind) {
+    this.kind = kind;
+  }
+
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> kinds() {
+    return Arrays.asList(new Object[][] {{"object"}, {"array"}, {"offheap"}, {"concurrent"}});
+  }
+
+  @Before
+  public void setUp() {
+    switch (kind) {
+      case "array": store = new ArrayStockStore(1, false);
+        break;
+      case "offheap": store = new ArrayStockStore(1, true);
+        break;
+      case "concurrent": store = new ConcurrentStockStore(1);
+        break;
+      default: store = new ObjectStockStore();
+        break;
+    }
+  }
+
+  /**Test that shelves keep their SKU and location, through the store growing.*/
+  @Test
+  public void testAddShelves() {
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, store.addShelf(String.valueOf(i), i % 2 == 0 ? "A" : "B", i / 24, i / 4 % 6,
+          i % 4, 30));
+    }
+    assertEquals(1000, store.size());
+    assertEquals(777, store.ordinalOf("777"));
+    assertEquals("B", store.getZone(777));
+    assertEquals(32, store.getAisle(777));
+    assertEquals(2, store.getRack(777));
+    assertEquals(1, store.getLevel(777));
+    assertEquals("777", store.getSku(777));
+    assertEquals(-1, store.ordinalOf("1000"));
+  }
+
+  /**Test taking and adding stock.*/
+  @Test
+  public void testStock() {
+    int ordinal = store.addShelf("1", "A", 0, 0, 0, 2);
+    assertEquals(1, store.takeOne(ordinal));
+    assertEquals(0, store.takeOne(ordinal));
+    assertEquals(-1, store.takeOne(ordinal));
+    assertEquals(0, store.getStock(ordinal));
+    assertEquals(25, store.addStock(ordinal, 25));
+    store.setStock(ordinal, 7);
+    assertEquals(7, store.getStock(ordinal));
+  }
+
+  /**Test that a SKU laid out twice is found at its last shelf.*/
+  @Test
+  public void testSkuAddedTwice() {
+    store.addShelf("1", "A", 0, 0, 0, 30);
+    store.addShelf("2", "A", 0, 0, 1, 30);
+    store.addShelf("1", "B", 1, 1, 1, 30);
+    assertEquals(2, store.ordinalOf("1"));
+  }
+}
@@ -3,6 +3,7 @@ import static org.junit.Assert.assertEquals;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -19,6 +20,7 @@ public class TruckTest {
   @Before
   public void setup() throws IOException {
     simulator = new Simulator();
+    System.setOut(new PrintStream(new ByteArrayOutputStream())); // Refused loads are logged
     truck = new Truck();
     ArrayList<Order> fourOrders = new ArrayList<Order>();
     fourOrders.add(new Order("S", "White"));
@@ -42,6 +44,38 @@ public class TruckTest {
     boolean actual = truck.isFull();
     assertEquals(expected, actual);
   }
+  /**Test that a batch of 3 orders is not loaded past the 80 orders a Truck holds.*/
+  @Test
+  public void testCanLoad() {
+    Truck partial = new Truck();
+    ArrayList<Order> threeOrders = new ArrayList<Order>();
+    for (int i = 0; i < 3; i++) {
+      threeOrders.add(new Order("S", "White"));
+    }
+    for (int i = 0; i < 27; i++) {
+      partial.loadPallet(threeOrders);
+    }
+    assertEquals(false, partial.isFull());
+    assertEquals(false, partial.canLoad(3));
+    assertEquals(true, partial.canLoad(2));
+    assertEquals(false, truck.canLoad(1));
+  }
+
+  /**Test that Pallets of 81 orders are refused by an empty Truck, and nothing is loaded.*/
+  @Test
+  public void testLoadTooLarge() {
+    Truck empty = new Truck();
+    ArrayList<Order> orders = new ArrayList<Order>();
+    for (int i = 0; i < Truck.CAPACITY + 1; i++) {
+      orders.add(new Order("S", "White"));
+    }
+    assertEquals(false, empty.loadPallet(orders));
+    assertEquals(true, empty.canLoad(Truck.CAPACITY));
+    orders.remove(0);
+    assertEquals(true, empty.loadPallet(orders));
+    assertEquals(true, empty.isFull());
+  }
+
   /**Test if Truck ID is assigned properly*/
   @Test
   public void testGetId() {
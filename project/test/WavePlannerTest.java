@@ -0,0 +1,89 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WavePlannerTest {
+  /**A test Simulator.*/
+  public Simulator simulator;
+  /**A test Warehouse, with White minivans' fascia in zone A and Blue ones' in zone B.*/
+  public Warehouse warehouse;
+  /**The test Warehouse's OrderHandler.*/
+  public OrderHandler orderHandler;
+  /**A WavePlanner of the test Warehouse's StockRoom.*/
+  public WavePlanner planner;
+
+  @Before
+  public void setUp() {
+    simulator = new Simulator();
+    ArrayList<String> traversal = new ArrayList<String>(Arrays.asList(
+        "A,0,0,0,1", "A,0,0,1,2", "B,0,0,0,3", "B,0,0,1,4"));
+    ArrayList<String> translation = new ArrayList<String>(Arrays.asList(
+        "Colour,Model,Front,Back", "White,S,1,2", "Blue,S,3,4"));
+    warehouse = new Warehouse(new ArrayList<String>(), new ArrayList<String>(), traversal,
+        translation);
+    orderHandler = warehouse.getOrderHandler();
+    planner = new WavePlanner(warehouse.getStockRoom().getStore());
+  }
+
+  @After
+  public void cleanUp() {
+    simulator = null;
+  }
+
+  /**Test that orders are grouped with the orders shelved nearest them.*/
+  @Test
+  public void testPlanGroupsNearbyOrders() {
+    List<String> skus = Arrays.asList("1", "2", "3", "4", "1", "2", "3", "4");
+    List<int[]> batches = planner.plan(skus, 2);
+    assertEquals(2, batches.size());
+    assertArrayEquals(new int[] {0, 2}, batches.get(0));
+    assertArrayEquals(new int[] {1, 3}, batches.get(1));
+    assertEquals(WavePlanner.ZONE_DISTANCE, planner.travel(Arrays.asList("1", "2", "3")));
+    assertEquals(0, planner.travel(Arrays.asList("1", "2", "1", "2")));
+  }
+
+  /**Test that a wave's pick requests are picked by zone and its loads kept in order.*/
+  @Test
+  public void testWaveResequenced() {
+    orderHandler.setBatchSize(2, false);
+    orderHandler.setWaveSize(4);
+    orderHandler.addOrder(new Order("S", "White"));
+    orderHandler.addOrder(new Order("S", "Blue"));
+    orderHandler.addOrder(new Order("S", "White"));
+    assertEquals(0, orderHandler.getProcessQueue().size());
+    orderHandler.addOrder(new Order("S", "Blue"));
+    assertEquals(2, orderHandler.getProcessQueue().size());
+    Picker alice = new Picker("Alice", warehouse);
+    alice.ready();
+    for (String sku : new String[] {"1", "1", "2", "2"}) {
+      alice.scanSku(sku);
+    }
+    alice.complete();
+    Sequencer sequencer = new Sequencer("Sue", warehouse);
+    sequencer.ready();
+    assertNull(sequencer.getPickRequest()); // Blue fascia not picked yet
+    Picker bob = new Picker("Bob", warehouse);
+    bob.ready();
+    for (String sku : new String[] {"3", "3", "4", "4"}) {
+      bob.scanSku(sku);
+    }
+    bob.complete();
+    sequencer.ready();
+    assertEquals(Arrays.asList("3", "1", "4", "2"), sequencer.getPickRequest().getSkuPackage());
+    assertEquals("White", sequencer.getPickRequest().getOrders().get(0).getColour());
+    for (String sku : new String[] {"3", "1", "4", "2"}) {
+      sequencer.scanSku(sku);
+    }
+    sequencer.complete();
+    sequencer.ready(); // The second load, from the same pick requests
+    assertEquals(Arrays.asList("3", "1", "4", "2"), sequencer.getPickRequest().getSkuPackage());
+  }
+}